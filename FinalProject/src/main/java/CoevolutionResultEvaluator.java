@@ -3,6 +3,8 @@ import com.google.common.collect.Lists;
 import entrants.ghosts.silvaw.MyGhostsMiniMax;
 import entrants.pacman.silvaw.MyPacManMiniMax;
 import minimax.FileSettableHeuristic;
+import minimax.InMemoryMetricsSink;
+import minimax.SearchStatistics;
 import minimax.SettableHeuristic;
 import pacman.Executor;
 import pacman.controllers.Controller;
@@ -37,6 +39,10 @@ public class CoevolutionResultEvaluator
      * The number of games to run per generation (and then get the average score of)
      */
     private static final int NUM_OF_GAMES_TO_RUN_PER_GENERATION = 10;
+    /**
+     * Should the work done by the Minimax searches of each generation be printed?
+     */
+    private static final boolean PROFILE_SEARCHES = false;
 
     /**
      * Runs each generation of Pac-Men and ghosts from the specified files. The populations of each generation compete
@@ -61,16 +67,46 @@ public class CoevolutionResultEvaluator
             Map<String, Integer> pacManGenes = FileSettableHeuristic.fileLineToGeneMap(columns, pacManFileLines.get(i));
             Map<String, Integer> ghostGenes = FileSettableHeuristic.fileLineToGeneMap(columns, ghostFileLines.get(i));
 
-            int score = (int) determineAverageScore(
-                    new MyPacManMiniMax(new SettableHeuristic(pacManGenes)),
-                    new MyGhostsMiniMax(new SettableHeuristic(ghostGenes)));
+            MyPacManMiniMax pacMan = new MyPacManMiniMax(new SettableHeuristic(pacManGenes));
+            MyGhostsMiniMax ghosts = new MyGhostsMiniMax(new SettableHeuristic(ghostGenes));
+            InMemoryMetricsSink pacManMetrics = new InMemoryMetricsSink();
+            InMemoryMetricsSink ghostMetrics = new InMemoryMetricsSink();
+            if (PROFILE_SEARCHES) {
+                pacMan.setMetricsSink(pacManMetrics);
+                ghosts.setMetricsSink(ghostMetrics);
+            }
+
+            int score = (int) determineAverageScore(pacMan, ghosts);
             System.out.println("Generation-" + i + " AVG SCORE: " + score);
             scores.add(score);
+            if (PROFILE_SEARCHES) {
+                printProfile("Generation-" + i + " PacMan", pacManMetrics.getTotal());
+                printProfile("Generation-" + i + " Ghosts", ghostMetrics.getTotal());
+            }
         }
 
         saveScoresToFile(scores);
     }
 
+    /**
+     * Prints the average work done per search
+     *
+     * @param name name of the searches
+     * @param total the statistics of the searches added together
+     */
+    private static void printProfile(String name, SearchStatistics total)
+    {
+        int searches = Math.max(total.getSearches(), 1);
+        System.out.println(name +
+                " searches=" + total.getSearches() +
+                " avgNodes=" + total.getNodesSearched() / searches +
+                " avgLeaves=" + total.getLeavesEvaluated() / searches +
+                " avgCutoffs=" + total.getCutoffs() / searches +
+                " avgStateCopies=" + total.getStateCopies() / searches +
+                " avgHeuristicMs=" + String.format("%.3f", total.getHeuristicNanos() / 1e6 / searches) +
+                " avgWallMs=" + String.format("%.3f", total.getWallNanos() / 1e6 / searches));
+    }
+
     /**
      * @param filename the name of the file to read
      * @return the contents of the file as a list of strings
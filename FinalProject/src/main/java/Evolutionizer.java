@@ -1,8 +1,11 @@
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import genetic_algorithm.Fidelity;
+import genetic_algorithm.FitnessEvaluator;
 import genetic_algorithm.GeneticAlgorithm;
 import genetic_algorithm.Individual;
 import genetic_algorithm.Population;
+import genetic_algorithm.WorkerPool;
 import minimax.FeatureWeightNames;
 
 import java.io.IOException;
@@ -31,6 +34,15 @@ public class Evolutionizer
      * The number of generations to create before stopping the program
      */
     private static final int GENERATION_COUNT = 50;
+    /**
+     * The number of fitness games to run at the same time
+     */
+    private static final int FITNESS_THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * The number of worker processes to play the fitness games in, or 0 to play them on FITNESS_THREADS threads of
+     * this JVM
+     */
+    private static final int WORKER_PROCESSES = 0;
 
     /**
      * Runs a population of Pac-Man and a population of ghosts for a set number of generations with the Pac-Men and
@@ -49,23 +61,30 @@ public class Evolutionizer
         // Lists to keep track of the fittest Pac-Men and ghosts from each generation.
         List<Individual> fittestPacMenFromEachGeneration = Lists.newArrayList();
         List<Individual> fittestGhostsFromEachGeneration = Lists.newArrayList();
+        FitnessEvaluator fitnessEvaluator = WORKER_PROCESSES > 0 ?
+                new FitnessEvaluator(new WorkerPool(WORKER_PROCESSES)) : new FitnessEvaluator(FITNESS_THREADS);
 
         // For each generation, Pac-Man and ghost compete and evolve
         for (int generationCount = 0; generationCount < GENERATION_COUNT; generationCount++) {
+            // Calculate the fitness of every new individual of both populations before selection uses it
+            evaluate(fitnessEvaluator, myPacManPop, myGhostPop, generationCount);
+
             // Evolve PacMen
             Individual fittestPacMan = myPacManPop.getFittest(myGhostPop);
             System.out.println("PacMan- Generation: " + generationCount + " Fittest: " + fittestPacMan.getFitness(myGhostPop));
-            myPacManPop = GeneticAlgorithm.evolvePopulation(myPacManPop, myGhostPop);
+            myPacManPop = GeneticAlgorithm.evolvePopulation(myPacManPop, myGhostPop, fitnessEvaluator);
 
             // Evolve Ghosts
             Individual fittestGhost = myGhostPop.getFittest(myPacManPop);
             System.out.println("Ghosts- Generation: " + generationCount + " Fittest: " + fittestGhost.getFitness(myPacManPop));
-            myGhostPop = GeneticAlgorithm.evolvePopulation(myGhostPop, myPacManPop);
+            myGhostPop = GeneticAlgorithm.evolvePopulation(myGhostPop, myPacManPop, fitnessEvaluator);
 
             // Add the fittest Pac-Man and ghosts to the lists
             fittestPacMenFromEachGeneration.add(fittestPacMan);
             fittestGhostsFromEachGeneration.add(fittestGhost);
         }
+        evaluate(fitnessEvaluator, myPacManPop, myGhostPop, GENERATION_COUNT);
+        fitnessEvaluator.shutdown();
         System.out.println("PacMan- Generation: " + GENERATION_COUNT + "\n Genes:\n" + myPacManPop.getFittest(myGhostPop));
         System.out.println("Ghosts- Generation: " + GENERATION_COUNT + "\n Genes:\n" + myGhostPop.getFittest(myGhostPop));
 
@@ -74,6 +93,34 @@ public class Evolutionizer
         saveFile("ghosts", fittestGhostsFromEachGeneration);
     }
 
+    /**
+     * Runs the fitness games of a generation at the fidelity of the generation, and prints how many games were played
+     * per second and how much of the available cores they used
+     *
+     * @param fitnessEvaluator the evaluator to run the games on
+     * @param pacManPop the population of Pac-Men
+     * @param ghostPop the population of ghosts
+     * @param generationCount the number of the generation
+     */
+    private static void evaluate(FitnessEvaluator fitnessEvaluator, Population pacManPop, Population ghostPop,
+                                 int generationCount)
+    {
+        fitnessEvaluator.setFidelity(Fidelity.forGeneration(generationCount));
+        fitnessEvaluator.evaluate(pacManPop, ghostPop);
+        System.out.println("Fitness- Generation: " + generationCount +
+                " Fidelity: " + fitnessEvaluator.getFidelity() +
+                " Individuals: " + fitnessEvaluator.getLastBatchIndividuals() +
+                " Games: " + fitnessEvaluator.getLastBatchGames() +
+                " Threads: " + fitnessEvaluator.getThreads() +
+                " Games/sec: " + String.format("%.2f", fitnessEvaluator.getLastBatchGamesPerSecond()) +
+                " Core utilisation: " + String.format("%.0f%%", fitnessEvaluator.getLastBatchCoreUtilisation() * 100) +
+                " Timeouts: " + fitnessEvaluator.getTimeouts() +
+                (fitnessEvaluator.getWorkerPool() == null ? "" :
+                        " Worker restarts: " + fitnessEvaluator.getWorkerPool().getRestarts() +
+                        " Failed restarts: " + fitnessEvaluator.getWorkerPool().getFailedRestarts() +
+                        " Games retried: " + fitnessEvaluator.getWorkerPool().getRetries()));
+    }
+
     /**
      * Saves the gene data of the given individuals to a CSV file called [namePrefix]_DATE.csv
      *
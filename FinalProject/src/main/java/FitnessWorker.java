@@ -0,0 +1,49 @@
+import com.google.common.base.Throwables;
+import genetic_algorithm.FitnessJob;
+import genetic_algorithm.GameResult;
+import genetic_algorithm.WorkerPool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A worker process which plays fitness games for {@link Evolutionizer}. It is started by {@link WorkerPool} and is not
+ * meant to be run by hand.
+ */
+public class FitnessWorker
+{
+    /**
+     * Reads one fitness job per line from standard input, plays its game and writes the score of the game, the CPU
+     * time it took in nanoseconds and whether it ran out of time, separated by spaces, on one line of standard output.
+     * Exits when standard input is closed.
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        // Standard output only carries replies, so anything else printed while playing goes to standard error
+        PrintStream replies = new PrintStream(System.out, false);
+        System.setOut(System.err);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        try {
+            BufferedReader jobs = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = jobs.readLine()) != null) {
+                FitnessJob job = FitnessJob.decode(line);
+                long startCpuTime = threadBean.getCurrentThreadCpuTime();
+                GameResult result = job.play();
+                replies.println(result.getScore() + " " + (threadBean.getCurrentThreadCpuTime() - startCpuTime) +
+                        " " + result.isTimedOut());
+                replies.flush();
+            }
+        } catch (IOException e) {
+            Throwables.propagate(e);
+        }
+    }
+}
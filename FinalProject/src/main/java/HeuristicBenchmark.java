@@ -0,0 +1,211 @@
+import com.google.common.base.Throwables;
+import com.sun.management.ThreadMXBean;
+import minimax.FeatureWeightNames;
+import minimax.FileSettableHeuristic;
+import minimax.Heuristic;
+import minimax.HeuristicCompiler;
+import minimax.MoveHistory;
+import minimax.SettableHeuristic;
+import minimax.SimulationState;
+import pacman.game.Game;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long {@link SettableHeuristic} takes to evaluate a state on the positions of {@link MinimaxBenchmark},
+ * and how much of that was spent looking up the feature weights in a map before they were compiled into a vector
+ * indexed by feature ordinal. Gene sets with fewer nonzero weights are compared to show that they evaluate faster, and
+ * each gene set is also evaluated by a class generated for it by {@link HeuristicCompiler}. The results are printed to
+ * the console.
+ */
+public class HeuristicBenchmark
+{
+    private static final String PAC_MAN_FILE = "pacman_sample_100generations.csv";
+    private static final int PAC_MAN_FILE_LINE = 101;
+
+    /**
+     * The number of times every position is evaluated before measuring, so that the JIT compiler has compiled the
+     * evaluation
+     */
+    private static final int WARM_UP_ROUNDS = 20000;
+    /**
+     * The number of times every position is evaluated while measuring
+     */
+    private static final int MEASURED_ROUNDS = 100000;
+    /**
+     * The features kept by the sparse gene set, which needs the nearest ghost but not the nearest pill or the possible
+     * moves of the ghosts
+     */
+    private static final String[] SPARSE_FEATURES = {"score", "livesRemaining", "numActivePills",
+            "pacManDistanceToNearestGhostUnder20", "pacManNearestGhostEdible"};
+
+    /**
+     * Prints the cost profile, nanoseconds per evaluation and bytes allocated per evaluation of the evolved gene set
+     * and of a sparse gene set with only SPARSE_FEATURES, both as a SettableHeuristic and as a compiled heuristic,
+     * followed by the nanoseconds per evaluation spent reading the
+     * weights from a map and from the compiled vector
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        Map<String, Integer> geneMap = readGeneMap(PAC_MAN_FILE, PAC_MAN_FILE_LINE);
+        Map<String, Integer> sparseGeneMap = FeatureWeightNames.generateZeroWeights();
+        for (String feature : SPARSE_FEATURES) {
+            sparseGeneMap.put(feature, geneMap.get(feature));
+        }
+        List<Game> positions = MinimaxBenchmark.createPositions();
+        SimulationState[] states = new SimulationState[positions.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = SimulationState.fromGame(positions.get(i), true);
+        }
+
+        reportGeneSet("Evolved", geneMap, states);
+        reportGeneSet("Sparse", sparseGeneMap, states);
+        reportWeightLookups(geneMap);
+    }
+
+    /**
+     * Reports the speed of a gene set as a SettableHeuristic and as a compiled heuristic, and the number of states
+     * which the two evaluate differently, which should be 0
+     *
+     * @param name name of the gene set
+     * @param geneMap map of feature names to feature weights
+     * @param states the states to evaluate
+     */
+    private static void reportGeneSet(String name, Map<String, Integer> geneMap, SimulationState[] states)
+    {
+        SettableHeuristic settableHeuristic = new SettableHeuristic(geneMap);
+        Heuristic compiledHeuristic = HeuristicCompiler.compile(geneMap);
+        int mismatches = 0;
+        for (SimulationState state : states) {
+            if (settableHeuristic.heuristicVal(state, MoveHistory.EMPTY) !=
+                    compiledHeuristic.heuristicVal(state, MoveHistory.EMPTY)) {
+                mismatches++;
+            }
+        }
+
+        String profile = settableHeuristic.getCostProfile();
+        reportEvaluation(name + " settable " + profile, settableHeuristic, states);
+        reportEvaluation(name + " compiled " + profile + " mismatches=" + mismatches, compiledHeuristic, states);
+    }
+
+    /**
+     * @param name description of the heuristic
+     * @param heuristic the heuristic to evaluate the states with
+     * @param states the states to evaluate
+     */
+    private static void reportEvaluation(String name, Heuristic heuristic, SimulationState[] states)
+    {
+        long sink = 0;
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            for (SimulationState state : states) {
+                sink += heuristic.heuristicVal(state, MoveHistory.EMPTY);
+            }
+        }
+
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (SimulationState state : states) {
+                sink += heuristic.heuristicVal(state, MoveHistory.EMPTY);
+            }
+        }
+        long time = System.nanoTime() - startTime;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+        long evaluations = (long) MEASURED_ROUNDS * states.length;
+
+        System.out.println(name +
+                " evaluations=" + evaluations +
+                " nsPerEvaluation=" + String.format("%.1f", (double) time / (double) evaluations) +
+                " bytesPerEvaluation=" + String.format("%.2f", (double) bytes / (double) evaluations) +
+                " (sink=" + sink + ")");
+    }
+
+    /**
+     * Compares reading every weight once per evaluation from the map of feature names to weights, as the heuristic
+     * did before its weights were compiled, with reading them from the compiled vector
+     *
+     * @param geneMap map of feature names to feature weights
+     */
+    private static void reportWeightLookups(Map<String, Integer> geneMap)
+    {
+        String[] names = FeatureWeightNames.getNames().toArray(new String[FeatureWeightNames.NUM_FEATURES]);
+        int[] weights = FeatureWeightNames.compileWeights(geneMap);
+
+        long sink = 0;
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            sink += sumFromMap(geneMap, names) + sumFromVector(weights);
+        }
+
+        long startTime = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += sumFromMap(geneMap, names);
+        }
+        long mapTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += sumFromVector(weights);
+        }
+        long vectorTime = System.nanoTime() - startTime;
+
+        System.out.println("Weight lookups per evaluation=" + FeatureWeightNames.NUM_FEATURES +
+                " mapNsPerEvaluation=" + String.format("%.1f", (double) mapTime / (double) MEASURED_ROUNDS) +
+                " vectorNsPerEvaluation=" + String.format("%.1f", (double) vectorTime / (double) MEASURED_ROUNDS) +
+                " (sink=" + sink + ")");
+    }
+
+    /**
+     * @param geneMap map of feature names to feature weights
+     * @param names the names of all of the features
+     * @return the sum of the weights of all of the features, looked up by name
+     */
+    private static long sumFromMap(Map<String, Integer> geneMap, String[] names)
+    {
+        long sum = 0;
+        for (String name : names) {
+            sum += geneMap.get(name);
+        }
+        return sum;
+    }
+
+    /**
+     * @param weights the feature weights indexed by feature ordinal
+     * @return the sum of the weights of all of the features
+     */
+    private static long sumFromVector(int[] weights)
+    {
+        long sum = 0;
+        for (int weight : weights) {
+            sum += weight;
+        }
+        return sum;
+    }
+
+    /**
+     * @param filename file of feature weights produced by Evolutionizer
+     * @param fileLine the line of filename to get the feature weights from
+     * @return a map of feature names to weights for those features
+     */
+    private static Map<String, Integer> readGeneMap(String filename, int fileLine)
+    {
+        List<String> fileLines = null;
+        try {
+            fileLines = Files.readAllLines(Paths.get(filename), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Throwables.propagate(e);
+        }
+        List<String> columns = Arrays.asList(fileLines.get(0).split(","));
+        return FileSettableHeuristic.fileLineToGeneMap(columns, fileLines.get(fileLine - 1));
+    }
+}
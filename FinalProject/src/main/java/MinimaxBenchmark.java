@@ -0,0 +1,746 @@
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.sun.istack.internal.Nullable;
+import com.sun.management.ThreadMXBean;
+import minimax.FileSettableHeuristic;
+import minimax.GhostPlyMode;
+import minimax.Heuristic;
+import minimax.MinimaxAlgorithm;
+import minimax.SearchStatistics;
+import minimax.TranspositionTable;
+import pacman.controllers.examples.StarterGhosts;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Measures the work done by {@link MinimaxAlgorithm} on a set of positions taken from a game between the starter
+ * controllers of the Ms. Pac-Man AI library. The results are printed to the console.
+ */
+public class MinimaxBenchmark
+{
+    private static final String PAC_MAN_FILE = "pacman_sample_100generations.csv";
+    private static final int PAC_MAN_FILE_LINE = 101;
+    private static final String GHOST_FILE = "ghosts_sample_100generations.csv";
+    private static final int GHOST_FILE_LINE = 101;
+
+    /**
+     * The number of positions to run searches on
+     */
+    private static final int NUM_POSITIONS = 5;
+    /**
+     * The number of game ticks between the positions
+     */
+    private static final int TICKS_BETWEEN_POSITIONS = 100;
+    /**
+     * The depths of the trees to create for each position
+     */
+    private static final int[] DEPTHS = {6, 8};
+    /**
+     * Size of the transposition table used when one is enabled
+     */
+    private static final int TRANSPOSITION_TABLE_SIZE_IN_BITS = 20;
+    /**
+     * Should searches with and without a transposition table be compared?
+     */
+    private static final boolean RUN_TRANSPOSITION_TABLE_REPORT = true;
+    /**
+     * Should the speedup from searching with more threads be measured?
+     */
+    private static final boolean RUN_THREADS_REPORT = true;
+    /**
+     * The numbers of threads to measure the speedup of
+     */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+    /**
+     * The depth of the trees created to measure the speedup from more threads
+     */
+    private static final int THREADS_REPORT_DEPTH = 6;
+    /**
+     * Should the bytes allocated per node searched be measured?
+     */
+    private static final boolean RUN_ALLOCATION_REPORT = true;
+    /**
+     * The depth of the trees created to measure allocation
+     */
+    private static final int ALLOCATION_REPORT_DEPTH = 6;
+    /**
+     * Should the ghost ply modes be compared?
+     */
+    private static final boolean RUN_GHOST_PLY_MODE_REPORT = true;
+    /**
+     * The depth of the trees created to compare the ghost ply modes
+     */
+    private static final int GHOST_PLY_MODE_REPORT_DEPTH = 6;
+    /**
+     * Should searches which reuse the previous tick's search be compared with searches which do not?
+     */
+    private static final boolean RUN_TREE_REUSE_REPORT = true;
+    /**
+     * The depth of the trees created every tick to compare tree reuse
+     */
+    private static final int TREE_REUSE_REPORT_DEPTH = 6;
+    /**
+     * Should searches with pondering be compared with searches without it?
+     */
+    private static final boolean RUN_PONDERING_REPORT = true;
+    /**
+     * How long (in milliseconds) the opponent takes to pick its move each tick, during which the search can ponder
+     */
+    private static final long PONDERING_REPORT_OPPONENT_TIME = 20;
+    /**
+     * Should searches with macro-actions be compared with searches without them?
+     */
+    private static final boolean RUN_MACRO_ACTION_REPORT = true;
+    /**
+     * The depth of the trees created to compare macro-actions
+     */
+    private static final int MACRO_ACTION_REPORT_DEPTH = 6;
+    /**
+     * Should plain alpha-beta be compared with principal variation search and aspiration windows?
+     */
+    private static final boolean RUN_WINDOW_REPORT = true;
+    /**
+     * The depth of the trees created to compare search windows
+     */
+    private static final int WINDOW_REPORT_DEPTH = 8;
+    /**
+     * Should searches with quiescence extensions be compared with searches without them?
+     */
+    private static final boolean RUN_QUIESCENCE_REPORT = true;
+    /**
+     * The node limits of the extensions to compare, where 0 does not extend the search
+     */
+    private static final int[] QUIESCENCE_NODE_LIMITS = {0, 1000, 10000};
+    /**
+     * The depth of the trees created to compare quiescence extensions
+     */
+    private static final int QUIESCENCE_REPORT_DEPTH = 6;
+
+    /**
+     * Searches each position at each depth with and without a transposition table and prints the node counts
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        Heuristic pacManHeuristic = new FileSettableHeuristic(PAC_MAN_FILE, PAC_MAN_FILE_LINE);
+        Heuristic ghostHeuristic = new FileSettableHeuristic(GHOST_FILE, GHOST_FILE_LINE);
+        List<Game> positions = createPositions();
+
+        if (RUN_TRANSPOSITION_TABLE_REPORT) {
+            for (int depth : DEPTHS) {
+                for (int i = 0; i < positions.size(); i++) {
+                    Game position = positions.get(i);
+                    compareTranspositionTable("PacMan", pacManHeuristic, position, i, depth, true);
+                    compareTranspositionTable("Ghosts", ghostHeuristic, position, i, depth, false);
+                }
+            }
+        }
+        if (RUN_THREADS_REPORT) {
+            reportSpeedup("PacMan", pacManHeuristic, positions, true);
+            reportSpeedup("Ghosts", ghostHeuristic, positions, false);
+        }
+        if (RUN_ALLOCATION_REPORT) {
+            reportAllocation("PacMan", pacManHeuristic, positions, true);
+            reportAllocation("Ghosts", ghostHeuristic, positions, false);
+        }
+        if (RUN_GHOST_PLY_MODE_REPORT) {
+            for (GhostPlyMode mode : GhostPlyMode.values()) {
+                reportGhostPlyMode("PacMan", pacManHeuristic, positions, true, mode);
+                reportGhostPlyMode("Ghosts", ghostHeuristic, positions, false, mode);
+            }
+        }
+        if (RUN_TREE_REUSE_REPORT) {
+            for (boolean reuse : new boolean[]{false, true}) {
+                reportTreeReuse("PacMan", pacManHeuristic, true, reuse);
+                reportTreeReuse("Ghosts", ghostHeuristic, false, reuse);
+            }
+        }
+        if (RUN_PONDERING_REPORT) {
+            for (boolean ponder : new boolean[]{false, true}) {
+                reportPondering("PacMan", pacManHeuristic, true, ponder);
+                reportPondering("Ghosts", ghostHeuristic, false, ponder);
+            }
+        }
+        if (RUN_MACRO_ACTION_REPORT) {
+            for (boolean macroActions : new boolean[]{false, true}) {
+                reportMacroActions("PacMan", pacManHeuristic, positions, true, macroActions);
+                reportMacroActions("Ghosts", ghostHeuristic, positions, false, macroActions);
+            }
+        }
+        if (RUN_WINDOW_REPORT) {
+            for (boolean pvs : new boolean[]{false, true}) {
+                for (int window : new int[]{0, 50}) {
+                    reportWindows("PacMan", pacManHeuristic, positions, true, pvs, window);
+                    reportWindows("Ghosts", ghostHeuristic, positions, false, pvs, window);
+                }
+            }
+        }
+        if (RUN_QUIESCENCE_REPORT) {
+            for (int nodeLimit : QUIESCENCE_NODE_LIMITS) {
+                reportQuiescence("PacMan", pacManHeuristic, positions, true, nodeLimit);
+                reportQuiescence("Ghosts", ghostHeuristic, positions, false, nodeLimit);
+            }
+        }
+    }
+
+    /**
+     * Searches every position to QUIESCENCE_REPORT_DEPTH and prints how many leaves were extended, how many nodes and
+     * how much time the extensions took, and how often they reached the node limit. Then searches every position for
+     * one game tick and prints the average depth reached.
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param nodeLimit the most nodes the extensions may search in each tree, or 0 to not extend the search
+     */
+    private static void reportQuiescence(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan,
+                                         int nodeLimit)
+    {
+        MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+        algorithm.setQuiescence(nodeLimit);
+        PositionResults results = searchPositions(algorithm, positions, QUIESCENCE_REPORT_DEPTH, isPacMan, false);
+
+        SearchStatistics total = results.fixedDepth;
+        System.out.println(name + " quiescenceNodeLimit-" + nodeLimit + " depth-" + QUIESCENCE_REPORT_DEPTH +
+                " nodes=" + total.getNodesSearched() +
+                " leaves=" + total.getLeavesEvaluated() +
+                " extensions=" + total.getQuiescenceExtensions() +
+                " extensionNodes=" + total.getQuiescenceNodes() +
+                " extensionMs=" + total.getQuiescenceNanos() / 1000000 +
+                " limitsReached=" + total.getQuiescenceLimitsReached() +
+                " ms=" + results.fixedDepthNanos / 1000000 +
+                " avgDepthPerTick=" + String.format("%.2f", results.getAverageDepthPerTick()));
+    }
+
+    /**
+     * Searches every position to WINDOW_REPORT_DEPTH and prints the nodes searched and the re-searches made. Each
+     * position is first searched one ply shallower (which is not counted) so that the aspiration window is centred on
+     * that value, as in iterative deepening. Then searches every position for one game tick and prints the average
+     * depth reached.
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param pvs should the search use principal variation search?
+     * @param aspirationWindow the half-width of the aspiration window, or 0 to search with a full window
+     */
+    private static void reportWindows(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan,
+                                      boolean pvs, int aspirationWindow)
+    {
+        MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+        algorithm.setPrincipalVariationSearch(pvs);
+        algorithm.setAspirationWindow(aspirationWindow);
+        PositionResults results = searchPositions(algorithm, positions, WINDOW_REPORT_DEPTH, isPacMan, true);
+
+        SearchStatistics total = results.fixedDepth;
+        System.out.println(name + " pvs-" + pvs + " aspirationWindow-" + aspirationWindow +
+                " depth-" + WINDOW_REPORT_DEPTH +
+                " nodes=" + total.getNodesSearched() +
+                " nullWindowResearches=" + total.getNullWindowResearches() +
+                " aspirationResearches=" + total.getAspirationResearches() +
+                " ms=" + results.fixedDepthNanos / 1000000 +
+                " avgDepthPerTick=" + String.format("%.2f", results.getAverageDepthPerTick()));
+    }
+
+    /**
+     * Searches every position to MACRO_ACTION_REPORT_DEPTH and prints the nodes searched, the forced corridor steps
+     * simulated and how many game ticks ahead the trees looked on average. Then searches every position for one game
+     * tick and prints the average depth and ticks ahead reached.
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param macroActions should the search use macro-actions?
+     */
+    private static void reportMacroActions(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan,
+                                           boolean macroActions)
+    {
+        MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+        algorithm.setMacroActions(macroActions);
+        PositionResults results = searchPositions(algorithm, positions, MACRO_ACTION_REPORT_DEPTH, isPacMan, false);
+
+        System.out.println(name + " macroActions-" + macroActions + " depth-" + MACRO_ACTION_REPORT_DEPTH +
+                " nodes=" + results.fixedDepth.getNodesSearched() +
+                " corridorSteps=" + results.fixedDepth.getCorridorSteps() +
+                " avgTicksAhead=" + String.format("%.1f", results.getAverageTicksAhead()) +
+                " avgDepthPerTick=" + String.format("%.2f", results.getAverageDepthPerTick()) +
+                " avgTicksAheadPerTick=" + String.format("%.1f", results.getAverageTicksAheadPerTick()));
+    }
+
+    /**
+     * Plays a full game against a starter controller in which one side picks its moves with Minimax in one game tick,
+     * and the opponent takes PONDERING_REPORT_OPPONENT_TIME to pick its moves. Prints the average depth reached per
+     * tick, the fraction of ticks whose position was the one pondered, and the average depth pondering completed
+     * before those ticks. The fraction is also printed separately for the ticks at which every ghost was active and
+     * those at which a ghost was edible or in the lair, since the predicted position includes the ghost timers.
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param ponder should the search ponder while the opponent picks its moves?
+     */
+    private static void reportPondering(String name, Heuristic heuristic, boolean isPacMan, boolean ponder)
+    {
+        MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+        algorithm.setPondering(ponder);
+        List<TickResult> ticks = playGame(algorithm, TREE_REUSE_REPORT_DEPTH, isPacMan, true,
+                PONDERING_REPORT_OPPONENT_TIME);
+        algorithm.setPondering(false);
+
+        List<TickResult> ponderedTicks = Lists.newArrayList();
+        for (TickResult tick : ticks) {
+            if (tick.pondered) {
+                ponderedTicks.add(tick);
+            }
+        }
+        System.out.println(name + " ponder-" + ponder +
+                " ticks=" + ticks.size() +
+                " avgDepthPerTick=" + String.format("%.2f", averageDepth(ticks)) +
+                " ponderHitRate=" + String.format("%.1f%%", algorithm.getPonderHitRate() * 100) +
+                " ponderHitRate(allActive)=" + hitRate(ponderedTicks, false, true) +
+                " ponderHitRate(timerRunning)=" + hitRate(ponderedTicks, true, true) +
+                " avgPonderedDepth=" + String.format("%.2f", algorithm.getAveragePonderedDepth()));
+    }
+
+    /**
+     * Plays a full game against a starter controller in which one side picks its moves with Minimax, once with trees
+     * of depth TREE_REUSE_REPORT_DEPTH and once with one game tick per move. Prints the average nodes searched and
+     * time taken per tick to reach the depth, the fraction of ticks which reused the previous search, and the average
+     * depth reached per tick. The fraction is also printed separately for the ticks at which every ghost was active
+     * and those at which a ghost was edible or in the lair, since the transposition table key includes the timers.
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param reuse should each search reuse the search of the previous tick?
+     */
+    private static void reportTreeReuse(String name, Heuristic heuristic, boolean isPacMan, boolean reuse)
+    {
+        List<List<TickResult>> games = Lists.newArrayList();
+        for (boolean hasDeadline : new boolean[]{false, true}) {
+            MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                    new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+            algorithm.setTreeReuse(reuse);
+            games.add(playGame(algorithm, TREE_REUSE_REPORT_DEPTH, isPacMan, hasDeadline, 0));
+        }
+        List<TickResult> ticks = games.get(0);
+        long nodes = 0;
+        long time = 0;
+        for (TickResult tick : ticks) {
+            nodes += tick.statistics.getNodesSearched();
+            time += tick.nanos;
+        }
+
+        System.out.println(name + " reuse-" + reuse + " depth-" + TREE_REUSE_REPORT_DEPTH +
+                " ticks=" + ticks.size() +
+                " avgNodesPerTick=" + nodes / Math.max(ticks.size(), 1) +
+                " avgTimeToDepth(us)=" + time / 1000 / Math.max(ticks.size(), 1) +
+                " reusedTicks=" + hitRate(ticks, null, false) +
+                " reusedTicks(allActive)=" + hitRate(ticks, false, false) +
+                " reusedTicks(timerRunning)=" + hitRate(ticks, true, false) +
+                " avgDepthPerTick=" + String.format("%.2f", averageDepth(games.get(1))));
+    }
+
+    /**
+     * @param game a game
+     * @return is a ghost edible or in the lair?
+     */
+    private static boolean isGhostTimerRunning(Game game)
+    {
+        for (GHOST ghost : GHOST.values()) {
+            if (game.getGhostEdibleTime(ghost) > 0 || game.getGhostLairTime(ghost) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ticks the ticks of a game
+     * @param timerRunning only count the ticks at which a ghost timer was running (true) or not (false), or null to
+     *                     count every tick
+     * @param ponderHits count the ticks which were ponder hits? (Else, the ticks which reused the previous search)
+     * @return the percentage of the counted ticks which were hits, or 0% if no ticks were counted
+     */
+    private static String hitRate(List<TickResult> ticks, @Nullable Boolean timerRunning, boolean ponderHits)
+    {
+        int count = 0;
+        int hits = 0;
+        for (TickResult tick : ticks) {
+            if (timerRunning == null || tick.timerRunning == timerRunning) {
+                count++;
+                if (ponderHits ? tick.ponderHit : tick.statistics.wasPreviousSearchReused()) {
+                    hits++;
+                }
+            }
+        }
+        return String.format("%.1f%%", 100.0 * hits / Math.max(count, 1));
+    }
+
+    /**
+     * @param ticks the ticks of a game
+     * @return the average depth the searches of the ticks completed, or 0 if there were none
+     */
+    private static double averageDepth(List<TickResult> ticks)
+    {
+        int totalDepth = 0;
+        for (TickResult tick : ticks) {
+            totalDepth += tick.depth;
+        }
+        return (double) totalDepth / (double) Math.max(ticks.size(), 1);
+    }
+
+    /**
+     * @param moveNumber result of a search for the ghosts
+     * @return the moves of the ghosts in the format taken by Game.advanceGame, or null if no moves were found
+     */
+    @Nullable
+    private static EnumMap<GHOST, MOVE> toEnumMap(MinimaxAlgorithm.MoveNumber moveNumber)
+    {
+        if (moveNumber.ghostMoves == null) {
+            return null;
+        }
+        return new EnumMap<>(moveNumber.ghostMoves);
+    }
+
+    /**
+     * Prints the nodes searched per second when searching all positions to GHOST_PLY_MODE_REPORT_DEPTH with the
+     * given ghost ply mode, and the average depth reached when there is one game tick to search each position
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param mode the shape of the tree created for the ghosts' moves
+     */
+    private static void reportGhostPlyMode(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan,
+                                           GhostPlyMode mode)
+    {
+        MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+        algorithm.setGhostPlyMode(mode);
+        PositionResults results = searchPositions(algorithm, positions, GHOST_PLY_MODE_REPORT_DEPTH, isPacMan, false);
+
+        long nodes = results.fixedDepth.getNodesSearched();
+        long time = Math.max(results.fixedDepthNanos, 1);
+        System.out.println(name + " " + mode + " depth-" + GHOST_PLY_MODE_REPORT_DEPTH +
+                " time(ms)=" + time / 1000000 +
+                " nodes=" + nodes +
+                " nodesPerSecond=" + nodes * 1000000000L / time +
+                " avgDepthPerTick=" + String.format("%.2f", results.getAverageDepthPerTick()));
+    }
+
+    /**
+     * Prints how many bytes the search thread allocates per node when searching all positions to
+     * ALLOCATION_REPORT_DEPTH. The positions are searched once beforehand so that class loading and the one-off
+     * tables of the search are not counted.
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     */
+    private static void reportAllocation(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan)
+    {
+        MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+        searchPositions(algorithm, positions, ALLOCATION_REPORT_DEPTH, isPacMan, false);
+        PositionResults results = searchPositions(algorithm, positions, ALLOCATION_REPORT_DEPTH, isPacMan, false);
+        if (results.fixedDepthBytes == -1) {
+            System.out.println(name + " allocation: not supported by this JVM");
+            return;
+        }
+
+        long nodes = results.fixedDepth.getNodesSearched();
+        System.out.println(name + " depth-" + ALLOCATION_REPORT_DEPTH +
+                " nodes=" + nodes +
+                " allocated(bytes)=" + results.fixedDepthBytes +
+                " bytesPerNode=" + String.format("%.1f", (double) results.fixedDepthBytes / (double) nodes));
+    }
+
+    /**
+     * Prints how much faster all positions are searched to THREADS_REPORT_DEPTH with each number of threads than
+     * with one thread, and the average depth reached when there is one game tick to search each position
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     */
+    private static void reportSpeedup(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan)
+    {
+        long singleThreadTime = 0;
+        for (int threads : THREAD_COUNTS) {
+            MinimaxAlgorithm algorithm = new MinimaxAlgorithm(heuristic,
+                    new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+            algorithm.setParallelism(threads);
+            PositionResults results = searchPositions(algorithm, positions, THREADS_REPORT_DEPTH, isPacMan, false);
+            algorithm.setParallelism(1);
+
+            long time = results.fixedDepthNanos;
+            if (threads == THREAD_COUNTS[0]) {
+                singleThreadTime = time;
+            }
+            System.out.println(name + " threads-" + threads +
+                    " time(ms)=" + time / 1000000 +
+                    " speedup=" + String.format("%.2f", (double) singleThreadTime / (double) time) +
+                    " nodes=" + results.fixedDepth.getNodesSearched() +
+                    " avgDepthPerTick=" + String.format("%.2f", results.getAverageDepthPerTick()));
+        }
+    }
+
+    /**
+     * @return positions from a game between the starter controllers, spaced TICKS_BETWEEN_POSITIONS apart
+     */
+    static List<Game> createPositions()
+    {
+        StarterPacMan pacMan = new StarterPacMan();
+        StarterGhosts ghosts = new StarterGhosts();
+        Game game = new Game(0);
+
+        List<Game> positions = Lists.newArrayList();
+        while (positions.size() < NUM_POSITIONS && !game.gameOver()) {
+            for (int tick = 0; tick < TICKS_BETWEEN_POSITIONS && !game.gameOver(); tick++) {
+                game.advanceGame(pacMan.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
+            }
+            positions.add(game.copy());
+        }
+        return positions;
+    }
+
+    /**
+     * Searches the given position with and without a transposition table and prints the results
+     *
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param position the game to search
+     * @param positionNumber number of the position to print
+     * @param depth the depth of the trees to create
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     */
+    private static void compareTranspositionTable(String name, Heuristic heuristic, Game position,
+                                                  int positionNumber, int depth, boolean isPacMan)
+    {
+        SearchStatistics withoutTable = search(new MinimaxAlgorithm(heuristic, null), position, depth, isPacMan);
+        SearchStatistics withTable = search(new MinimaxAlgorithm(heuristic,
+                new TranspositionTable(TRANSPOSITION_TABLE_SIZE_IN_BITS, false)), position, depth, isPacMan);
+
+        double reduction = 1.0 - (double) withTable.getNodesSearched() / (double) withoutTable.getNodesSearched();
+        System.out.println(name + " position-" + positionNumber + " depth-" + depth +
+                " nodes(no table)=" + withoutTable.getNodesSearched() +
+                " nodes(table)=" + withTable.getNodesSearched() +
+                " reduction=" + String.format("%.1f%%", reduction * 100) +
+                " hitRate=" + String.format("%.1f%%", withTable.getTranspositionHitRate() * 100) +
+                " firstMoveCutoffRate=" + String.format("%.1f%%", withTable.getFirstMoveCutoffRate() * 100) +
+                " [" + withTable + "]");
+    }
+
+    /**
+     * @param algorithm the Minimax implementation to search with
+     * @param position the game to search
+     * @param depth the depth of the tree to create
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @return statistics of the search
+     */
+    static SearchStatistics search(MinimaxAlgorithm algorithm, Game position, int depth, boolean isPacMan)
+    {
+        algorithm.createMiniMaxTreeAndGetBestMove(position.copy(), depth, isPacMan, -1);
+        return algorithm.getLastSearchStatistics();
+    }
+
+    /**
+     * Searches every position to the given depth, and then every position for one game tick. The previous search is
+     * never reused, since each position is searched more than once.
+     *
+     * @param algorithm the Minimax implementation to search with, configured for the report
+     * @param positions the games to search
+     * @param depth the depth of the trees to create, which is also the deepest tree created in one game tick
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param searchShallowerFirst should each position first be searched one ply shallower without counting it, as in
+     *                             iterative deepening?
+     * @return the statistics of the searches
+     */
+    private static PositionResults searchPositions(MinimaxAlgorithm algorithm, List<Game> positions, int depth,
+                                                   boolean isPacMan, boolean searchShallowerFirst)
+    {
+        algorithm.setTreeReuse(false);
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean measureBytes = threadBean.isThreadAllocatedMemorySupported();
+        long threadId = Thread.currentThread().getId();
+
+        PositionResults results = new PositionResults(positions.size());
+        for (Game position : positions) {
+            if (searchShallowerFirst) {
+                search(algorithm, position, depth - 1, isPacMan);
+            }
+            // The copy of the position is made before measuring since it is not part of the search
+            Game copy = position.copy();
+            long startBytes = measureBytes ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+            long startTime = System.nanoTime();
+            algorithm.createMiniMaxTreeAndGetBestMove(copy, depth, isPacMan, -1);
+            results.fixedDepthNanos += System.nanoTime() - startTime;
+            if (measureBytes) {
+                results.fixedDepthBytes += threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+            }
+            SearchStatistics statistics = algorithm.getLastSearchStatistics();
+            results.fixedDepth.add(statistics);
+            results.fixedDepthTicksAhead += statistics.getMaxTicksAhead();
+        }
+        if (!measureBytes) {
+            results.fixedDepthBytes = -1;
+        }
+
+        for (Game position : positions) {
+            algorithm.createMiniMaxTreeAndGetBestMove(position.copy(), depth, isPacMan,
+                    System.currentTimeMillis() + Constants.DELAY);
+            results.timedDepth += algorithm.getLastSearchDepth();
+            results.timedTicksAhead += algorithm.getLastSearchStatistics().getMaxTicksAhead();
+        }
+        return results;
+    }
+
+    /**
+     * Plays a full game against a starter controller in which one side picks its moves with the given algorithm
+     *
+     * @param algorithm the Minimax implementation to pick the side's moves with, configured for the report
+     * @param depth the depth of the trees to create, which is also the deepest tree created in one game tick
+     * @param isPacMan is the side Pac-Man? (Else, the ghosts)
+     * @param hasDeadline does each search have one game tick? (Else, it creates a tree of the given depth)
+     * @param opponentTime how long (in milliseconds) the opponent takes to pick its move each tick
+     * @return the results of the search of every tick, in the order they were played
+     */
+    private static List<TickResult> playGame(MinimaxAlgorithm algorithm, int depth, boolean isPacMan,
+                                             boolean hasDeadline, long opponentTime)
+    {
+        StarterPacMan pacMan = new StarterPacMan();
+        StarterGhosts ghosts = new StarterGhosts();
+        Game game = new Game(0);
+        List<TickResult> ticks = Lists.newArrayList();
+        while (!game.gameOver()) {
+            boolean timerRunning = isGhostTimerRunning(game);
+            long timeDue = hasDeadline ? System.currentTimeMillis() + Constants.DELAY : -1;
+            long startTime = System.nanoTime();
+            MinimaxAlgorithm.MoveNumber moveNumber = algorithm.createMiniMaxTreeAndGetBestMove(game.copy(), depth,
+                    isPacMan, timeDue);
+            ticks.add(new TickResult(algorithm.getLastSearchStatistics(), algorithm.getLastSearchDepth(),
+                    System.nanoTime() - startTime, timerRunning, algorithm.wasLastSearchPondered(),
+                    algorithm.wasLastSearchPonderHit()));
+
+            if (opponentTime > 0) {
+                try {
+                    Thread.sleep(opponentTime);
+                } catch (InterruptedException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+            if (isPacMan) {
+                game.advanceGame(moveNumber.move, ghosts.getMove(game.copy(), -1));
+            } else {
+                game.advanceGame(pacMan.getMove(game.copy(), -1), toEnumMap(moveNumber));
+            }
+        }
+        return ticks;
+    }
+
+    /**
+     * The totals of searching a set of positions to a fixed depth and for one game tick each
+     */
+    private static class PositionResults
+    {
+        private final int positions;
+        /**
+         * The statistics of the fixed-depth searches added together
+         */
+        final SearchStatistics fixedDepth = new SearchStatistics();
+        long fixedDepthNanos = 0;
+        /**
+         * The bytes the search thread allocated during the fixed-depth searches, or -1 if the JVM cannot measure it
+         */
+        long fixedDepthBytes = 0;
+        int fixedDepthTicksAhead = 0;
+        int timedDepth = 0;
+        int timedTicksAhead = 0;
+
+        /**
+         * @param positions the number of positions searched
+         */
+        PositionResults(int positions)
+        {
+            this.positions = positions;
+        }
+
+        /**
+         * @return the average number of game ticks the fixed-depth trees looked ahead
+         */
+        double getAverageTicksAhead()
+        {
+            return (double) fixedDepthTicksAhead / (double) Math.max(positions, 1);
+        }
+
+        /**
+         * @return the average depth completed in one game tick
+         */
+        double getAverageDepthPerTick()
+        {
+            return (double) timedDepth / (double) Math.max(positions, 1);
+        }
+
+        /**
+         * @return the average number of game ticks looked ahead in one game tick
+         */
+        double getAverageTicksAheadPerTick()
+        {
+            return (double) timedTicksAhead / (double) Math.max(positions, 1);
+        }
+    }
+
+    /**
+     * The search made at one tick of a game
+     */
+    private static class TickResult
+    {
+        final SearchStatistics statistics;
+        final int depth;
+        final long nanos;
+        /**
+         * Was a ghost edible or in the lair at the tick?
+         */
+        final boolean timerRunning;
+        final boolean pondered;
+        final boolean ponderHit;
+
+        /**
+         * @param statistics statistics of the search
+         * @param depth the depth the search completed
+         * @param nanos time (in nanoseconds) the search took, including copying the game
+         * @param timerRunning was a ghost edible or in the lair at the tick?
+         * @param pondered was the search preceded by pondering?
+         * @param ponderHit was the position the one pondered before the search?
+         */
+        TickResult(SearchStatistics statistics, int depth, long nanos, boolean timerRunning, boolean pondered,
+                   boolean ponderHit)
+        {
+            this.statistics = statistics;
+            this.depth = depth;
+            this.nanos = nanos;
+            this.timerRunning = timerRunning;
+            this.pondered = pondered;
+            this.ponderHit = ponderHit;
+        }
+    }
+}
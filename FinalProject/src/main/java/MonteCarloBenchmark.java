@@ -0,0 +1,78 @@
+import minimax.FileSettableHeuristic;
+import minimax.Heuristic;
+import minimax.MonteCarloTreeSearch;
+import pacman.game.Constants;
+import pacman.game.Game;
+
+import java.util.List;
+
+/**
+ * Measures the speed and memory use of {@link MonteCarloTreeSearch} on the same positions as {@link MinimaxBenchmark}.
+ * The results are printed to the console.
+ */
+public class MonteCarloBenchmark
+{
+    private static final String PAC_MAN_FILE = "pacman_sample_100generations.csv";
+    private static final int PAC_MAN_FILE_LINE = 101;
+    private static final String GHOST_FILE = "ghosts_sample_100generations.csv";
+    private static final int GHOST_FILE_LINE = 101;
+
+    /**
+     * The numbers of threads to search with
+     */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    /**
+     * Searches each position for one game tick with each number of threads and prints the playouts per second, the
+     * size of the trees, the memory used by their nodes and the memory allocated for them
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        Heuristic pacManHeuristic = new FileSettableHeuristic(PAC_MAN_FILE, PAC_MAN_FILE_LINE);
+        Heuristic ghostHeuristic = new FileSettableHeuristic(GHOST_FILE, GHOST_FILE_LINE);
+        List<Game> positions = MinimaxBenchmark.createPositions();
+
+        for (int threads : THREAD_COUNTS) {
+            report("PacMan", pacManHeuristic, positions, true, threads);
+            report("Ghosts", ghostHeuristic, positions, false, threads);
+        }
+    }
+
+    /**
+     * @param name name of the side being searched for
+     * @param heuristic evaluation function for the side
+     * @param positions the games to search
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     * @param threads the number of threads to search with
+     */
+    private static void report(String name, Heuristic heuristic, List<Game> positions, boolean isPacMan, int threads)
+    {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(heuristic);
+        search.setParallelism(threads);
+
+        long playouts = 0;
+        long treeNodes = 0;
+        int totalDepth = 0;
+        long startTime = System.nanoTime();
+        for (Game position : positions) {
+            search.getBestMove(position.copy(), isPacMan, System.currentTimeMillis() + Constants.DELAY);
+            playouts += search.getLastSearchPlayouts();
+            treeNodes += search.getLastSearchTreeSize();
+            totalDepth += search.getLastSearchDepth();
+        }
+        long time = Math.max(System.nanoTime() - startTime, 1);
+        // Read before setParallelism(1) lets the workers go
+        long allocatedTreeBytes = search.getAllocatedTreeBytes();
+        search.setParallelism(1);
+
+        System.out.println(name + " threads-" + threads +
+                " playouts=" + playouts +
+                " playoutsPerSecond=" + playouts * 1000000000L / time +
+                " avgTreeNodes=" + treeNodes / positions.size() +
+                " avgUsedTreeBytes=" + treeNodes / positions.size() * MonteCarloTreeSearch.BYTES_PER_TREE_NODE +
+                " allocatedTreeBytes=" + allocatedTreeBytes +
+                " avgDepthPerTick=" + String.format("%.2f", (double) totalDepth / (double) positions.size()));
+    }
+}
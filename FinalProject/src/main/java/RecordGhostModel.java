@@ -0,0 +1,46 @@
+import minimax.FrequencyGhostModel;
+import pacman.controllers.examples.StarterGhosts;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.EnumMap;
+
+/**
+ * Records how often a ghost controller makes each kind of move in games against the Starter Pac-Man, and saves the
+ * counts as a {@link FrequencyGhostModel} for the expectimax mode of the Minimax search.
+ */
+public class RecordGhostModel
+{
+    /**
+     * The number of games to record
+     */
+    private static final int NUM_GAMES = 20;
+    /**
+     * The file the model is saved to
+     */
+    private static final String OUTPUT_FILE = "starter_ghosts_model.csv";
+
+    /**
+     * Plays NUM_GAMES games between the Starter Pac-Man and the Starter ghosts and saves the model to OUTPUT_FILE
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        StarterPacMan pacMan = new StarterPacMan();
+        StarterGhosts ghosts = new StarterGhosts();
+        FrequencyGhostModel model = new FrequencyGhostModel();
+        for (int i = 0; i < NUM_GAMES; i++) {
+            Game game = new Game(i);
+            while (!game.gameOver()) {
+                EnumMap<GHOST, MOVE> ghostMoves = ghosts.getMove(game.copy(), -1);
+                model.recordMoves(game, ghostMoves);
+                game.advanceGame(pacMan.getMove(game.copy(), -1), ghostMoves);
+            }
+            System.out.println("Recorded game " + (i + 1) + " of " + NUM_GAMES);
+        }
+        model.writeToFile(OUTPUT_FILE);
+    }
+}
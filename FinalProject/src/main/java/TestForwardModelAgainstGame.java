@@ -0,0 +1,251 @@
+import minimax.SimulationState;
+import minimax.ZobristHash;
+import pacman.controllers.examples.StarterGhosts;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.EnumMap;
+
+/**
+ * Checks that {@link SimulationState} moves Pac-Man and the ghosts exactly like Game.updatePacMan and
+ * Game.updateGhosts, and counts the ghost timers down and detects Pac-Man being eaten like Game.updateGame. At every
+ * tick of a game between the starter controllers, every Pac-Man move and every combination of ghost moves is applied
+ * both to a SimulationState and to copies of the Game, and the two are compared. Undoing the moves must give back the
+ * original state. The numbers of transitions checked and of mismatches found are printed to the console.
+ */
+public class TestForwardModelAgainstGame
+{
+    /**
+     * The number of games to check
+     */
+    private static final int NUM_GAMES = 3;
+
+    private static long transitionsChecked = 0;
+    private static long mismatches = 0;
+    private static long undoMismatches = 0;
+    /**
+     * Transitions skipped because the Game reversed the ghosts at random, which SimulationState does not simulate
+     */
+    private static long randomReversals = 0;
+    /**
+     * Transitions skipped because someone was eaten or the level changed, which SimulationState does not simulate
+     */
+    private static long feasts = 0;
+    /**
+     * Skipped transitions after which the state and the Game did not agree on whether Pac-Man was eaten
+     */
+    private static long eatenMismatches = 0;
+
+    /**
+     * Plays NUM_GAMES games between the starter controllers and checks every transition from every tick
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        StarterPacMan pacMan = new StarterPacMan();
+        StarterGhosts ghosts = new StarterGhosts();
+        for (int i = 0; i < NUM_GAMES; i++) {
+            Game game = new Game(i);
+            while (!game.gameOver()) {
+                checkTransitions(game);
+                game.advanceGame(pacMan.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
+            }
+        }
+
+        System.out.println("transitions=" + transitionsChecked +
+                " mismatches=" + mismatches +
+                " undoMismatches=" + undoMismatches +
+                " skippedRandomReversals=" + randomReversals +
+                " skippedFeasts=" + feasts +
+                " eatenMismatches=" + eatenMismatches);
+    }
+
+    /**
+     * Applies every Pac-Man move followed by every combination of ghost moves to the given game and checks that
+     * SimulationState agrees with it after every move and after every undo
+     *
+     * @param game the game to check the transitions of, which is not changed
+     */
+    private static void checkTransitions(Game game)
+    {
+        SimulationState state = SimulationState.fromGame(game, true);
+        compare(state, game, true, "root");
+
+        for (MOVE pacManMove : MOVE.values()) {
+            Game afterPacMan = game.copy();
+            afterPacMan.updatePacMan(pacManMove);
+            state.applyPacManMove(pacManMove);
+            compare(state, afterPacMan, false, "pacman " + pacManMove);
+
+            MOVE[][] ghostMoves = new MOVE[GHOST.values().length][];
+            for (GHOST ghost : GHOST.values()) {
+                ghostMoves[ghost.ordinal()] = state.getPossibleGhostMoves(ghost);
+            }
+            MOVE[] combination = new MOVE[GHOST.values().length];
+            checkGhostCombinations(state, afterPacMan, ghostMoves, combination, 0);
+
+            state.undo();
+            if (!matches(state, game, true)) {
+                undoMismatches++;
+            }
+        }
+    }
+
+    /**
+     * Recursively builds every combination of ghost moves and checks each of them
+     *
+     * @param state the state after Pac-Man's move
+     * @param afterPacMan the game after Pac-Man's move
+     * @param ghostMoves the possible moves of each ghost
+     * @param combination the moves chosen so far, indexed by ghost ordinal
+     * @param ghost ordinal of the next ghost to choose a move for
+     */
+    private static void checkGhostCombinations(SimulationState state, Game afterPacMan, MOVE[][] ghostMoves,
+                                               MOVE[] combination, int ghost)
+    {
+        if (ghost < combination.length) {
+            for (MOVE move : ghostMoves[ghost]) {
+                combination[ghost] = move;
+                checkGhostCombinations(state, afterPacMan, ghostMoves, combination, ghost + 1);
+            }
+            return;
+        }
+
+        Game afterGhosts = afterPacMan.copy();
+        EnumMap<GHOST, MOVE> moves = new EnumMap<>(GHOST.class);
+        for (GHOST g : GHOST.values()) {
+            moves.put(g, combination[g.ordinal()]);
+        }
+        afterGhosts.updateGhosts(moves);
+        boolean randomReversal = wasRandomReversal(afterPacMan, afterGhosts);
+        // The timers count down in updateGame, which ends the tick
+        afterGhosts.updateGame();
+
+        state.applyGhostMoves(combination);
+        if (randomReversal) {
+            randomReversals++;
+        } else if (wasFeastOrNewLevel(afterPacMan, afterGhosts)) {
+            // Only the eating of Pac-Man is simulated, and nothing which follows it
+            feasts++;
+            if (state.wasPacManEaten() != afterGhosts.wasPacManEaten()) {
+                eatenMismatches++;
+            }
+        } else {
+            compare(state, afterGhosts, true, "ghosts " + moves);
+        }
+        state.undo();
+        if (!matches(state, afterPacMan, false)) {
+            undoMismatches++;
+        }
+    }
+
+    /**
+     * @param before the game before the ghosts moved
+     * @param after the game after the ghosts moved
+     * @return did every ghost outside of the lair reverse even though no power pill was eaten?
+     */
+    private static boolean wasRandomReversal(Game before, Game after)
+    {
+        if (before.wasPowerPillEaten()) {
+            return false;
+        }
+        boolean anyReversed = false;
+        for (GHOST ghost : GHOST.values()) {
+            if (before.getGhostLairTime(ghost) == 0 && before.getGhostLastMoveMade(ghost) != MOVE.NEUTRAL) {
+                if (after.getGhostLastMoveMade(ghost) != before.getGhostLastMoveMade(ghost).opposite()) {
+                    return false;
+                }
+                anyReversed = true;
+            }
+        }
+        return anyReversed;
+    }
+
+    /**
+     * @param before the game before the ghosts moved
+     * @param after the game after the whole tick
+     * @return was Pac-Man or a ghost eaten, or did the level or the game end, during the tick?
+     */
+    private static boolean wasFeastOrNewLevel(Game before, Game after)
+    {
+        boolean feast = after.wasPacManEaten() || after.gameOver() ||
+                after.getCurrentLevel() != before.getCurrentLevel();
+        for (GHOST ghost : GHOST.values()) {
+            feast |= after.wasGhostEaten(ghost);
+        }
+        return feast;
+    }
+
+    /**
+     * Counts and prints a mismatch between the state and the game
+     *
+     * @param state the simulated state
+     * @param game the game the state should be equal to
+     * @param isPacManToMove is it Pac-Man's turn to move next? (Else, the ghosts)
+     * @param transition description of the transition which was checked
+     */
+    private static void compare(SimulationState state, Game game, boolean isPacManToMove, String transition)
+    {
+        transitionsChecked++;
+        if (!matches(state, game, isPacManToMove)) {
+            mismatches++;
+            System.out.println("Mismatch at tick " + game.getTotalTime() + " after " + transition);
+        }
+    }
+
+    /**
+     * @param state the simulated state
+     * @param game the game the state should be equal to
+     * @param isPacManToMove is it Pac-Man's turn to move next? (Else, the ghosts)
+     * @return is every part of the game which the search uses the same in the state?
+     */
+    private static boolean matches(SimulationState state, Game game, boolean isPacManToMove)
+    {
+        boolean matches = state.getPacmanCurrentNodeIndex() == game.getPacmanCurrentNodeIndex() &&
+                state.getPacmanLastMoveMade() == game.getPacmanLastMoveMade() &&
+                state.getScore() == game.getScore() &&
+                state.getNumberOfActivePills() == game.getNumberOfActivePills() &&
+                state.getNumberOfActivePowerPills() == game.getNumberOfActivePowerPills() &&
+                state.wasPillEaten() == game.wasPillEaten() &&
+                state.wasPowerPillEaten() == game.wasPowerPillEaten() &&
+                state.wasPacManEaten() == game.wasPacManEaten() &&
+                state.getHash() == ZobristHash.hash(game, isPacManToMove);
+        for (GHOST ghost : GHOST.values()) {
+            matches &= state.getGhostCurrentNodeIndex(ghost) == game.getGhostCurrentNodeIndex(ghost) &&
+                    state.getGhostLastMoveMade(ghost) == game.getGhostLastMoveMade(ghost) &&
+                    state.getGhostEdibleTime(ghost) == game.getGhostEdibleTime(ghost) &&
+                    state.getGhostLairTime(ghost) == game.getGhostLairTime(ghost);
+        }
+        for (int i = 0; i < state.getNumberOfPills(); i++) {
+            matches &= state.isPillStillAvailable(i) == game.isPillStillAvailable(i);
+        }
+        for (int i = 0; i < state.getNumberOfPowerPills(); i++) {
+            matches &= state.isPowerPillStillAvailable(i) == game.isPowerPillStillAvailable(i);
+        }
+        matches &= state.getDistanceToNearestPill() == distanceToNearestPill(game);
+        return matches;
+    }
+
+    /**
+     * @param game a game
+     * @return the shortest path distance from Pac-Man to a pill or power pill which has not been eaten, found by
+     * checking all of them, or -1 if they have all been eaten
+     */
+    private static int distanceToNearestPill(Game game)
+    {
+        int pacManNode = game.getPacmanCurrentNodeIndex();
+        int distance = -1;
+        for (int pillNode : game.getActivePillsIndices()) {
+            int pillDistance = game.getShortestPathDistance(pacManNode, pillNode);
+            distance = distance == -1 ? pillDistance : Math.min(distance, pillDistance);
+        }
+        for (int powerPillNode : game.getActivePowerPillsIndices()) {
+            int powerPillDistance = game.getShortestPathDistance(pacManNode, powerPillNode);
+            distance = distance == -1 ? powerPillDistance : Math.min(distance, powerPillDistance);
+        }
+        return distance;
+    }
+}
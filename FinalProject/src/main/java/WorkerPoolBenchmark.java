@@ -0,0 +1,62 @@
+import genetic_algorithm.Fidelity;
+import genetic_algorithm.FitnessEvaluator;
+import genetic_algorithm.Population;
+import genetic_algorithm.WorkerPool;
+
+/**
+ * Measures how the number of fitness games played per second grows with the number of worker processes, against the
+ * same games played on threads of this JVM. The results are printed to the console.
+ */
+public class WorkerPoolBenchmark
+{
+    /**
+     * The size of both populations, whose fitness games are played by each pool
+     */
+    private static final int POPULATION_SIZE = 16;
+    /**
+     * The numbers of worker processes to play the games with
+     */
+    private static final int[] WORKER_COUNTS = {1, 2, 4, 8};
+    /**
+     * The fidelity of the games, which is the one of the first generations of the evolution
+     */
+    private static final Fidelity FIDELITY = Fidelity.forGeneration(0);
+
+    /**
+     * Plays the fitness games of two new populations on threads of this JVM and then on each number of worker
+     * processes, and prints the games per second, the core utilisation and the worker restarts of each
+     *
+     * @param ignored ignored arguments
+     */
+    public static void main(String[] ignored)
+    {
+        report("threads", new FitnessEvaluator(Runtime.getRuntime().availableProcessors()));
+        for (int workers : WORKER_COUNTS) {
+            report("workers", new FitnessEvaluator(new WorkerPool(workers)));
+        }
+    }
+
+    /**
+     * @param name name of the way the games are played
+     * @param fitnessEvaluator the evaluator to play the games with, which is shut down afterwards
+     */
+    private static void report(String name, FitnessEvaluator fitnessEvaluator)
+    {
+        fitnessEvaluator.setFidelity(FIDELITY);
+        // New populations, so that every individual is played and no heuristic is already compiled
+        fitnessEvaluator.evaluate(new Population(POPULATION_SIZE, true, true),
+                new Population(POPULATION_SIZE, true, false));
+
+        WorkerPool workerPool = fitnessEvaluator.getWorkerPool();
+        System.out.println(name + "-" + fitnessEvaluator.getThreads() +
+                " games=" + fitnessEvaluator.getLastBatchGames() +
+                " gamesPerSecond=" + String.format("%.2f", fitnessEvaluator.getLastBatchGamesPerSecond()) +
+                " coreUtilisation=" + String.format("%.0f%%", fitnessEvaluator.getLastBatchCoreUtilisation() * 100) +
+                " timeouts=" + fitnessEvaluator.getTimeouts() +
+                (workerPool == null ? "" :
+                        " restarts=" + workerPool.getRestarts() +
+                        " failedRestarts=" + workerPool.getFailedRestarts() +
+                        " retries=" + workerPool.getRetries()));
+        fitnessEvaluator.shutdown();
+    }
+}
@@ -1,33 +1,41 @@
 package entrants.ghosts.silvaw;
 
-import com.google.common.base.Optional;
+import com.sun.istack.internal.Nullable;
 import pacman.controllers.Controller;
 import pacman.game.Constants.GHOST;
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
+import minimax.GhostPlyMode;
 import minimax.Heuristic;
 import minimax.MinimaxAlgorithm;
+import minimax.MonteCarloTreeSearch;
+import minimax.SearchEngine;
+import minimax.SearchMetricsSink;
 
 import java.util.EnumMap;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * A controller for ghosts which uses Minimax to pick a move at every step. The evaluation function for the Minimax
- * algorithm is set in the constructor of this class.
+ * algorithm is set in the constructor of this class. Another {@link SearchEngine} can be given to the constructor
+ * instead.
  */
 public class MyGhostsMiniMax extends Controller<EnumMap<GHOST, MOVE>>
 {
     /**
-     * Th depth of the tree created by Minimax
+     * Th depth of the tree created by Minimax when there is no deadline for a move. When there is a deadline,
+     * iterative deepening is used to create the deepest tree possible in the time given.
      */
     private static final int MINIMAX_DEPTH = 6;
 
     /**
-     * Minimax implementation to pick next move
+     * Search engine (Minimax unless another engine is given) to pick next move
      */
-    private MinimaxAlgorithm minimaxAlgorithm;
+    private SearchEngine searchEngine;
 
     /**
      * @param heuristic evaluation function to use in Minimax algorithm when picking move
@@ -35,7 +43,27 @@ public class MyGhostsMiniMax extends Controller<EnumMap<GHOST, MOVE>>
     public MyGhostsMiniMax(Heuristic heuristic)
     {
         checkNotNull(heuristic);
-        this.minimaxAlgorithm = new MinimaxAlgorithm(heuristic);
+        MinimaxAlgorithm minimaxAlgorithm = new MinimaxAlgorithm(heuristic);
+        minimaxAlgorithm.setFixedDepth(MINIMAX_DEPTH);
+        this.searchEngine = minimaxAlgorithm;
+    }
+
+    /**
+     * @param heuristic evaluation function to use in Minimax algorithm when picking move
+     * @param searchThreads the number of threads to use when searching for a move
+     */
+    public MyGhostsMiniMax(Heuristic heuristic, int searchThreads)
+    {
+        this(heuristic);
+        this.searchEngine.setParallelism(searchThreads);
+    }
+
+    /**
+     * @param searchEngine search algorithm to pick moves with, such as {@link MonteCarloTreeSearch}
+     */
+    public MyGhostsMiniMax(SearchEngine searchEngine)
+    {
+        this.searchEngine = checkNotNull(searchEngine);
     }
 
     /**
@@ -46,8 +74,7 @@ public class MyGhostsMiniMax extends Controller<EnumMap<GHOST, MOVE>>
     @Override
     public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue)
     {
-        MinimaxAlgorithm.MoveNumber moveNumber = minimaxAlgorithm.createMiniMaxTreeAndGetBestMove(game, MINIMAX_DEPTH, false,
-                Optional.<Integer>absent(), Optional.<Integer>absent());
+        MinimaxAlgorithm.MoveNumber moveNumber = searchEngine.getBestMove(game, false, timeDue);
         Map<GHOST, MOVE> ghostMoves = moveNumber.ghostMoves;
 
         // Depth was 0 which means no moves were returned
@@ -62,4 +89,72 @@ public class MyGhostsMiniMax extends Controller<EnumMap<GHOST, MOVE>>
         }
         return enumMap;
     }
+
+    /**
+     * @param depth the depth of the tree Minimax creates when there is no deadline for a move, instead of
+     *              MINIMAX_DEPTH
+     */
+    public void setFixedDepth(int depth)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax searches to a fixed depth");
+        ((MinimaxAlgorithm) searchEngine).setFixedDepth(depth);
+    }
+
+    /**
+     * @param mode the shape of the tree Minimax creates for the ghosts' moves, which cannot be
+     *             {@link GhostPlyMode#EXPECTIMAX} since the ghosts choose their own moves rather than guess them
+     */
+    public void setGhostPlyMode(GhostPlyMode mode)
+    {
+        checkArgument(mode != GhostPlyMode.EXPECTIMAX, "The ghosts cannot treat their own moves as chance nodes");
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has ghost ply modes");
+        ((MinimaxAlgorithm) searchEngine).setGhostPlyMode(mode);
+    }
+
+    /**
+     * @param ponder should Minimax search the expected next position on a background thread while Pac-Man picks its
+     *               move?
+     */
+    public void setPondering(boolean ponder)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax can ponder");
+        ((MinimaxAlgorithm) searchEngine).setPondering(ponder);
+    }
+
+    /**
+     * @param macroActions should Minimax simulate Pac-Man's forced corridor steps without branching, so that it only
+     *                     chooses moves at junctions below the root?
+     */
+    public void setMacroActions(boolean macroActions)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has macro-actions");
+        ((MinimaxAlgorithm) searchEngine).setMacroActions(macroActions);
+    }
+
+    /**
+     * @param nodeLimit the most nodes Minimax may search in each tree to extend the leaves which are not quiet, or 0
+     *                  to not extend them
+     */
+    public void setQuiescence(int nodeLimit)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has quiescence extensions");
+        ((MinimaxAlgorithm) searchEngine).setQuiescence(nodeLimit);
+    }
+
+    /**
+     * @param sink receives the statistics of every search made to pick a move, or null to not record them
+     */
+    public void setMetricsSink(@Nullable SearchMetricsSink sink)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax records search metrics");
+        ((MinimaxAlgorithm) searchEngine).setMetricsSink(sink);
+    }
+
+    /**
+     * @return the depth of the tree that was created to pick the last move
+     */
+    public int getLastSearchDepth()
+    {
+        return searchEngine.getLastSearchDepth();
+    }
 }
@@ -1,29 +1,37 @@
 package entrants.pacman.silvaw;
 
-import com.google.common.base.Optional;
+import com.sun.istack.internal.Nullable;
 import pacman.controllers.PacmanController;
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
+import minimax.GhostModel;
+import minimax.GhostPlyMode;
 import minimax.Heuristic;
 import minimax.MinimaxAlgorithm;
+import minimax.MonteCarloTreeSearch;
+import minimax.SearchEngine;
+import minimax.SearchMetricsSink;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * A controller for pacman which uses Minimax to pick a move at every step. The evaluation function for the Minimax
- * algorithm is set in the constructor of this class.
+ * algorithm is set in the constructor of this class. Another {@link SearchEngine} can be given to the constructor
+ * instead.
  */
 public class MyPacManMiniMax extends PacmanController
 {
     /**
-     * The depth of the MinimaxAlgorithm tree to create
+     * The depth of the MinimaxAlgorithm tree to create when there is no deadline for a move. When there is a deadline,
+     * iterative deepening is used to create the deepest tree possible in the time given.
      */
     private static final int MINIMAX_DEPTH = 6;
 
     /**
-     * Minimax implementation to pick next move
+     * Search engine (Minimax unless another engine is given) to pick next move
      */
-    private MinimaxAlgorithm minimaxAlgorithm;
+    private SearchEngine searchEngine;
 
     /**
      * @param heuristic evaluation function to use in Minimax algorithm when picking move
@@ -31,7 +39,27 @@ public class MyPacManMiniMax extends PacmanController
     public MyPacManMiniMax(Heuristic heuristic)
     {
         checkNotNull(heuristic);
-        this.minimaxAlgorithm = new MinimaxAlgorithm(heuristic);
+        MinimaxAlgorithm minimaxAlgorithm = new MinimaxAlgorithm(heuristic);
+        minimaxAlgorithm.setFixedDepth(MINIMAX_DEPTH);
+        this.searchEngine = minimaxAlgorithm;
+    }
+
+    /**
+     * @param heuristic evaluation function to use in Minimax algorithm when picking move
+     * @param searchThreads the number of threads to use when searching for a move
+     */
+    public MyPacManMiniMax(Heuristic heuristic, int searchThreads)
+    {
+        this(heuristic);
+        this.searchEngine.setParallelism(searchThreads);
+    }
+
+    /**
+     * @param searchEngine search algorithm to pick moves with, such as {@link MonteCarloTreeSearch}
+     */
+    public MyPacManMiniMax(SearchEngine searchEngine)
+    {
+        this.searchEngine = checkNotNull(searchEngine);
     }
 
     /**
@@ -41,7 +69,82 @@ public class MyPacManMiniMax extends PacmanController
      */
     public MOVE getMove(Game game, long timeDue)
     {
-        return minimaxAlgorithm.createMiniMaxTreeAndGetBestMove(game, MINIMAX_DEPTH, true,
-                Optional.<Integer>absent(), Optional.<Integer>absent()).move;
+        return searchEngine.getBestMove(game, true, timeDue).move;
+    }
+
+    /**
+     * @param depth the depth of the tree Minimax creates when there is no deadline for a move, instead of
+     *              MINIMAX_DEPTH
+     */
+    public void setFixedDepth(int depth)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax searches to a fixed depth");
+        ((MinimaxAlgorithm) searchEngine).setFixedDepth(depth);
+    }
+
+    /**
+     * @param mode the shape of the tree Minimax creates for the ghosts' moves
+     */
+    public void setGhostPlyMode(GhostPlyMode mode)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has ghost ply modes");
+        ((MinimaxAlgorithm) searchEngine).setGhostPlyMode(mode);
+    }
+
+    /**
+     * @param ponder should Minimax search the expected next position on a background thread while the ghosts pick
+     *               their move?
+     */
+    public void setPondering(boolean ponder)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax can ponder");
+        ((MinimaxAlgorithm) searchEngine).setPondering(ponder);
+    }
+
+    /**
+     * @param macroActions should Minimax simulate Pac-Man's forced corridor steps without branching, so that it only
+     *                     chooses moves at junctions below the root?
+     */
+    public void setMacroActions(boolean macroActions)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has macro-actions");
+        ((MinimaxAlgorithm) searchEngine).setMacroActions(macroActions);
+    }
+
+    /**
+     * @param nodeLimit the most nodes Minimax may search in each tree to extend the leaves which are not quiet, or 0
+     *                  to not extend them
+     */
+    public void setQuiescence(int nodeLimit)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has quiescence extensions");
+        ((MinimaxAlgorithm) searchEngine).setQuiescence(nodeLimit);
+    }
+
+    /**
+     * @param sink receives the statistics of every search made to pick a move, or null to not record them
+     */
+    public void setMetricsSink(@Nullable SearchMetricsSink sink)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax records search metrics");
+        ((MinimaxAlgorithm) searchEngine).setMetricsSink(sink);
+    }
+
+    /**
+     * @param model how likely the ghosts are to make each move in the {@link GhostPlyMode#EXPECTIMAX} mode
+     * @param pruningThreshold combinations of ghost moves less likely than this are not searched
+     */
+    public void setGhostModel(GhostModel model, double pruningThreshold)
+    {
+        checkState(searchEngine instanceof MinimaxAlgorithm, "Only Minimax has ghost models");
+        ((MinimaxAlgorithm) searchEngine).setGhostModel(model, pruningThreshold);
+    }
+
+    /**
+     * @return the depth of the tree that was created to pick the last move
+     */
+    public int getLastSearchDepth()
+    {
+        return searchEngine.getLastSearchDepth();
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package genetic_algorithm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How much of a game is played to calculate a fitness. Cheaper fidelities stop the game after a number of ticks or
+ * levels and search less deeply, and the score reached so far is the fitness. Every game is also stopped when it runs
+ * out of the wall-clock budget of its fidelity, so one long game cannot stall a generation. The budget grows with the
+ * ticks and search depth of the fidelity, and a game which runs out of it is reported as timed out (see
+ * {@link GameResult}).
+ *
+ * The fidelity of the games of a generation is given by {@link #forGeneration}: the first generations, whose
+ * individuals are mostly random, play short shallow games, and the survivors of those generations play full games.
+ * All of the games of a generation have the same fidelity, so the fitnesses compared in its tournaments are alike.
+ */
+public class Fidelity
+{
+    /**
+     * The depth of the trees created by Minimax in a full game, which is the depth used by the controllers
+     */
+    private static final int FULL_SEARCH_DEPTH = 6;
+    /**
+     * One minute, the unit of the wall-clock budgets of the schedule
+     */
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    /**
+     * The first generation of each step of the schedule, with the fidelity of each step below
+     */
+    private static final int[] SCHEDULE_GENERATIONS = {0, 10, 20};
+    private static final Fidelity[] SCHEDULE_FIDELITIES = {
+            new Fidelity("screening", 1000, 1, 2, MINUTE_MILLIS),
+            new Fidelity("reduced", 4000, 2, 4, 3 * MINUTE_MILLIS),
+            new Fidelity("full", Integer.MAX_VALUE, Integer.MAX_VALUE, FULL_SEARCH_DEPTH, 10 * MINUTE_MILLIS)
+    };
+
+    /**
+     * Full games, stopped only by the wall-clock budget
+     */
+    public static final Fidelity FULL = SCHEDULE_FIDELITIES[SCHEDULE_FIDELITIES.length - 1];
+
+    private final String name;
+    /**
+     * The game stops after this many ticks
+     */
+    private final int maxTicks;
+    /**
+     * The game stops when Pac-Man reaches the level after this many levels
+     */
+    private final int maxLevels;
+    /**
+     * The depth of the trees created by Minimax for both sides
+     */
+    private final int searchDepth;
+    /**
+     * The game stops after this much wall-clock time
+     */
+    private final long budgetMillis;
+
+    /**
+     * @param name name of the fidelity for the console, as a single word
+     * @param maxTicks the game stops after this many ticks
+     * @param maxLevels the game stops when Pac-Man reaches the level after this many levels
+     * @param searchDepth the depth of the trees created by Minimax for both sides
+     * @param budgetMillis the game stops after this much wall-clock time
+     */
+    public Fidelity(String name, int maxTicks, int maxLevels, int searchDepth, long budgetMillis)
+    {
+        checkArgument(maxTicks > 0, "A game must be able to last a tick");
+        checkArgument(maxLevels > 0, "A game must be able to last a level");
+        checkArgument(searchDepth > 0, "The search depth must be positive");
+        checkArgument(budgetMillis > 0, "A game must have time to be played");
+        checkArgument(!name.isEmpty() && !name.contains(" "), "The name of a fidelity must be a single word");
+        this.name = name;
+        this.maxTicks = maxTicks;
+        this.maxLevels = maxLevels;
+        this.searchDepth = searchDepth;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * @param generation the number of a generation, starting from 0
+     * @return the fidelity of the fitness games of the generation
+     */
+    public static Fidelity forGeneration(int generation)
+    {
+        Fidelity fidelity = SCHEDULE_FIDELITIES[0];
+        for (int i = 0; i < SCHEDULE_GENERATIONS.length; i++) {
+            if (generation >= SCHEDULE_GENERATIONS[i]) {
+                fidelity = SCHEDULE_FIDELITIES[i];
+            }
+        }
+        return fidelity;
+    }
+
+    /**
+     * @return the name of the fidelity
+     */
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the number of ticks after which the game stops
+     */
+    int getMaxTicks()
+    {
+        return maxTicks;
+    }
+
+    /**
+     * @return the number of levels after which the game stops
+     */
+    int getMaxLevels()
+    {
+        return maxLevels;
+    }
+
+    /**
+     * @return the depth of the trees created by Minimax for both sides
+     */
+    int getSearchDepth()
+    {
+        return searchDepth;
+    }
+
+    /**
+     * @return the wall-clock time in milliseconds after which the game stops
+     */
+    long getBudgetMillis()
+    {
+        return budgetMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (ticks: " + (maxTicks == Integer.MAX_VALUE ? "all" : maxTicks) +
+                ", levels: " + (maxLevels == Integer.MAX_VALUE ? "all" : maxLevels) +
+                ", depth: " + searchDepth + ", budget: " + budgetMillis / 1000 + "s)";
+    }
+}
@@ -2,13 +2,15 @@ package genetic_algorithm;
 
 import entrants.ghosts.silvaw.MyGhostsMiniMax;
 import entrants.pacman.silvaw.MyPacManMiniMax;
-import pacman.Executor;
-import minimax.SettableHeuristic;
+import minimax.HeuristicCompiler;
+import pacman.game.Game;
 
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Contains methods used to determine the fitness of individuals in a population
+ * Contains methods used to determine the fitness of individuals in a population. The heuristics of both sides are
+ * compiled by {@link HeuristicCompiler}, since each is used for a whole game.
  */
 class FitnessCalculator
 {
@@ -19,13 +21,8 @@ class FitnessCalculator
      */
     static int getPacManFitness(Individual individual, Map<String, Integer> ghostGenes)
     {
-        Map<String, Integer> geneMap = individual.getGeneMap();
-
-        // Run the game at full speed with visuals off to get the score
-        Executor executor = new Executor(false, true);
-        return executor.runGame(
-                new MyPacManMiniMax(new SettableHeuristic(geneMap)),
-                new MyGhostsMiniMax(new SettableHeuristic(ghostGenes)), false, 0);
+        return getScore(individual.getGeneMap(), ghostGenes, Fidelity.FULL, ThreadLocalRandom.current().nextLong())
+                .getScore();
     }
 
     /**
@@ -35,11 +32,41 @@ class FitnessCalculator
      */
     static int getGhostFitness(Individual individual, Map<String, Integer> pacManGenes)
     {
-        Map<String, Integer> geneMap = individual.getGeneMap();
+        return 0 - getScore(pacManGenes, individual.getGeneMap(), Fidelity.FULL,
+                ThreadLocalRandom.current().nextLong()).getScore();
+    }
+
+    /**
+     * Plays a game at full speed with visuals off until it is over or the fidelity stops it. The wall-clock budget of
+     * the fidelity is checked between ticks.
+     *
+     * @param pacManGenes the genes of the Pac-Man
+     * @param ghostGenes the genes of the ghosts
+     * @param fidelity how much of the game to play and how deeply both sides search
+     * @param seed the seed of the game
+     * @return the score of the game when it stopped, which is the fitness of the Pac-Man and the negative of the
+     * fitness of the ghosts, and whether it ran out of time
+     */
+    static GameResult getScore(Map<String, Integer> pacManGenes, Map<String, Integer> ghostGenes, Fidelity fidelity,
+                        long seed)
+    {
+        MyPacManMiniMax pacMan = new MyPacManMiniMax(HeuristicCompiler.compile(pacManGenes));
+        MyGhostsMiniMax ghosts = new MyGhostsMiniMax(HeuristicCompiler.compile(ghostGenes));
+        pacMan.setFixedDepth(fidelity.getSearchDepth());
+        ghosts.setFixedDepth(fidelity.getSearchDepth());
 
-        Executor executor = new Executor(false, true);
-        return 0 - executor.runGame(
-                new MyPacManMiniMax(new SettableHeuristic(pacManGenes)),
-                new MyGhostsMiniMax(new SettableHeuristic(geneMap)), false, 0);
+        Game game = new Game(seed);
+        int startLevel = game.getCurrentLevel();
+        long deadline = System.currentTimeMillis() + fidelity.getBudgetMillis();
+        int ticks = 0;
+        while (!game.gameOver() && ticks < fidelity.getMaxTicks()
+                && game.getCurrentLevel() - startLevel < fidelity.getMaxLevels()) {
+            if (System.currentTimeMillis() > deadline) {
+                return new GameResult(game.getScore(), true);
+            }
+            game.advanceGame(pacMan.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
+            ticks++;
+        }
+        return new GameResult(game.getScore(), false);
     }
-}
\ No newline at end of file
+}
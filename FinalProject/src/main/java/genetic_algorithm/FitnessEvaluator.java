@@ -0,0 +1,292 @@
+package genetic_algorithm;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.sun.istack.internal.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Calculates the fitness of every individual of a generation which does not have one yet, before selection asks for
+ * it. The fitness games of both populations are run as one batch on a fixed number of worker threads, so a generation
+ * uses every core instead of playing one game at a time as each fitness is first needed. Each game is shared by a
+ * Pac-Man and a ghost where possible (see {@link MatchScheduler}).
+ *
+ * The games can also be played by worker processes (see {@link WorkerPool}), in which case each thread hands its game
+ * to a worker and waits for the score, so there is one thread per worker.
+ */
+public class FitnessEvaluator
+{
+    private final ExecutorService workers;
+    private final int threads;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    /**
+     * The worker processes which play the games, or null if they are played by the threads of this JVM
+     */
+    @Nullable
+    private final WorkerPool workerPool;
+
+    private int lastBatchGames = 0;
+    private int lastBatchIndividuals = 0;
+    private long lastBatchNanos = 0;
+    private long lastBatchCpuNanos = 0;
+    /**
+     * The number of games which have run out of time, whose scores are the scores reached when they were stopped
+     */
+    private final AtomicInteger timeouts = new AtomicInteger();
+    /**
+     * How much of each game is played
+     */
+    private volatile Fidelity fidelity = Fidelity.FULL;
+
+    /**
+     * @param threads the number of games to run at the same time
+     */
+    public FitnessEvaluator(int threads)
+    {
+        checkArgument(threads > 0, "There must be at least one thread");
+        this.threads = threads;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.workerPool = null;
+    }
+
+    /**
+     * @param workerPool the worker processes to play the games, one game per worker at the same time
+     */
+    public FitnessEvaluator(WorkerPool workerPool)
+    {
+        this.workerPool = checkNotNull(workerPool);
+        this.threads = workerPool.size();
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Runs the fitness games of every individual of both populations without a fitness, and waits for all of them to
+     * finish. The games are planned by {@link MatchScheduler}, so most games give a fitness to a Pac-Man and a ghost.
+     *
+     * @param pacManPopulation a population of Pac-Men
+     * @param ghostPopulation a population of ghosts
+     */
+    public void evaluate(Population pacManPopulation, Population ghostPopulation)
+    {
+        checkNotNull(pacManPopulation);
+        checkNotNull(ghostPopulation);
+        List<MatchScheduler.Match> matches = MatchScheduler.plan(pacManPopulation, ghostPopulation);
+
+        final AtomicLong cpuNanos = new AtomicLong();
+        List<Future<Integer>> scores = Lists.newArrayList();
+        long startTime = System.nanoTime();
+        for (final MatchScheduler.Match match : matches) {
+            scores.add(workers.submit(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    return playGame(match.pacMan.getGeneMap(), match.ghost.getGeneMap(), cpuNanos);
+                }
+            }));
+        }
+
+        // Fitnesses are only set once the whole batch has finished, on the thread which runs selection
+        int individuals = 0;
+        try {
+            for (int i = 0; i < matches.size(); i++) {
+                MatchScheduler.Match match = matches.get(i);
+                int score = scores.get(i).get();
+                if (match.creditsPacMan) {
+                    match.pacMan.setFitness(score);
+                    individuals++;
+                }
+                if (match.creditsGhost) {
+                    match.ghost.setFitness(0 - score);
+                    individuals++;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Throwables.propagate(e);
+        }
+
+        lastBatchGames = matches.size();
+        lastBatchIndividuals = individuals;
+        lastBatchNanos = System.nanoTime() - startTime;
+        lastBatchCpuNanos = cpuNanos.get();
+    }
+
+    /**
+     * Plays one more fitness game at the current fidelity for each of the individuals against a random individual of
+     * the opposing population, all at the same time, and adds the results to their fitness. The fitness of the
+     * opponents is not changed.
+     *
+     * @param individuals distinct individuals of the same population, with or without a fitness
+     * @param opposingPopulation the population to pick the opponents from
+     */
+    void playMoreGames(List<Individual> individuals, final Population opposingPopulation)
+    {
+        List<Future<Integer>> fitnesses = Lists.newArrayList();
+        for (final Individual individual : individuals) {
+            fitnesses.add(workers.submit(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    return playAgainstRandomOpponent(individual, opposingPopulation);
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < individuals.size(); i++) {
+                individuals.get(i).addFitnessSample(fitnesses.get(i).get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @param individual an individual
+     * @param opposingPopulation the population to pick the opponent from
+     * @return the fitness of the individual from one game at the current fidelity against a random individual of the
+     * opposing population
+     */
+    private int playAgainstRandomOpponent(Individual individual, Population opposingPopulation)
+    {
+        int randomIndex = ThreadLocalRandom.current().nextInt(0, opposingPopulation.size());
+        Map<String, Integer> opponentGenes = opposingPopulation.getIndividual(randomIndex).getGeneMap();
+        // The CPU time of these games is not part of any batch
+        AtomicLong cpuNanos = new AtomicLong();
+        if (opposingPopulation.isPacManPop()) {
+            return 0 - playGame(opponentGenes, individual.getGeneMap(), cpuNanos);
+        } else {
+            return playGame(individual.getGeneMap(), opponentGenes, cpuNanos);
+        }
+    }
+
+    /**
+     * Plays one game with a random seed at the current fidelity, on a worker process if there are any and otherwise on
+     * the calling thread
+     *
+     * @param pacManGenes the genes of the Pac-Man
+     * @param ghostGenes the genes of the ghosts
+     * @param cpuNanos the CPU time taken to play the game is added to this
+     * @return the score of the game when it stopped, which is counted as a timeout if it ran out of time
+     */
+    private int playGame(Map<String, Integer> pacManGenes, Map<String, Integer> ghostGenes, AtomicLong cpuNanos)
+    {
+        long seed = ThreadLocalRandom.current().nextLong();
+        GameResult result;
+        if (workerPool != null) {
+            result = workerPool.play(new FitnessJob(pacManGenes, ghostGenes, fidelity, seed), cpuNanos);
+        } else {
+            long startCpuTime = threadBean.getCurrentThreadCpuTime();
+            result = FitnessCalculator.getScore(pacManGenes, ghostGenes, fidelity, seed);
+            cpuNanos.addAndGet(threadBean.getCurrentThreadCpuTime() - startCpuTime);
+        }
+        if (result.isTimedOut()) {
+            timeouts.incrementAndGet();
+        }
+        return result.getScore();
+    }
+
+    /**
+     * @param fidelity how much of each game to play from now on, which should be the same for all of the games of a
+     *                 generation
+     */
+    public void setFidelity(Fidelity fidelity)
+    {
+        this.fidelity = checkNotNull(fidelity);
+    }
+
+    /**
+     * @return how much of each game is played
+     */
+    public Fidelity getFidelity()
+    {
+        return fidelity;
+    }
+
+    /**
+     * @return the number of individuals given a fitness by the last call to {@link #evaluate}
+     */
+    public int getLastBatchIndividuals()
+    {
+        return lastBatchIndividuals;
+    }
+
+    /**
+     * @return the number of games run by the last call to {@link #evaluate}
+     */
+    public int getLastBatchGames()
+    {
+        return lastBatchGames;
+    }
+
+    /**
+     * @return the number of games per second run by the last call to {@link #evaluate}
+     */
+    public double getLastBatchGamesPerSecond()
+    {
+        return lastBatchGames * 1e9 / Math.max(lastBatchNanos, 1);
+    }
+
+    /**
+     * @return the CPU time of the games of the last call to {@link #evaluate} as a fraction of the time all of the
+     * available cores could have worked during it, from 0 to 1. It is 0 if the JVM does not measure thread CPU time.
+     */
+    public double getLastBatchCoreUtilisation()
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return (double) Math.max(lastBatchCpuNanos, 0) / ((double) Math.max(lastBatchNanos, 1) * cores);
+    }
+
+    /**
+     * @return the number of games which have run out of time, which are scored by the score reached when they were
+     * stopped
+     */
+    public int getTimeouts()
+    {
+        return timeouts.get();
+    }
+
+    /**
+     * @return the worker processes which play the games, or null if they are played by the threads of this JVM
+     */
+    @Nullable
+    public WorkerPool getWorkerPool()
+    {
+        return workerPool;
+    }
+
+    /**
+     * @return the number of games run at the same time
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Stops the worker threads once they are finished, and the worker processes if there are any. No more populations
+     * can be evaluated afterwards.
+     */
+    public void shutdown()
+    {
+        workers.shutdown();
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package genetic_algorithm;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import minimax.FeatureWeightNames;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One fitness game to be played by a worker process: the genes of a Pac-Man and a ghost team, the fidelity of the game
+ * and its seed. A job is sent to a worker as a single line of text, which is the fidelity, the seed and then both
+ * weight vectors in feature ordinal order, all separated by spaces. The same job gives the same game unless it runs
+ * out of time, so a job lost with a worker can be played again by another one.
+ */
+public class FitnessJob
+{
+    private static final Splitter FIELD_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+    private static final Joiner FIELD_JOINER = Joiner.on(' ');
+    /**
+     * The number of fields of the fidelity at the start of a line
+     */
+    private static final int FIDELITY_FIELDS = 5;
+
+    private final Map<String, Integer> pacManGenes;
+    private final Map<String, Integer> ghostGenes;
+    private final Fidelity fidelity;
+    private final long seed;
+
+    /**
+     * @param pacManGenes the genes of the Pac-Man
+     * @param ghostGenes the genes of the ghosts
+     * @param fidelity how much of the game to play and how deeply both sides search
+     * @param seed the seed of the game
+     */
+    FitnessJob(Map<String, Integer> pacManGenes, Map<String, Integer> ghostGenes, Fidelity fidelity, long seed)
+    {
+        this.pacManGenes = checkNotNull(pacManGenes);
+        this.ghostGenes = checkNotNull(ghostGenes);
+        this.fidelity = checkNotNull(fidelity);
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the game of the job in this JVM
+     *
+     * @return the score of the game when it stopped, and whether it ran out of time
+     */
+    public GameResult play()
+    {
+        return FitnessCalculator.getScore(pacManGenes, ghostGenes, fidelity, seed);
+    }
+
+    /**
+     * @return how much of the game is played and how deeply both sides search
+     */
+    Fidelity getFidelity()
+    {
+        return fidelity;
+    }
+
+    /**
+     * @return the job as a single line of text, without the line break
+     */
+    String encode()
+    {
+        List<Object> fields = Lists.newArrayList();
+        fields.add(fidelity.getName());
+        fields.add(fidelity.getMaxTicks());
+        fields.add(fidelity.getMaxLevels());
+        fields.add(fidelity.getSearchDepth());
+        fields.add(fidelity.getBudgetMillis());
+        fields.add(seed);
+        for (int weight : FeatureWeightNames.compileWeights(pacManGenes)) {
+            fields.add(weight);
+        }
+        for (int weight : FeatureWeightNames.compileWeights(ghostGenes)) {
+            fields.add(weight);
+        }
+        return FIELD_JOINER.join(fields);
+    }
+
+    /**
+     * @param line a job created by {@link #encode}
+     * @return the job
+     */
+    public static FitnessJob decode(String line)
+    {
+        List<String> fields = FIELD_SPLITTER.splitToList(checkNotNull(line));
+        checkArgument(fields.size() == FIDELITY_FIELDS + 1 + 2 * FeatureWeightNames.NUM_FEATURES,
+                "A job must have a fidelity, a seed and two weight vectors: %s", line);
+        Fidelity fidelity = new Fidelity(fields.get(0), Integer.parseInt(fields.get(1)),
+                Integer.parseInt(fields.get(2)), Integer.parseInt(fields.get(3)), Long.parseLong(fields.get(4)));
+        long seed = Long.parseLong(fields.get(FIDELITY_FIELDS));
+        int pacManStart = FIDELITY_FIELDS + 1;
+        int ghostStart = pacManStart + FeatureWeightNames.NUM_FEATURES;
+        return new FitnessJob(decodeGenes(fields, pacManStart), decodeGenes(fields, ghostStart), fidelity, seed);
+    }
+
+    /**
+     * @param fields the fields of a job
+     * @param start the index of the first weight of a weight vector
+     * @return the genes of the weight vector, as a map of feature names to feature weights
+     */
+    private static Map<String, Integer> decodeGenes(List<String> fields, int start)
+    {
+        List<String> names = FeatureWeightNames.getNames();
+        Map<String, Integer> genes = Maps.newHashMap();
+        for (int i = 0; i < FeatureWeightNames.NUM_FEATURES; i++) {
+            genes.put(names.get(i), Integer.parseInt(fields.get(start + i)));
+        }
+        return genes;
+    }
+}
@@ -0,0 +1,38 @@
+package genetic_algorithm;
+
+/**
+ * How a fitness game ended: its score when it stopped, and whether it was stopped by the wall-clock budget of its
+ * fidelity instead of by the end of the game or by the tick and level limits of its fidelity. A game which runs out
+ * of time is not the same game when it is played again, since how far it gets depends on the machine.
+ */
+public class GameResult
+{
+    private final int score;
+    private final boolean timedOut;
+
+    /**
+     * @param score the score of the game when it stopped
+     * @param timedOut was the game stopped by the wall-clock budget of its fidelity?
+     */
+    GameResult(int score, boolean timedOut)
+    {
+        this.score = score;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * @return the score of the game when it stopped
+     */
+    public int getScore()
+    {
+        return score;
+    }
+
+    /**
+     * @return was the game stopped by the wall-clock budget of its fidelity?
+     */
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+}
@@ -1,5 +1,9 @@
 package genetic_algorithm;
 
+import com.google.common.collect.Lists;
+import com.sun.istack.internal.Nullable;
+
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static genetic_algorithm.Individual.MAX_WEIGHT;
@@ -23,6 +27,11 @@ public class GeneticAlgorithm
      * The chance that a given gene will mutate to a random value during evolution
      */
     private static final double MUTATION_RATE = 0.05;
+    /**
+     * Should tournaments be decided by racing (see {@link RacingTournament}) when a {@link FitnessEvaluator} is given
+     * to evolvePopulation? (Else, by the fitness from one game)
+     */
+    private static final boolean RACING = true;
 
     /**
      * @param pop population from which to select an individual
@@ -40,6 +49,28 @@ public class GeneticAlgorithm
         return tournament.getFittest(opposingPopulation);
     }
 
+    /**
+     * @param pop population from which to select individuals
+     * @param opposingPopulation opposing population to pick opponents from for the games of the races
+     * @param fitnessEvaluator runs the games of the races
+     * @param count the number of individuals to select
+     * @return individuals from pop selected using tournaments decided by racing, all raced at the same time
+     */
+    private static List<Individual> racingTournamentSelection(Population pop, Population opposingPopulation,
+                                                              FitnessEvaluator fitnessEvaluator, int count) {
+        List<List<Individual>> tournaments = Lists.newArrayList();
+        for (int t = 0; t < count; t++) {
+            List<Individual> tournament = Lists.newArrayList();
+            for (int i = 0; i < TOURNAMENT_SIZE; i++) {
+                int randomIndex = (int) (Math.random() * pop.size());
+                tournament.add(pop.getIndividual(randomIndex));
+            }
+            tournaments.add(tournament);
+        }
+
+        return RacingTournament.raceAll(tournaments, opposingPopulation, fitnessEvaluator);
+    }
+
     /**
      * @param indiv1 the first parent to share genes
      * @param indiv2 the second parent to share genes
@@ -82,14 +113,25 @@ public class GeneticAlgorithm
      * @return population like the given pop but evolved
      */
     public static Population evolvePopulation(Population pop, Population opposingPopulation) {
+        return evolvePopulation(pop, opposingPopulation, null);
+    }
+
+    /**
+     * @param pop produces a pop like this pop but evolved to the next generation
+     * @param opposingPopulation the enemy of the given pop that pop will be tested against to determine fitness
+     * @param fitnessEvaluator runs the extra games of tournaments decided by racing, or null to decide tournaments by
+     *                         the fitness from one game
+     * @return population like the given pop but evolved
+     */
+    public static Population evolvePopulation(Population pop, Population opposingPopulation,
+                                              @Nullable FitnessEvaluator fitnessEvaluator) {
         Population newPopulation = new Population(pop.size(), false, pop.isPacManPop());
 
         // Elitism keeps the fittest individual from a generation and moves it to the next generation unchanged
+        Individual mostFit = null;
         if (ELITISM) {
-            Individual mostFit = pop.getFittest(opposingPopulation);
-            // Fitness must be reset so it will be recalculated
-            mostFit.resetFitness();
-            newPopulation.saveIndiv(0, pop.getFittest(opposingPopulation));
+            mostFit = pop.getFittest(opposingPopulation);
+            newPopulation.saveIndiv(0, mostFit);
         }
 
         int offset;
@@ -98,10 +140,24 @@ public class GeneticAlgorithm
         } else {
             offset = 0;
         }
+        // The tournaments of every child are sampled first, so their races can share each batch of games
+        List<Individual> raceWinners = null;
+        if (RACING && fitnessEvaluator != null) {
+            raceWinners = racingTournamentSelection(pop, opposingPopulation, fitnessEvaluator,
+                    2 * (pop.size() - offset));
+        }
+
         // Produce a new population through crossover
         for (int i = offset; i < pop.size(); i++) {
-            Individual indiv1 = tournamentSelection(pop, opposingPopulation);
-            Individual indiv2 = tournamentSelection(pop, opposingPopulation);
+            Individual indiv1;
+            Individual indiv2;
+            if (raceWinners != null) {
+                indiv1 = raceWinners.get(2 * (i - offset));
+                indiv2 = raceWinners.get(2 * (i - offset) + 1);
+            } else {
+                indiv1 = tournamentSelection(pop, opposingPopulation);
+                indiv2 = tournamentSelection(pop, opposingPopulation);
+            }
             Individual babyIndividual = crossover(indiv1, indiv2, pop.isPacManPop());
             newPopulation.saveIndiv(i, babyIndividual);
         }
@@ -111,6 +167,11 @@ public class GeneticAlgorithm
             mutate(newPopulation.getIndividual(i));
         }
 
+        // Fitness must be reset so it will be recalculated. This is done after selection, which uses the fitness.
+        if (ELITISM) {
+            mostFit.resetFitness();
+        }
+
         return newPopulation;
     }
 }
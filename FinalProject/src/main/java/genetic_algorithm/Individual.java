@@ -31,6 +31,15 @@ public abstract class Individual
      * The fitness of this individual. It is cached here after it is calculated.
      */
     private Optional<Integer> fitness = Optional.absent();
+    /**
+     * The number of fitness games played since the genes last changed. The fitness is the mean score of these games.
+     */
+    private int fitnessGames = 0;
+    /**
+     * The sum of the scores of the fitness games, and the sum of their squares
+     */
+    private long fitnessSum = 0;
+    private double fitnessSquareSum = 0;
 
     /**
      * @param opposingPopulation enemy population to select a random individual of to test against
@@ -55,7 +64,7 @@ public abstract class Individual
     {
         genes.set(index, new Pair(genes.get(index).name, value));
         // Genes have changed so fitness needs to be recalculated
-        fitness = Optional.absent();
+        resetFitness();
     }
 
     /**
@@ -65,11 +74,68 @@ public abstract class Individual
     public int getFitness(Population opposingPopulation)
     {
         if (!fitness.isPresent()) {
-            fitness = Optional.of(getPersonalFitness(opposingPopulation));
+            setFitness(getPersonalFitness(opposingPopulation));
         }
         return fitness.get();
     }
 
+    /**
+     * @return has the fitness of this individual been calculated since its genes last changed?
+     */
+    boolean hasFitness()
+    {
+        return fitness.isPresent();
+    }
+
+    /**
+     * @param fitness the fitness of this individual, calculated by {@link #getPersonalFitness}
+     */
+    void setFitness(int fitness)
+    {
+        resetFitness();
+        addFitnessSample(fitness);
+    }
+
+    /**
+     * @param score the fitness from one more game, which the fitness becomes the mean of together with the fitness
+     *              from the earlier games
+     */
+    void addFitnessSample(int score)
+    {
+        fitnessGames++;
+        fitnessSum += score;
+        fitnessSquareSum += (double) score * score;
+        fitness = Optional.of((int) Math.round((double) fitnessSum / fitnessGames));
+    }
+
+    /**
+     * @return the number of games the fitness is the mean of
+     */
+    int getFitnessGames()
+    {
+        return fitnessGames;
+    }
+
+    /**
+     * @return the mean fitness of the fitness games, or 0 if there are none
+     */
+    double getFitnessMean()
+    {
+        return fitnessGames == 0 ? 0 : (double) fitnessSum / fitnessGames;
+    }
+
+    /**
+     * @return the sample variance of the fitness of the fitness games, or 0 if there are fewer than two
+     */
+    double getFitnessVariance()
+    {
+        if (fitnessGames < 2) {
+            return 0;
+        }
+        double mean = getFitnessMean();
+        return Math.max((fitnessSquareSum - fitnessGames * mean * mean) / (fitnessGames - 1), 0);
+    }
+
     /**
      * Set this individual to have random gene values in the allowed range
      */
@@ -121,6 +187,9 @@ public abstract class Individual
     void resetFitness()
     {
         fitness = Optional.absent();
+        fitnessGames = 0;
+        fitnessSum = 0;
+        fitnessSquareSum = 0;
     }
 
     @Override
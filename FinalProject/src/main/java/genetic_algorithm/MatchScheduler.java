@@ -0,0 +1,103 @@
+package genetic_algorithm;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Plans the fitness games of a generation so that one game gives a fitness to both a Pac-Man and a ghost. The
+ * individuals of each population without a fitness are shuffled and paired with each other. When one population has
+ * more of them, the rest are paired with random individuals of the other population, whose fitness is kept. So every
+ * individual still plays one game against a random opponent, but with about half as many games.
+ */
+class MatchScheduler
+{
+    /**
+     * A game between a Pac-Man and a ghost team, and which of them the score of the game is the fitness of
+     */
+    static class Match
+    {
+        final Individual pacMan;
+        final Individual ghost;
+        /**
+         * Is the score of the game the fitness of the Pac-Man?
+         */
+        final boolean creditsPacMan;
+        /**
+         * Is the negative score of the game the fitness of the ghost?
+         */
+        final boolean creditsGhost;
+
+        /**
+         * @param pacMan the Pac-Man which plays the game
+         * @param ghost the ghost team which plays the game
+         * @param creditsPacMan is the score of the game the fitness of the Pac-Man?
+         * @param creditsGhost is the negative score of the game the fitness of the ghost?
+         */
+        Match(Individual pacMan, Individual ghost, boolean creditsPacMan, boolean creditsGhost)
+        {
+            this.pacMan = checkNotNull(pacMan);
+            this.ghost = checkNotNull(ghost);
+            this.creditsPacMan = creditsPacMan;
+            this.creditsGhost = creditsGhost;
+        }
+    }
+
+    /**
+     * @param pacManPopulation a population of Pac-Men
+     * @param ghostPopulation a population of ghosts
+     * @return the games to play so that every individual of both populations without a fitness gets one
+     */
+    static List<Match> plan(Population pacManPopulation, Population ghostPopulation)
+    {
+        List<Individual> pacMen = unevaluated(pacManPopulation);
+        List<Individual> ghosts = unevaluated(ghostPopulation);
+        Collections.shuffle(pacMen, ThreadLocalRandom.current());
+        Collections.shuffle(ghosts, ThreadLocalRandom.current());
+
+        List<Match> matches = Lists.newArrayList();
+        int pairs = Math.min(pacMen.size(), ghosts.size());
+        for (int i = 0; i < pairs; i++) {
+            matches.add(new Match(pacMen.get(i), ghosts.get(i), true, true));
+        }
+        for (int i = pairs; i < pacMen.size(); i++) {
+            matches.add(new Match(pacMen.get(i), randomIndividual(ghostPopulation), true, false));
+        }
+        for (int i = pairs; i < ghosts.size(); i++) {
+            matches.add(new Match(randomIndividual(pacManPopulation), ghosts.get(i), false, true));
+        }
+        return matches;
+    }
+
+    /**
+     * @param population a population
+     * @return the individuals of the population without a fitness, with each individual only once
+     */
+    private static List<Individual> unevaluated(Population population)
+    {
+        Map<Individual, Boolean> seen = new IdentityHashMap<>();
+        List<Individual> individuals = Lists.newArrayList();
+        for (int i = 0; i < population.size(); i++) {
+            Individual individual = population.getIndividual(i);
+            if (!individual.hasFitness() && seen.put(individual, true) == null) {
+                individuals.add(individual);
+            }
+        }
+        return individuals;
+    }
+
+    /**
+     * @param population a population
+     * @return a random individual of the population
+     */
+    private static Individual randomIndividual(Population population)
+    {
+        return population.getIndividual(ThreadLocalRandom.current().nextInt(0, population.size()));
+    }
+}
@@ -0,0 +1,229 @@
+package genetic_algorithm;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decides a selection tournament by racing: instead of comparing the fitness from a single game, or playing a fixed
+ * number of games for every contestant, the contestants play one more game each per round, and a contestant is
+ * dropped as soon as the upper confidence bound of its mean fitness is below the lower confidence bound of another
+ * contestant, since it can then no longer win. The bounds are 95% confidence intervals of Student's t distribution,
+ * since the variance of a contestant's fitness is estimated from only a few games. The race ends when one contestant
+ * is left or every contestant left has played MAX_GAMES games, and the contestant with the highest mean fitness wins.
+ * The games played stay part of the fitness of the individuals, which can be in more than one tournament.
+ *
+ * All of the tournaments of a generation are raced at the same time, so each round is one batch of games for the
+ * whole generation. Every elimination is printed to the console, as is the number of games each tournament saved
+ * compared to playing MAX_GAMES games for each contestant, and the number of rounds and games of the generation.
+ */
+class RacingTournament
+{
+    /**
+     * The most fitness games a contestant plays
+     */
+    static final int MAX_GAMES = 10;
+    /**
+     * The number of games a contestant must have played before its confidence bounds are used
+     */
+    private static final int MIN_GAMES = 3;
+    /**
+     * The number of standard errors from the mean fitness to each confidence bound for a 95% confidence interval of a
+     * normal distribution, which the t distribution approaches with many games
+     */
+    private static final double CONFIDENCE_Z = 1.96;
+    /**
+     * The number of standard errors from the mean fitness to each confidence bound for a 95% confidence interval of
+     * Student's t distribution, indexed by degrees of freedom (the number of games minus one) from 1
+     */
+    private static final double[] CONFIDENCE_T = {Double.NaN,
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    /**
+     * Races the tournaments side by side: each round, the contestants which need another game in every tournament
+     * still running play it in a single batch, so the games of the whole generation are played at the same time
+     * instead of a handful at a time. An individual in several tournaments plays one game per round, which counts
+     * towards each of them.
+     *
+     * @param tournaments the individuals in each tournament, which need not have a fitness yet
+     * @param opposingPopulation the population to pick opponents from for the games
+     * @param fitnessEvaluator runs the games of each round at the same time
+     * @return the winner of each tournament, in the order of the tournaments
+     */
+    static List<Individual> raceAll(List<List<Individual>> tournaments, Population opposingPopulation,
+                                    FitnessEvaluator fitnessEvaluator)
+    {
+        checkNotNull(opposingPopulation);
+        checkNotNull(fitnessEvaluator);
+
+        // An individual may be drawn into a tournament more than once, but only races once in it
+        List<List<Individual>> contestantsOf = Lists.newArrayList();
+        List<List<Individual>> races = Lists.newArrayList();
+        for (List<Individual> tournament : tournaments) {
+            checkArgument(!tournament.isEmpty(), "There must be at least one contestant");
+            Map<Individual, Boolean> seen = new IdentityHashMap<>();
+            List<Individual> contestants = Lists.newArrayList();
+            for (Individual contestant : tournament) {
+                if (seen.put(contestant, true) == null) {
+                    contestants.add(contestant);
+                }
+            }
+            contestantsOf.add(contestants);
+            races.add(Lists.newArrayList(contestants));
+        }
+
+        Individual[] winners = new Individual[races.size()];
+        int rounds = 0;
+        int gamesPlayed = 0;
+        int largestRound = 0;
+        while (true) {
+            Map<Individual, Boolean> batched = new IdentityHashMap<>();
+            List<Individual> batch = Lists.newArrayList();
+            for (int i = 0; i < races.size(); i++) {
+                if (winners[i] != null) {
+                    continue;
+                }
+                List<Individual> racing = races.get(i);
+                eliminate(racing);
+                List<Individual> needGames = Lists.newArrayList();
+                for (Individual individual : racing) {
+                    if (individual.getFitnessGames() < MAX_GAMES) {
+                        needGames.add(individual);
+                    }
+                }
+                // A contestant left alone still needs a first game, since the population uses its fitness
+                if (needGames.isEmpty() || (racing.size() == 1 && racing.get(0).getFitnessGames() > 0)) {
+                    winners[i] = finish(racing, contestantsOf.get(i));
+                    continue;
+                }
+                for (Individual individual : needGames) {
+                    if (batched.put(individual, true) == null) {
+                        batch.add(individual);
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            fitnessEvaluator.playMoreGames(batch, opposingPopulation);
+            rounds++;
+            gamesPlayed += batch.size();
+            largestRound = Math.max(largestRound, batch.size());
+        }
+
+        System.out.println("Racing- Tournaments: " + races.size() +
+                " Rounds: " + rounds +
+                " Games played: " + gamesPlayed +
+                " Largest round: " + largestRound);
+        return Arrays.asList(winners);
+    }
+
+    /**
+     * Picks the winner of a race which has ended and prints it
+     *
+     * @param racing the contestants left in the race
+     * @param contestants every contestant of the race
+     * @return the contestant left with the highest mean fitness
+     */
+    private static Individual finish(List<Individual> racing, List<Individual> contestants)
+    {
+        Individual winner = racing.get(0);
+        for (Individual individual : racing) {
+            if (individual.getFitnessMean() > winner.getFitnessMean()) {
+                winner = individual;
+            }
+        }
+
+        int gamesSaved = 0;
+        for (Individual individual : contestants) {
+            gamesSaved += Math.max(MAX_GAMES - individual.getFitnessGames(), 0);
+        }
+        System.out.println("Racing- Winner: " + String.format("%.1f", winner.getFitnessMean()) +
+                " after " + winner.getFitnessGames() + " games" +
+                " Contestants: " + contestants.size() +
+                " Games saved: " + gamesSaved);
+        return winner;
+    }
+
+    /**
+     * Removes the contestants whose upper confidence bound is below the highest lower confidence bound, printing each
+     * decision
+     *
+     * @param racing the contestants still in the race
+     */
+    private static void eliminate(List<Individual> racing)
+    {
+        Individual leader = null;
+        double bestLowerBound = Double.NEGATIVE_INFINITY;
+        for (Individual individual : racing) {
+            if (individual.getFitnessGames() >= MIN_GAMES && lowerBound(individual) > bestLowerBound) {
+                bestLowerBound = lowerBound(individual);
+                leader = individual;
+            }
+        }
+        if (leader == null) {
+            return;
+        }
+
+        for (int i = racing.size() - 1; i >= 0; i--) {
+            Individual individual = racing.get(i);
+            if (individual.getFitnessGames() >= MIN_GAMES && upperBound(individual) < bestLowerBound) {
+                racing.remove(i);
+                System.out.println("Racing- Eliminated: " + String.format("%.1f", individual.getFitnessMean()) +
+                        " after " + individual.getFitnessGames() + " games" +
+                        " Upper bound: " + String.format("%.1f", upperBound(individual)) +
+                        " Leader lower bound: " + String.format("%.1f", bestLowerBound) +
+                        " Games saved: " + (MAX_GAMES - individual.getFitnessGames()));
+            }
+        }
+    }
+
+    /**
+     * @param individual an individual with a fitness
+     * @return the lower confidence bound of the mean fitness of the individual
+     */
+    private static double lowerBound(Individual individual)
+    {
+        return individual.getFitnessMean() - confidenceT(individual.getFitnessGames() - 1) * standardError(individual);
+    }
+
+    /**
+     * @param individual an individual with a fitness
+     * @return the upper confidence bound of the mean fitness of the individual
+     */
+    private static double upperBound(Individual individual)
+    {
+        return individual.getFitnessMean() + confidenceT(individual.getFitnessGames() - 1) * standardError(individual);
+    }
+
+    /**
+     * @param degreesOfFreedom the number of games minus one, which is at least 1
+     * @return the number of standard errors from the mean to each bound of a 95% confidence interval
+     */
+    private static double confidenceT(int degreesOfFreedom)
+    {
+        if (degreesOfFreedom < CONFIDENCE_T.length) {
+            return CONFIDENCE_T[degreesOfFreedom];
+        }
+        // Beyond the table, the first term of the Cornish-Fisher expansion of the t quantile is accurate to 0.01
+        double z = CONFIDENCE_Z;
+        return z + (z * z * z + z) / (4.0 * degreesOfFreedom);
+    }
+
+    /**
+     * @param individual an individual with a fitness
+     * @return the standard error of the mean fitness of the individual
+     */
+    private static double standardError(Individual individual)
+    {
+        return Math.sqrt(individual.getFitnessVariance() / individual.getFitnessGames());
+    }
+}
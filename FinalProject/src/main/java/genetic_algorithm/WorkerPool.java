@@ -0,0 +1,328 @@
+package genetic_algorithm;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.sun.istack.internal.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Plays fitness games in worker processes on this machine instead of in this JVM. Each worker is a JVM running
+ * FitnessWorker with the class path of this JVM, which reads one {@link FitnessJob} per line on its standard input and
+ * writes the score of the game, the CPU time it took and whether it ran out of time on its standard output. A worker
+ * plays one game at a time, so the number of games played at the same time is the number of workers, and the workers
+ * share nothing but the pipes to this JVM.
+ *
+ * When a worker exits or its pipes break, or it does not reply within the wall-clock budget of the game plus
+ * REPLY_SLACK_MILLIS, it is restarted and its job is played again by the next free worker, with the same seed. A job
+ * which is lost MAX_ATTEMPTS times stops the evolution, since it would most likely be lost again. A worker whose JVM
+ * cannot be started again stays in the pool without one, so the pool never shrinks, and is started again when it is
+ * next given a job.
+ * Workers exit by themselves when their standard input is closed, by {@link #shutdown} or by this JVM exiting.
+ */
+public class WorkerPool
+{
+    /**
+     * The class run by each worker, which is in the default package
+     */
+    private static final String WORKER_MAIN_CLASS = "FitnessWorker";
+    /**
+     * The most times a job is sent to a worker before giving up on it
+     */
+    private static final int MAX_ATTEMPTS = 3;
+    /**
+     * How much longer than the wall-clock budget of its game a worker may take to reply, for starting the worker JVM,
+     * compiling the heuristics and finishing the tick which ran out of time
+     */
+    private static final long REPLY_SLACK_MILLIS = 60 * 1000;
+    private static final Splitter REPLY_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+    /**
+     * The workers which are not playing a game
+     */
+    private final BlockingQueue<WorkerProcess> idleWorkers = new LinkedBlockingQueue<>();
+    private final int size;
+    private final AtomicInteger restarts = new AtomicInteger();
+    private final AtomicInteger failedRestarts = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+
+    /**
+     * Starts the workers
+     *
+     * @param size the number of workers
+     */
+    public WorkerPool(int size)
+    {
+        checkArgument(size > 0, "There must be at least one worker");
+        this.size = size;
+        for (int i = 0; i < size; i++) {
+            WorkerProcess worker = new WorkerProcess(i);
+            try {
+                worker.start();
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Plays a game on the next free worker, and waits for its score. Can be called from many threads at the same time,
+     * and a thread waits while every worker is busy.
+     *
+     * @param job the game to play
+     * @param cpuNanos the CPU time the worker took to play the game is added to this
+     * @return the score of the game when it stopped, and whether it ran out of time
+     */
+    GameResult play(FitnessJob job, AtomicLong cpuNanos)
+    {
+        checkNotNull(job);
+        String line = job.encode();
+        long timeoutMillis = job.getFidelity().getBudgetMillis() + REPLY_SLACK_MILLIS;
+        IOException restartFailure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            WorkerProcess worker = takeIdleWorker();
+            String reply;
+            String lost = "was lost during a game";
+            try {
+                reply = worker.send(line, timeoutMillis);
+            } catch (IOException e) {
+                reply = null;
+            } catch (TimeoutException e) {
+                reply = null;
+                lost = "did not reply within " + timeoutMillis / 1000 + "s";
+            }
+            if (reply != null) {
+                idleWorkers.add(worker);
+                List<String> fields = REPLY_SPLITTER.splitToList(reply);
+                checkArgument(fields.size() == 3, "A worker must reply with a score, a CPU time and a timeout: %s",
+                        reply);
+                cpuNanos.addAndGet(Math.max(Long.parseLong(fields.get(1)), 0));
+                return new GameResult(Integer.parseInt(fields.get(0)), Boolean.parseBoolean(fields.get(2)));
+            }
+
+            // The worker was lost with the job or is stuck on it, so a new one takes its place and the job is tried
+            // again. If the new JVM cannot be started, the worker is still put back so that no thread waits forever
+            // for it, and sending it the next job fails and restarts it again.
+            try {
+                worker.restart();
+                restarts.incrementAndGet();
+            } catch (IOException e) {
+                failedRestarts.incrementAndGet();
+                restartFailure = e;
+                System.out.println("Worker " + worker.getId() + " could not be restarted: " + e.getMessage());
+            }
+            idleWorkers.add(worker);
+            if (attempt < MAX_ATTEMPTS) {
+                retries.incrementAndGet();
+                System.out.println("Worker " + worker.getId() + " " + lost + ", which will be played again" +
+                        " (attempt " + (attempt + 1) + " of " + MAX_ATTEMPTS + ")");
+            }
+        }
+        throw new IllegalStateException("A fitness game was lost with a worker " + MAX_ATTEMPTS + " times",
+                restartFailure);
+    }
+
+    /**
+     * @return a worker which is not playing a game, waiting for one if needed
+     */
+    private WorkerProcess takeIdleWorker()
+    {
+        try {
+            return idleWorkers.take();
+        } catch (InterruptedException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @return the number of workers
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of times a worker has been restarted
+     */
+    public int getRestarts()
+    {
+        return restarts.get();
+    }
+
+    /**
+     * @return the number of times a worker JVM could not be started again after its worker was lost
+     */
+    public int getFailedRestarts()
+    {
+        return failedRestarts.get();
+    }
+
+    /**
+     * @return the number of games which have been played again after their worker was lost or did not reply in time
+     */
+    public int getRetries()
+    {
+        return retries.get();
+    }
+
+    /**
+     * Closes the standard input of every idle worker, which makes it exit. Must only be called once no games are being
+     * played.
+     */
+    public void shutdown()
+    {
+        WorkerProcess worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * A worker JVM and the pipes to it
+     */
+    private static class WorkerProcess
+    {
+        private final int id;
+        /**
+         * The worker JVM, or null if it could not be started
+         */
+        @Nullable
+        private Process process;
+        private BufferedWriter toWorker;
+        /**
+         * The lines written by the worker, read by a thread of their own so a reply can be waited for with a timeout.
+         * Absent once the worker has closed its standard output.
+         */
+        private BlockingQueue<Optional<String>> fromWorker;
+
+        /**
+         * @param id the number of the worker, for the console
+         */
+        WorkerProcess(int id)
+        {
+            this.id = id;
+        }
+
+        /**
+         * Starts the worker JVM with the class path of this JVM, and a daemon thread which reads its replies. What the
+         * worker prints to its standard error is printed to the standard error of this JVM.
+         *
+         * @throws IOException if the worker JVM could not be started
+         */
+        void start() throws IOException
+        {
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    WORKER_MAIN_CLASS);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            process = builder.start();
+            toWorker = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            // Each JVM gets its own queue, so nothing from a worker which has been restarted is taken as a reply
+            final BufferedReader replies =
+                    new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            final BlockingQueue<Optional<String>> queue = new LinkedBlockingQueue<>();
+            fromWorker = queue;
+            Thread reader = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        String line;
+                        while ((line = replies.readLine()) != null) {
+                            queue.add(Optional.of(line));
+                        }
+                    } catch (IOException ignored) {
+                        // The worker has exited or been stopped
+                    }
+                    queue.add(Optional.<String>absent());
+                }
+            }, "WorkerPool reader " + id);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Stops the worker JVM, whatever it is doing, and starts a new one
+         *
+         * @throws IOException if the new worker JVM could not be started, which leaves the worker without a JVM
+         */
+        void restart() throws IOException
+        {
+            if (process != null) {
+                process.destroy();
+                process = null;
+            }
+            start();
+        }
+
+        /**
+         * Closes the standard input of the worker JVM, which makes it exit once it has finished its game
+         */
+        void stop()
+        {
+            if (process == null) {
+                return;
+            }
+            try {
+                toWorker.close();
+            } catch (IOException ignored) {
+                // The worker has already exited
+            }
+        }
+
+        /**
+         * @param line a job to send to the worker
+         * @param timeoutMillis the most time to wait for the reply
+         * @return the reply of the worker, or null if the worker exited before replying
+         * @throws IOException if a pipe to the worker is broken or the worker has no JVM
+         * @throws TimeoutException if the worker did not reply in time
+         */
+        String send(String line, long timeoutMillis) throws IOException, TimeoutException
+        {
+            if (process == null) {
+                throw new IOException("Worker " + id + " has no JVM");
+            }
+            toWorker.write(line);
+            toWorker.newLine();
+            toWorker.flush();
+            Optional<String> reply;
+            try {
+                reply = fromWorker.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw Throwables.propagate(e);
+            }
+            if (reply == null) {
+                throw new TimeoutException();
+            }
+            return reply.orNull();
+        }
+
+        /**
+         * @return the number of the worker
+         */
+        int getId()
+        {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package minimax;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.primitives.Longs;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Writes the statistics of every search to a CSV file, one row per search. The cutoffs at each ply are written to a
+ * single column, separated by semicolons.
+ */
+public class CsvMetricsSink implements SearchMetricsSink, Closeable
+{
+    private static final String HEADER = "tick,isPacMan,depth,nodes,leaves,cutoffs,firstMoveCutoffs,cutoffsByPly," +
+            "branchingFactor,ttHits,ttMisses,ttCutoffs,stateCopies,quiescenceExtensions,quiescenceNodes,quiescenceMs," +
+            "heuristicMs,wallMs";
+
+    private final BufferedWriter writer;
+
+    /**
+     * @param filename the file to write to, which is replaced if it exists
+     */
+    public CsvMetricsSink(String filename)
+    {
+        try {
+            writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8);
+            writer.write(HEADER);
+            writer.newLine();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @param statistics the statistics of a search, which are written as a row and flushed to the file
+     */
+    @Override
+    public synchronized void record(SearchStatistics statistics)
+    {
+        try {
+            writer.write(statistics.getGameTick() + "," +
+                    statistics.isPacMan() + "," +
+                    statistics.getDepth() + "," +
+                    statistics.getNodesSearched() + "," +
+                    statistics.getLeavesEvaluated() + "," +
+                    statistics.getCutoffs() + "," +
+                    statistics.getFirstMoveCutoffs() + "," +
+                    Joiner.on(';').join(Longs.asList(statistics.getCutoffsByPly())) + "," +
+                    decimal(statistics.getEffectiveBranchingFactor()) + "," +
+                    statistics.getTranspositionHits() + "," +
+                    statistics.getTranspositionMisses() + "," +
+                    statistics.getTranspositionCutoffs() + "," +
+                    statistics.getStateCopies() + "," +
+                    statistics.getQuiescenceExtensions() + "," +
+                    statistics.getQuiescenceNodes() + "," +
+                    decimal(statistics.getQuiescenceNanos() / 1e6) + "," +
+                    decimal(statistics.getHeuristicNanos() / 1e6) + "," +
+                    decimal(statistics.getWallNanos() / 1e6));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @param value a number
+     * @return the number with three decimals and a decimal point, whatever the default locale
+     */
+    private static String decimal(double value)
+    {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        writer.close();
+    }
+}
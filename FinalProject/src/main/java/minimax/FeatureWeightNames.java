@@ -6,63 +6,126 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
- * Contains a list of all the feature weight names used with {@link SettableHeuristic}
+ * Contains a list of all the feature weight names used with {@link SettableHeuristic}. The position of each name in
+ * the list is the ordinal of its feature, which indexes the weight vectors made by {@link #compileWeights}.
  */
 public class FeatureWeightNames
 {
+    // The ordinal of each feature, which is the index of its name in NAMES
+    public static final int PAC_MAN_EATEN = 0;
+    public static final int NUM_ACTIVE_PILLS = 1;
+    public static final int NUM_ACTIVE_POWER_PILLS = 2;
+    public static final int SCORE = 3;
+    public static final int PAC_MAN_DISTANCE_TO_UNEDIBLE_BLINKY = 4;
+    public static final int PAC_MAN_DISTANCE_TO_UNEDIBLE_INKY = 5;
+    public static final int PAC_MAN_DISTANCE_TO_UNEDIBLE_PINKY = 6;
+    public static final int PAC_MAN_DISTANCE_TO_UNEDIBLE_SUE = 7;
+    public static final int PAC_MAN_NEAREST_GHOST_EDIBLE = 8;
+    public static final int PAC_MAN_DISTANCE_TO_NEAREST_GHOST_UNDER_20 = 9;
+    public static final int PAC_MAN_NEAREST_GHOST_EDIBLE_AND_UNDER_40 = 10;
+    public static final int PAC_MAN_DISTANCE_TO_NEAREST_PILL = 11;
+    public static final int NUM_TOTAL_ACTIVE_PILLS = 12;
+    public static final int NUM_LEVEL = 13;
+    public static final int LEVEL_TIME = 14;
+    public static final int TOTAL_GAME_TIME = 15;
+    public static final int NUM_GHOSTS_EATEN = 16;
+    public static final int LIVES_REMAINING = 17;
+    public static final int GAME_OVER = 18;
+    public static final int WAS_PILL_EATEN = 19;
+    public static final int WAS_POWER_PILL_EATEN = 20;
+    public static final int PAC_MAN_NUM_POSSIBLE_MOVES = 21;
+    public static final int BLINKY_NUM_POSSIBLE_MOVES = 22;
+    public static final int INKY_NUM_POSSIBLE_MOVES = 23;
+    public static final int PINKY_NUM_POSSIBLE_MOVES = 24;
+    public static final int SUE_NUM_POSSIBLE_MOVES = 25;
+    public static final int DISTANCE_TO_NEXT_NEAREST_PILL_MORE_THAN_10_IF_PILL_JUST_EATEN = 26;
+    public static final int DISTANCE_TO_NEAREST_PILL_ABOVE_FIVE = 27;
+    public static final int PAC_MAN_LAST_MOVE_LEFT = 28;
+    public static final int PAC_MAN_LAST_MOVE_DOWN = 29;
+    public static final int PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_10 = 30;
+    public static final int PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_5 = 31;
+    public static final int LIKELY_NOT_STUCK = 32;
+    public static final int REVERSED_DIRECTION = 33;
+    public static final int PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_10 = 34;
+    public static final int PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_5 = 35;
     /**
-     * @return list of the names of all of the features in {@link SettableHeuristic}
+     * The number of features, which is the length of a weight vector
      */
-    public static List<String> getNames()
-    {
-        List<String> names = Lists.newArrayList();
+    public static final int NUM_FEATURES = 36;
 
-        names.add("pacManEaten");
-        names.add("numActivePills");
-        names.add("numActivePowerPills");
-        names.add("score");
-        names.add("pacManDistanceToUnedibleBlinky");
-        names.add("pacManDistanceToUnedibleInky");
-        names.add("pacManDistanceToUnediblePinky");
-        names.add("pacManDistanceToUnedibleSue");
-        //names.add("pacManDistanceToNearestGhostIfNotEdible");
-        names.add("pacManNearestGhostEdible");
-        names.add("pacManDistanceToNearestGhostUnder20");
-        names.add("pacManNearestGhostEdibleAndUnder40");
-        names.add("pacManDistanceToNearestPill");
+    /**
+     * The names of the features, indexed by feature ordinal
+     */
+    private static final String[] NAMES = {
+            "pacManEaten",
+            "numActivePills",
+            "numActivePowerPills",
+            "score",
+            "pacManDistanceToUnedibleBlinky",
+            "pacManDistanceToUnedibleInky",
+            "pacManDistanceToUnediblePinky",
+            "pacManDistanceToUnedibleSue",
+            //"pacManDistanceToNearestGhostIfNotEdible",
+            "pacManNearestGhostEdible",
+            "pacManDistanceToNearestGhostUnder20",
+            "pacManNearestGhostEdibleAndUnder40",
+            "pacManDistanceToNearestPill",
 
-        names.add("numTotalActivePills");
-        names.add("numLevel");
-        names.add("levelTime");
-        names.add("totalGameTime");
-        names.add("numGhostsEaten");
-        names.add("livesRemaining");
-        names.add("gameOver");
-        names.add("wasPillEaten");
-        names.add("wasPowerPillEaten");
+            "numTotalActivePills",
+            "numLevel",
+            "levelTime",
+            "totalGameTime",
+            "numGhostsEaten",
+            "livesRemaining",
+            "gameOver",
+            "wasPillEaten",
+            "wasPowerPillEaten",
 
-        names.add("pacManNumPossibleMoves");
-        names.add("blinkyNumPossibleMoves");
-        names.add("inkyNumPossibleMoves");
-        names.add("pinkyNumPossibleMoves");
-        names.add("sueNumPossibleMoves");
-        names.add("distanceToNextNearestPillMOreThan10IfPillJustEaten");
-        names.add("distanceToNearestPillAboveFive");
+            "pacManNumPossibleMoves",
+            "blinkyNumPossibleMoves",
+            "inkyNumPossibleMoves",
+            "pinkyNumPossibleMoves",
+            "sueNumPossibleMoves",
+            "distanceToNextNearestPillMOreThan10IfPillJustEaten",
+            "distanceToNearestPillAboveFive",
 
-        names.add("pacManLastMoveLeft");
-        names.add("pacManLastMoveDown");
+            "pacManLastMoveLeft",
+            "pacManLastMoveDown",
 
-        names.add("pacManDistanceToNearestGhostIfUnder10");
-        names.add("pacManDistanceToNearestGhostIfUnder5");
+            "pacManDistanceToNearestGhostIfUnder10",
+            "pacManDistanceToNearestGhostIfUnder5",
 
-        names.add("likelyNotStuck");
-        names.add("reversedDirection");
+            "likelyNotStuck",
+            "reversedDirection",
 
-        names.add("pacManDistanceToNearestGhostEdibleIfUnder10");
-        names.add("pacManDistanceToNearestGhostEdibleIfUnder5");
+            "pacManDistanceToNearestGhostEdibleIfUnder10",
+            "pacManDistanceToNearestGhostEdibleIfUnder5"
+    };
 
-        return names;
+    /**
+     * @return list of the names of all of the features in {@link SettableHeuristic}, in feature ordinal order
+     */
+    public static List<String> getNames()
+    {
+        return Lists.newArrayList(NAMES);
+    }
+
+    /**
+     * @param featureToWeights map of feature names to feature weights, which has a weight for every feature
+     * @return the weights as a vector indexed by feature ordinal
+     */
+    public static int[] compileWeights(Map<String, Integer> featureToWeights)
+    {
+        int[] weights = new int[NUM_FEATURES];
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            Integer weight = featureToWeights.get(NAMES[i]);
+            checkArgument(weight != null, "There is no weight for the feature %s", NAMES[i]);
+            weights[i] = weight;
+        }
+        return weights;
     }
 
     /**
@@ -2,8 +2,6 @@ package minimax;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
-import pacman.game.Constants;
-import pacman.game.Game;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -13,7 +11,6 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -76,8 +73,8 @@ public class FileSettableHeuristic implements Heuristic
     }
 
     @Override
-    public int heuristicVal(Game game, Queue<Constants.MOVE> pacManMoveHistory)
+    public int heuristicVal(SimulationState state, long pacManMoveHistory)
     {
-        return settableHeuristic.heuristicVal(game, pacManMoveHistory);
+        return settableHeuristic.heuristicVal(state, pacManMoveHistory);
     }
 }
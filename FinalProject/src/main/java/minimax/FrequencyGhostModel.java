@@ -0,0 +1,143 @@
+package minimax;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Ghost model learned from recorded games. Whenever a ghost could choose between moves, the choice is recorded in a
+ * frequency table by the kind of each move: whether it takes the ghost closer to Pac-Man and whether the ghost was
+ * edible. The weight of a move is how often moves of its kind were chosen when they were available, so a model of
+ * ghosts which chase Pac-Man gives a high weight to moves towards Pac-Man unless the ghost is edible.
+ */
+public class FrequencyGhostModel implements GhostModel
+{
+    private static final int NUM_GHOSTS = GHOST.values().length;
+    /**
+     * The number of kinds of move: (not edible, edible) x (not towards Pac-Man, towards Pac-Man)
+     */
+    private static final int NUM_MOVE_KINDS = 4;
+
+    /**
+     * How often a move of each kind was chosen, indexed by [ghost ordinal][move kind]
+     */
+    private final long[][] timesChosen = new long[NUM_GHOSTS][NUM_MOVE_KINDS];
+    /**
+     * How often a move of each kind could have been chosen, indexed by [ghost ordinal][move kind]
+     */
+    private final long[][] timesAvailable = new long[NUM_GHOSTS][NUM_MOVE_KINDS];
+
+    /**
+     * Records the choices of the ghosts which had more than one possible move
+     *
+     * @param game the game before the ghosts made their moves
+     * @param ghostMoves the moves the ghosts chose
+     */
+    public void recordMoves(Game game, Map<GHOST, MOVE> ghostMoves)
+    {
+        for (GHOST ghost : GHOST.values()) {
+            MOVE chosenMove = ghostMoves.get(ghost);
+            int ghostNode = game.getGhostCurrentNodeIndex(ghost);
+            if (chosenMove == null || game.getGhostLairTime(ghost) > 0) {
+                continue;
+            }
+            MOVE[] possibleMoves = game.getPossibleMoves(ghostNode, game.getGhostLastMoveMade(ghost));
+            if (possibleMoves.length < 2) {
+                continue;
+            }
+
+            int pacManNode = game.getPacmanCurrentNodeIndex();
+            int distance = game.getShortestPathDistance(ghostNode, pacManNode);
+            boolean isEdible = game.getGhostEdibleTime(ghost) > 0;
+            for (MOVE move : possibleMoves) {
+                boolean isTowardsPacMan = game.getShortestPathDistance(game.getNeighbour(ghostNode, move),
+                        pacManNode) < distance;
+                int kind = moveKind(isEdible, isTowardsPacMan);
+                timesAvailable[ghost.ordinal()][kind]++;
+                if (move == chosenMove) {
+                    timesChosen[ghost.ordinal()][kind]++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public double getMoveWeight(SimulationState state, GHOST ghost, MOVE move)
+    {
+        int ghostNode = state.getGhostCurrentNodeIndex(ghost);
+        int pacManNode = state.getPacmanCurrentNodeIndex();
+        int nextNode = state.getNeighbour(ghostNode, move);
+        boolean isTowardsPacMan = nextNode != -1 && state.getShortestPathDistance(nextNode, pacManNode) <
+                state.getShortestPathDistance(ghostNode, pacManNode);
+        int kind = moveKind(state.isGhostEdible(ghost), isTowardsPacMan);
+
+        // Add-one smoothing so that kinds which were never seen still have a chance
+        return (timesChosen[ghost.ordinal()][kind] + 1.0) / (timesAvailable[ghost.ordinal()][kind] + 2.0);
+    }
+
+    /**
+     * @param isEdible is the ghost edible?
+     * @param isTowardsPacMan does the move take the ghost closer to Pac-Man?
+     * @return the index of the kind of move in the frequency tables
+     */
+    private static int moveKind(boolean isEdible, boolean isTowardsPacMan)
+    {
+        return (isEdible ? 2 : 0) + (isTowardsPacMan ? 1 : 0);
+    }
+
+    /**
+     * Saves the frequency table to a file with a line of "ghost,kind,timesChosen,timesAvailable" per entry
+     *
+     * @param filename file to write the table to
+     */
+    public void writeToFile(String filename)
+    {
+        List<String> lines = Lists.newArrayList();
+        for (GHOST ghost : GHOST.values()) {
+            for (int kind = 0; kind < NUM_MOVE_KINDS; kind++) {
+                lines.add(ghost + "," + kind + "," + timesChosen[ghost.ordinal()][kind] + "," +
+                        timesAvailable[ghost.ordinal()][kind]);
+            }
+        }
+        try {
+            Files.write(Paths.get(checkNotNull(filename)), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @param filename file written by writeToFile
+     * @return the model saved in the file
+     */
+    public static FrequencyGhostModel readFromFile(String filename)
+    {
+        List<String> lines = null;
+        try {
+            lines = Files.readAllLines(Paths.get(checkNotNull(filename)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Throwables.propagate(e);
+        }
+
+        FrequencyGhostModel model = new FrequencyGhostModel();
+        for (String line : lines) {
+            String[] columns = line.split(",");
+            int ghost = GHOST.valueOf(columns[0]).ordinal();
+            int kind = Integer.parseInt(columns[1]);
+            model.timesChosen[ghost][kind] = Long.parseLong(columns[2]);
+            model.timesAvailable[ghost][kind] = Long.parseLong(columns[3]);
+        }
+        return model;
+    }
+}
@@ -0,0 +1,157 @@
+package minimax;
+
+import com.google.common.collect.Maps;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Generates the combinations of ghost moves at a ghost ply without allocating. Each combination is encoded as a small
+ * int with each ghost's move being a digit in base 5 (see {@link #encode}). The combinations and the decoded moves of
+ * each ply are kept in arrays which are allocated once, so a search reuses the same arrays at every node of a ply.
+ */
+class GhostCombinations
+{
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final GHOST[] GHOSTS = GHOST.values();
+    /**
+     * More combinations than there can be at a node. Ghosts cannot reverse, so each has at most 4 moves.
+     */
+    static final int MAX_COMBINATIONS = 256;
+
+    /**
+     * The encoded combinations of each ply, indexed by [ply][combination]
+     */
+    private final int[][] combinations = new int[MoveOrdering.MAX_PLY][MAX_COMBINATIONS];
+    /**
+     * The decoded moves of each ply, indexed by [ply][ghost ordinal], as taken by
+     * {@link SimulationState#applyGhostMoves}
+     */
+    private final MOVE[][] decodedMoves = new MOVE[MoveOrdering.MAX_PLY][GHOSTS.length];
+    /**
+     * The ordered moves of each ghost at each ply when the ghosts move one at a time, indexed by
+     * [ply * number of ghosts + ghost ordinal][move]
+     */
+    private final MOVE[][] orderedGhostMoves = new MOVE[MoveOrdering.MAX_PLY * GHOSTS.length][MOVES.length];
+
+    /**
+     * Generates every combination of the possible moves of the ghosts in the given state
+     *
+     * @param state state of the game
+     * @param ply how many moves the node is below the root of the tree
+     * @return the number of combinations, which are returned by {@link #getCombinations} for the ply
+     */
+    int generate(SimulationState state, int ply)
+    {
+        int[] plyCombinations = combinations[ply];
+        plyCombinations[0] = 0;
+        int count = 1;
+        int placeValue = 1;
+        for (GHOST ghost : GHOSTS) {
+            MOVE[] moves = state.getPossibleGhostMoves(ghost);
+            // Every combination so far is extended with each move of this ghost
+            for (int i = moves.length - 1; i >= 0; i--) {
+                int digit = moves[i].ordinal() * placeValue;
+                for (int j = 0; j < count; j++) {
+                    plyCombinations[i * count + j] = plyCombinations[j] + digit;
+                }
+            }
+            count *= moves.length;
+            placeValue *= MOVES.length;
+        }
+        return count;
+    }
+
+    /**
+     * @param ply how many moves the node is below the root of the tree
+     * @return the combinations generated for the ply. The array is reused by later nodes of the same ply.
+     */
+    int[] getCombinations(int ply)
+    {
+        return combinations[ply];
+    }
+
+    /**
+     * @param ply how many moves the node is below the root of the tree
+     * @param ghost one of the four ghosts
+     * @return an array for the ordered moves of the ghost at the ply, which is reused by later nodes of the same ply
+     */
+    MOVE[] getOrderedMoveBuffer(int ply, GHOST ghost)
+    {
+        return orderedGhostMoves[ply * GHOSTS.length + ghost.ordinal()];
+    }
+
+    /**
+     * @param encodedMoves an encoded combination of ghost moves
+     * @param ply how many moves the node is below the root of the tree
+     * @return the moves of the combination indexed by ghost ordinal. The array is reused by later nodes of the same
+     * ply.
+     */
+    MOVE[] decode(int encodedMoves, int ply)
+    {
+        MOVE[] moves = decodedMoves[ply];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = MOVES[encodedMoves % MOVES.length];
+            encodedMoves /= MOVES.length;
+        }
+        return moves;
+    }
+
+    /**
+     * @param encodedMoves an encoded combination of ghost moves
+     * @return a new array of the moves of the combination indexed by ghost ordinal, for use outside of a search
+     */
+    static MOVE[] toArray(int encodedMoves)
+    {
+        MOVE[] moves = new MOVE[GHOSTS.length];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = MOVES[encodedMoves % MOVES.length];
+            encodedMoves /= MOVES.length;
+        }
+        return moves;
+    }
+
+    /**
+     * @param encodedMoves an encoded combination of ghost moves
+     * @param ghost one of the four ghosts
+     * @return the move of the ghost in the combination
+     */
+    static MOVE getMove(int encodedMoves, GHOST ghost)
+    {
+        for (int i = 0; i < ghost.ordinal(); i++) {
+            encodedMoves /= MOVES.length;
+        }
+        return MOVES[encodedMoves % MOVES.length];
+    }
+
+    /**
+     * @param ghostMoves a move for each of the ghosts
+     * @return the moves encoded as a small integer, with each ghost's move being a digit in base 5
+     */
+    static int encode(Map<GHOST, MOVE> ghostMoves)
+    {
+        int encoded = 0;
+        int placeValue = 1;
+        for (GHOST ghost : GHOSTS) {
+            encoded += ghostMoves.get(ghost).ordinal() * placeValue;
+            placeValue *= MOVES.length;
+        }
+        return encoded;
+    }
+
+    /**
+     * @param encodedMoves an encoded combination of ghost moves
+     * @return a new map of each ghost to its move in the combination
+     */
+    static Map<GHOST, MOVE> toMap(int encodedMoves)
+    {
+        EnumMap<GHOST, MOVE> ghostMoves = Maps.newEnumMap(GHOST.class);
+        for (GHOST ghost : GHOSTS) {
+            ghostMoves.put(ghost, MOVES[encodedMoves % MOVES.length]);
+            encodedMoves /= MOVES.length;
+        }
+        return ghostMoves;
+    }
+}
@@ -0,0 +1,20 @@
+package minimax;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+
+/**
+ * Model of how likely each ghost is to make each of its moves, used by the expectimax mode of
+ * {@link MinimaxAlgorithm} to weight the ghosts' moves. The ghosts are assumed to choose their moves independently.
+ */
+public interface GhostModel
+{
+    /**
+     * @param state state of the game
+     * @param ghost the ghost which is moving
+     * @param move one of the ghost's possible moves
+     * @return how likely the ghost is to make the move. The values are scaled so that the values of all of the
+     * ghost's possible moves add up to 1, so they only need to be relative to each other.
+     */
+    double getMoveWeight(SimulationState state, GHOST ghost, MOVE move);
+}
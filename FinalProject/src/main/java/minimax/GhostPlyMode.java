@@ -0,0 +1,25 @@
+package minimax;
+
+/**
+ * The shapes of tree {@link MinimaxAlgorithm} can create for the ghosts' moves
+ */
+public enum GhostPlyMode
+{
+    /**
+     * Each ghost ply branches on every combination of the four ghosts' moves (up to 3^4 children)
+     */
+    JOINT,
+    /**
+     * Each ghost ply below the root is split into four min-plies, one per ghost, and the combined moves are only
+     * applied to the state after the fourth ghost has chosen its move. Each ghost's moves are ordered on their own, so
+     * alpha-beta pruning can cut off within the ghost team's choices. A ghost ply at the root branches on every
+     * combination of ghost moves, as in JOINT.
+     */
+    SEQUENTIAL,
+    /**
+     * Each ghost ply below the root is a chance node whose value is the expected value of its children, weighted by
+     * how likely each combination of ghost moves is according to a {@link GhostModel}. Unlikely combinations are not
+     * searched. A ghost ply at the root is still a min node since the ghosts are choosing their own move there.
+     */
+    EXPECTIMAX
+}
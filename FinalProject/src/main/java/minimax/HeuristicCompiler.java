@@ -0,0 +1,448 @@
+package minimax;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.primitives.Ints;
+import pacman.game.Constants.GHOST;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static minimax.FeatureWeightNames.*;
+
+/**
+ * Compiles a set of feature weights into a class which implements {@link Heuristic} and evaluates the same features
+ * as {@link SettableHeuristic}. The weights are constants in the generated code and the features with a weight of 0
+ * are left out, along with the ghost distances, nearest ghost and nearest pill when no remaining feature needs them,
+ * so each evaluation is a single straight-line method which the JIT compiler can fold the weights into.
+ *
+ * The classes are generated as Java source and compiled in memory with the system Java compiler, so the program must
+ * run on a JDK. When it runs on a JRE, or a class cannot be compiled or loaded, a {@link SettableHeuristic} is returned
+ * instead. Compiling takes a fraction of a second, so this is worth it for gene sets which are used for whole games,
+ * such as when calculating fitness.
+ *
+ * Many threads can compile at once, each a different gene set. A thread which asks for a gene set that another thread
+ * is already compiling waits for that compilation instead of starting its own.
+ */
+public class HeuristicCompiler
+{
+    /**
+     * The most compiled heuristics to keep for reuse by gene sets with the same weights
+     */
+    private static final int CACHE_SIZE = 256;
+    private static final String CLASS_NAME_PREFIX = "CompiledHeuristic";
+
+    /**
+     * The Java expression of each feature, indexed by feature ordinal. The state is s and the move history is h.
+     */
+    private static final String[] EXPRESSIONS = new String[NUM_FEATURES];
+    /**
+     * Is the feature at each feature ordinal a condition, which adds its weight when true, rather than a number which
+     * is multiplied by its weight?
+     */
+    private static final boolean[] CONDITIONS = new boolean[NUM_FEATURES];
+
+    static {
+        booleanFeature(PAC_MAN_EATEN, "s.wasPacManEaten()");
+        intFeature(NUM_ACTIVE_PILLS, "s.getNumberOfActivePills()");
+        intFeature(NUM_ACTIVE_POWER_PILLS, "s.getNumberOfActivePowerPills()");
+        intFeature(SCORE, "s.getScore()");
+        intFeature(PAC_MAN_DISTANCE_TO_UNEDIBLE_BLINKY, "(!s.isGhostEdible(GHOST.BLINKY) ? distanceToBLINKY : 0)");
+        intFeature(PAC_MAN_DISTANCE_TO_UNEDIBLE_INKY, "(!s.isGhostEdible(GHOST.INKY) ? distanceToINKY : 0)");
+        intFeature(PAC_MAN_DISTANCE_TO_UNEDIBLE_PINKY, "(!s.isGhostEdible(GHOST.PINKY) ? distanceToPINKY : 0)");
+        intFeature(PAC_MAN_DISTANCE_TO_UNEDIBLE_SUE, "(!s.isGhostEdible(GHOST.SUE) ? distanceToSUE : 0)");
+        booleanFeature(PAC_MAN_NEAREST_GHOST_EDIBLE, "isNearestGhostEdible");
+        intFeature(PAC_MAN_DISTANCE_TO_NEAREST_GHOST_UNDER_20,
+                "((distanceToNearestGhost < 20 && !isNearestGhostEdible) ? distanceToNearestGhost : 0)");
+        booleanFeature(PAC_MAN_NEAREST_GHOST_EDIBLE_AND_UNDER_40,
+                "(isNearestGhostEdible && distanceToNearestGhost <= 40)");
+        intFeature(PAC_MAN_DISTANCE_TO_NEAREST_PILL, "distanceToNearestPill");
+
+        intFeature(NUM_TOTAL_ACTIVE_PILLS, "(s.getNumberOfActivePills() + s.getNumberOfActivePowerPills())");
+        intFeature(NUM_LEVEL, "s.getCurrentLevel()");
+        intFeature(LEVEL_TIME, "s.getCurrentLevelTime()");
+        intFeature(TOTAL_GAME_TIME, "s.getTotalTime()");
+        intFeature(NUM_GHOSTS_EATEN, "s.getNumGhostsEaten()");
+        intFeature(LIVES_REMAINING, "s.getPacmanNumberOfLivesRemaining()");
+        booleanFeature(GAME_OVER, "s.gameOver()");
+        booleanFeature(WAS_PILL_EATEN, "s.wasPillEaten()");
+        booleanFeature(WAS_POWER_PILL_EATEN, "s.wasPowerPillEaten()");
+
+        intFeature(PAC_MAN_NUM_POSSIBLE_MOVES, "s.getPossiblePacManMoves().length");
+        intFeature(BLINKY_NUM_POSSIBLE_MOVES, "s.getPossibleGhostMoves(GHOST.BLINKY).length");
+        intFeature(INKY_NUM_POSSIBLE_MOVES, "s.getPossibleGhostMoves(GHOST.INKY).length");
+        intFeature(PINKY_NUM_POSSIBLE_MOVES, "s.getPossibleGhostMoves(GHOST.PINKY).length");
+        intFeature(SUE_NUM_POSSIBLE_MOVES, "s.getPossibleGhostMoves(GHOST.SUE).length");
+        intFeature(DISTANCE_TO_NEXT_NEAREST_PILL_MORE_THAN_10_IF_PILL_JUST_EATEN,
+                "((s.wasPillEaten() || distanceToNearestPill > 10) ? distanceToNearestPill : 0)");
+        booleanFeature(DISTANCE_TO_NEAREST_PILL_ABOVE_FIVE, "(distanceToNearestPill >= 5)");
+
+        booleanFeature(PAC_MAN_LAST_MOVE_LEFT, "(s.getPacmanLastMoveMade() == MOVE.LEFT)");
+        booleanFeature(PAC_MAN_LAST_MOVE_DOWN, "(s.getPacmanLastMoveMade() == MOVE.DOWN)");
+
+        intFeature(PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_10,
+                "((distanceToNearestGhost < 10 && !isNearestGhostEdible) ? distanceToNearestGhost : 0)");
+        intFeature(PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_5,
+                "((distanceToNearestGhost < 5 && !isNearestGhostEdible) ? distanceToNearestGhost : 0)");
+
+        intFeature(LIKELY_NOT_STUCK, "MoveHistory.getUnvariedMoves(h)");
+        booleanFeature(REVERSED_DIRECTION, "MoveHistory.isReversed(h)");
+
+        intFeature(PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_10,
+                "((distanceToNearestGhost < 10 && isNearestGhostEdible) ? distanceToNearestGhost : 0)");
+        intFeature(PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_5,
+                "((distanceToNearestGhost < 5 && isNearestGhostEdible) ? distanceToNearestGhost : 0)");
+
+        for (int feature = 0; feature < NUM_FEATURES; feature++) {
+            checkState(EXPRESSIONS[feature] != null, "There is no expression for feature %s", feature);
+        }
+    }
+
+    /**
+     * Compiled (or compiling) heuristics by their weights, with the least recently used first. Only locked while an
+     * entry is looked up or added, never while compiling.
+     */
+    private static final Map<List<Integer>, Future<Heuristic>> CACHE =
+            new LinkedHashMap<List<Integer>, Future<Heuristic>>(CACHE_SIZE, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Integer>, Future<Heuristic>> eldest)
+                {
+                    return size() > CACHE_SIZE;
+                }
+            };
+    /**
+     * The number of classes generated so far, which makes each class name unique
+     */
+    private static final AtomicInteger classesGenerated = new AtomicInteger();
+    /**
+     * Has a heuristic already been returned uncompiled? Only the first time is reported.
+     */
+    private static volatile boolean reportedFallback = false;
+
+    /**
+     * @param feature a feature ordinal
+     * @param expression the Java expression of the feature, which is an int
+     */
+    private static void intFeature(int feature, String expression)
+    {
+        EXPRESSIONS[feature] = expression;
+        CONDITIONS[feature] = false;
+    }
+
+    /**
+     * @param feature a feature ordinal
+     * @param expression the Java expression of the feature, which is a boolean
+     */
+    private static void booleanFeature(int feature, String expression)
+    {
+        EXPRESSIONS[feature] = expression;
+        CONDITIONS[feature] = true;
+    }
+
+    /**
+     * @param fieldToWeights map of feature names to feature weights, which has a weight for every feature
+     * @return a heuristic which evaluates states exactly like a {@link SettableHeuristic} with the same weights, as a
+     * generated class if the system Java compiler is available
+     */
+    public static Heuristic compile(final Map<String, Integer> fieldToWeights)
+    {
+        final int[] weights = FeatureWeightNames.compileWeights(checkNotNull(fieldToWeights));
+        List<Integer> key = Ints.asList(weights);
+        Future<Heuristic> heuristic;
+        FutureTask<Heuristic> compilation = null;
+        synchronized (CACHE) {
+            heuristic = CACHE.get(key);
+            if (heuristic == null) {
+                compilation = new FutureTask<>(new Callable<Heuristic>()
+                {
+                    @Override
+                    public Heuristic call()
+                    {
+                        return generate(weights, fieldToWeights);
+                    }
+                });
+                heuristic = compilation;
+                CACHE.put(key, heuristic);
+            }
+        }
+
+        // The thread which added the entry compiles it, outside of the lock
+        if (compilation != null) {
+            compilation.run();
+        }
+        try {
+            return heuristic.get();
+        } catch (InterruptedException e) {
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            // A failed compilation is not kept, so that the next request tries again
+            synchronized (CACHE) {
+                if (CACHE.get(key) == heuristic) {
+                    CACHE.remove(key);
+                }
+            }
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @param weights the feature weights indexed by feature ordinal
+     * @param fieldToWeights the same weights by feature name, for when the class cannot be compiled
+     * @return a new instance of a class generated for the weights, or a {@link SettableHeuristic} if there is no system
+     * Java compiler or the class could not be compiled or loaded
+     */
+    private static Heuristic generate(int[] weights, Map<String, Integer> fieldToWeights)
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return fallBack(fieldToWeights, "no Java compiler is available");
+        }
+
+        String className = CLASS_NAME_PREFIX + classesGenerated.getAndIncrement();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        ClassFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(diagnostics, null,
+                StandardCharsets.UTF_8));
+        try {
+            List<String> options = Arrays.asList("-classpath", classPath(), "-g:none", "-nowarn");
+            List<SourceFile> sources = Collections.singletonList(
+                    new SourceFile(className, generateSource(className, weights)));
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null, sources).call();
+            checkState(compiled, "Could not compile %s: %s", className, diagnostics.getDiagnostics());
+
+            // Each class gets its own class loader so that it can be unloaded once it leaves the cache
+            ClassLoader classLoader = new ByteArrayClassLoader(className, fileManager.getClassBytes(),
+                    HeuristicCompiler.class.getClassLoader());
+            return (Heuristic) classLoader.loadClass(className).newInstance();
+        } catch (ReflectiveOperationException | URISyntaxException | RuntimeException | LinkageError e) {
+            return fallBack(fieldToWeights, e.toString());
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException ignored) {
+                // Nothing was written to disk, so there is nothing to clean up
+            }
+        }
+    }
+
+    /**
+     * @param fieldToWeights map of feature names to feature weights
+     * @param reason why the heuristic is not compiled, which is printed the first time
+     * @return a {@link SettableHeuristic} with the weights
+     */
+    private static Heuristic fallBack(Map<String, Integer> fieldToWeights, String reason)
+    {
+        if (!reportedFallback) {
+            reportedFallback = true;
+            System.out.println("Heuristics will not be compiled, since " + reason);
+        }
+        return new SettableHeuristic(fieldToWeights);
+    }
+
+    /**
+     * The generated classes only use this project and the Pac-Man framework, so the class path is taken from where
+     * their classes were loaded rather than from the java.class.path property, which does not list them when the
+     * program is started from a launcher or a container with its own class loader.
+     *
+     * @return the class path to compile the generated classes with
+     * @throws URISyntaxException if the location of a class cannot be converted to a path
+     */
+    private static String classPath() throws URISyntaxException
+    {
+        Set<String> paths = new LinkedHashSet<>();
+        for (Class<?> dependency : Arrays.asList(HeuristicCompiler.class, GHOST.class)) {
+            CodeSource codeSource = checkNotNull(dependency.getProtectionDomain().getCodeSource(),
+                    "The location of %s is not known", dependency);
+            paths.add(Paths.get(codeSource.getLocation().toURI()).toString());
+        }
+        return Joiner.on(File.pathSeparator).join(paths);
+    }
+
+    /**
+     * @param className the name of the class to generate, in the default package
+     * @param weights the feature weights indexed by feature ordinal
+     * @return the Java source of a heuristic class with the given weights as constants
+     */
+    static String generateSource(String className, int[] weights)
+    {
+        StringBuilder terms = new StringBuilder();
+        for (int feature = 0; feature < NUM_FEATURES; feature++) {
+            if (weights[feature] == 0) {
+                continue;
+            }
+            terms.append("\n                + ");
+            if (CONDITIONS[feature]) {
+                terms.append("(").append(EXPRESSIONS[feature]).append(" ? ").append(weights[feature]).append(" : 0)");
+            } else {
+                terms.append("(").append(weights[feature]).append(") * ").append(EXPRESSIONS[feature]);
+            }
+        }
+        String sum = terms.toString();
+
+        // Only the shared values which a remaining feature uses are computed
+        boolean needsNearestGhost = sum.contains("NearestGhost");
+        StringBuilder body = new StringBuilder();
+        body.append("        int pacManNode = s.getPacmanCurrentNodeIndex();\n");
+        for (GHOST ghost : GHOST.values()) {
+            if (needsNearestGhost || sum.contains("distanceTo" + ghost.name())) {
+                body.append("        int distanceTo").append(ghost.name())
+                        .append(" = s.getShortestPathDistance(pacManNode, s.getGhostCurrentNodeIndex(GHOST.")
+                        .append(ghost.name()).append("));\n");
+            }
+        }
+        if (needsNearestGhost) {
+            body.append("        int distanceToNearestGhost = Math.min(Math.min(distanceToBLINKY, distanceToINKY), "
+                    + "Math.min(distanceToPINKY, distanceToSUE));\n");
+            // The nearest ghost is the last of the ghosts at the nearest distance
+            GHOST[] ghosts = GHOST.values();
+            body.append("        boolean isNearestGhostEdible = ");
+            for (int i = ghosts.length - 1; i > 0; i--) {
+                body.append("distanceTo").append(ghosts[i].name())
+                        .append(" == distanceToNearestGhost ? s.isGhostEdible(GHOST.").append(ghosts[i].name())
+                        .append(") : ");
+            }
+            body.append("s.isGhostEdible(GHOST.").append(ghosts[0].name()).append(");\n");
+        }
+        if (sum.contains("distanceToNearestPill")) {
+            body.append("        int distanceToNearestPill = Math.max(s.getDistanceToNearestPill(), 0);\n");
+        }
+
+        return "import minimax.Heuristic;\n" +
+                "import minimax.MoveHistory;\n" +
+                "import minimax.SimulationState;\n" +
+                "import pacman.game.Constants.GHOST;\n" +
+                "import pacman.game.Constants.MOVE;\n" +
+                "\n" +
+                "public class " + className + " implements Heuristic\n" +
+                "{\n" +
+                "    @Override\n" +
+                "    public int heuristicVal(SimulationState s, long h)\n" +
+                "    {\n" +
+                body +
+                "        return 0" + sum + ";\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    /**
+     * The Java source of a generated class, which is held in memory
+     */
+    private static class SourceFile extends SimpleJavaFileObject
+    {
+        private final String source;
+
+        /**
+         * @param className the name of the class, in the default package
+         * @param source the Java source of the class
+         */
+        SourceFile(String className, String source)
+        {
+            super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return source;
+        }
+    }
+
+    /**
+     * Reads the classes the generated sources depend on through the system file manager, but keeps the class file
+     * written by the compiler in memory
+     */
+    private static class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+    {
+        private final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+
+        /**
+         * @param fileManager the system file manager
+         */
+        ClassFileManager(StandardJavaFileManager fileManager)
+        {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling)
+        {
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className + kind.extension), kind)
+            {
+                @Override
+                public OutputStream openOutputStream()
+                {
+                    return classBytes;
+                }
+            };
+        }
+
+        /**
+         * @return the class file written by the compiler
+         */
+        byte[] getClassBytes()
+        {
+            return classBytes.toByteArray();
+        }
+    }
+
+    /**
+     * Defines a single class from its class file, and loads every other class through its parent
+     */
+    private static class ByteArrayClassLoader extends ClassLoader
+    {
+        private final String className;
+        private final byte[] classBytes;
+
+        /**
+         * @param className the name of the class, in the default package
+         * @param classBytes the class file of the class
+         * @param parent the class loader of the classes the class depends on
+         */
+        ByteArrayClassLoader(String className, byte[] classBytes, ClassLoader parent)
+        {
+            super(parent);
+            this.className = className;
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException
+        {
+            if (!name.equals(className)) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, classBytes, 0, classBytes.length);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package minimax;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * Keeps the statistics of every search in memory, so that a program can profile its searches without writing files
+ * or attaching a profiler
+ */
+public class InMemoryMetricsSink implements SearchMetricsSink
+{
+    private final List<SearchStatistics> records = Lists.newArrayList();
+
+    @Override
+    public synchronized void record(SearchStatistics statistics)
+    {
+        records.add(statistics);
+    }
+
+    /**
+     * @return the statistics of every search recorded so far, in the order they finished
+     */
+    public synchronized List<SearchStatistics> getRecords()
+    {
+        return ImmutableList.copyOf(records);
+    }
+
+    /**
+     * @return the statistics of every search recorded so far added together. Averages per search can be found by
+     * dividing by {@link SearchStatistics#getSearches()}.
+     */
+    public synchronized SearchStatistics getTotal()
+    {
+        SearchStatistics total = new SearchStatistics();
+        for (SearchStatistics statistics : records) {
+            total.add(statistics);
+        }
+        return total;
+    }
+
+    /**
+     * Forgets every search recorded so far
+     */
+    public synchronized void clear()
+    {
+        records.clear();
+    }
+}
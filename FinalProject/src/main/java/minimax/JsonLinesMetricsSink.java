@@ -0,0 +1,80 @@
+package minimax;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.primitives.Longs;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Writes the statistics of every search to a JSON-lines file, with one JSON object per search on each line
+ */
+public class JsonLinesMetricsSink implements SearchMetricsSink, Closeable
+{
+    private final BufferedWriter writer;
+
+    /**
+     * @param filename the file to write to, which is replaced if it exists
+     */
+    public JsonLinesMetricsSink(String filename)
+    {
+        try {
+            writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @param statistics the statistics of a search, which are written as a line and flushed to the file
+     */
+    @Override
+    public synchronized void record(SearchStatistics statistics)
+    {
+        try {
+            writer.write("{\"tick\":" + statistics.getGameTick() +
+                    ",\"isPacMan\":" + statistics.isPacMan() +
+                    ",\"depth\":" + statistics.getDepth() +
+                    ",\"nodes\":" + statistics.getNodesSearched() +
+                    ",\"leaves\":" + statistics.getLeavesEvaluated() +
+                    ",\"cutoffs\":" + statistics.getCutoffs() +
+                    ",\"firstMoveCutoffs\":" + statistics.getFirstMoveCutoffs() +
+                    ",\"cutoffsByPly\":[" + Joiner.on(',').join(Longs.asList(statistics.getCutoffsByPly())) + "]" +
+                    ",\"branchingFactor\":" + decimal(statistics.getEffectiveBranchingFactor()) +
+                    ",\"ttHits\":" + statistics.getTranspositionHits() +
+                    ",\"ttMisses\":" + statistics.getTranspositionMisses() +
+                    ",\"ttCutoffs\":" + statistics.getTranspositionCutoffs() +
+                    ",\"stateCopies\":" + statistics.getStateCopies() +
+                    ",\"quiescenceExtensions\":" + statistics.getQuiescenceExtensions() +
+                    ",\"quiescenceNodes\":" + statistics.getQuiescenceNodes() +
+                    ",\"quiescenceMs\":" + decimal(statistics.getQuiescenceNanos() / 1e6) +
+                    ",\"heuristicMs\":" + decimal(statistics.getHeuristicNanos() / 1e6) +
+                    ",\"wallMs\":" + decimal(statistics.getWallNanos() / 1e6) + "}");
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @param value a number
+     * @return the number with three decimals and a decimal point, whatever the default locale
+     */
+    private static String decimal(double value)
+    {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        writer.close();
+    }
+}
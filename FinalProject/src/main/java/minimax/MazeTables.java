@@ -0,0 +1,196 @@
+package minimax;
+
+import com.google.common.collect.Maps;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Primitive lookup tables for the parts of a maze which never change during a game: neighbours, possible moves,
+ * where the pills are and which pills are nearest to each node. They are built once per maze from a {@link Game} and
+ * shared by every {@link SimulationState} of that maze.
+ */
+class MazeTables
+{
+    /**
+     * Number of moves, including NEUTRAL
+     */
+    static final int NUM_MOVES = MOVE.values().length;
+    /**
+     * Tables which have already been built, keyed by maze index
+     */
+    private static final Map<Integer, MazeTables> TABLES_BY_MAZE = Maps.newHashMap();
+
+    /**
+     * Number of nodes in the maze
+     */
+    final int numNodes;
+    /**
+     * The node reached by making a move from a node, indexed by [node * NUM_MOVES + move ordinal], or -1 if the move
+     * is not possible. NEUTRAL never leads to another node.
+     */
+    final int[] neighbours;
+    /**
+     * The index of the pill at each node, or -1 if there is no pill at the node
+     */
+    final int[] pillIndexOfNode;
+    /**
+     * The index of the power pill at each node, or -1 if there is no power pill at the node
+     */
+    final int[] powerPillIndexOfNode;
+    /**
+     * The node of each pill, indexed by pill index
+     */
+    final int[] pillNodes;
+    /**
+     * The node of each power pill, indexed by power pill index
+     */
+    final int[] powerPillNodes;
+    /**
+     * The moves Pac-Man can make from each node
+     */
+    final MOVE[][] pacManMoves;
+    /**
+     * The moves which can be made from each node without reversing (which is how ghosts move), indexed by
+     * [node * NUM_MOVES + last move ordinal]
+     */
+    final MOVE[][] movesWithoutReversing;
+    /**
+     * Is each node a junction, where Pac-Man can choose between more than two moves?
+     */
+    final boolean[] junctions;
+    /**
+     * The junction graph of the maze: how many steps Pac-Man takes from each node to reach a junction when it keeps
+     * following the corridor, indexed by [node * NUM_MOVES + last move ordinal]. It is 0 at a junction or when the
+     * last move was NEUTRAL.
+     */
+    final int[] stepsToJunction;
+    /**
+     * Every pill and power pill ordered from the nearest to the furthest from each node by shortest path distance,
+     * indexed by [node * number of pills and power pills + rank]. Pills are numbered by their pill index and power
+     * pills by their power pill index plus the number of pills. The first entry which has not been eaten is the
+     * nearest pill to the node.
+     */
+    final short[] pillsByDistance;
+    /**
+     * The node a ghost is put on when it leaves the lair
+     */
+    final int ghostInitialNode;
+
+    /**
+     * @param game a game in the maze to build tables for
+     */
+    private MazeTables(Game game)
+    {
+        numNodes = game.getNumberOfNodes();
+        ghostInitialNode = game.getGhostInitialNodeIndex();
+        neighbours = new int[numNodes * NUM_MOVES];
+        pillIndexOfNode = new int[numNodes];
+        powerPillIndexOfNode = new int[numNodes];
+        pacManMoves = new MOVE[numNodes][];
+        movesWithoutReversing = new MOVE[numNodes * NUM_MOVES][];
+
+        for (int node = 0; node < numNodes; node++) {
+            for (MOVE move : MOVE.values()) {
+                neighbours[node * NUM_MOVES + move.ordinal()] = move == MOVE.NEUTRAL ? -1 :
+                        game.getNeighbour(node, move);
+                MOVE[] possibleMoves = game.getPossibleMoves(node, move);
+                movesWithoutReversing[node * NUM_MOVES + move.ordinal()] =
+                        Arrays.copyOf(possibleMoves, possibleMoves.length);
+            }
+            MOVE[] possibleMoves = game.getPossibleMoves(node);
+            pacManMoves[node] = Arrays.copyOf(possibleMoves, possibleMoves.length);
+            pillIndexOfNode[node] = game.getPillIndex(node);
+            powerPillIndexOfNode[node] = game.getPowerPillIndex(node);
+        }
+
+        junctions = new boolean[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            junctions[node] = game.isJunction(node);
+        }
+        stepsToJunction = new int[numNodes * NUM_MOVES];
+        for (int node = 0; node < numNodes; node++) {
+            for (MOVE move : MOVE.values()) {
+                stepsToJunction[node * NUM_MOVES + move.ordinal()] = followCorridor(node, move);
+            }
+        }
+
+        int[] allPillNodes = game.getPillIndices();
+        pillNodes = Arrays.copyOf(allPillNodes, allPillNodes.length);
+        int[] allPowerPillNodes = game.getPowerPillIndices();
+        powerPillNodes = Arrays.copyOf(allPowerPillNodes, allPowerPillNodes.length);
+
+        int numPills = pillNodes.length + powerPillNodes.length;
+        pillsByDistance = new short[numNodes * numPills];
+        int[] distanceAndPill = new int[numPills];
+        for (int node = 0; node < numNodes; node++) {
+            // Sorting the distances with the pill numbers in the low bits orders the pills by distance
+            for (int pill = 0; pill < numPills; pill++) {
+                int pillNode = pill < pillNodes.length ? pillNodes[pill] : powerPillNodes[pill - pillNodes.length];
+                distanceAndPill[pill] = game.getShortestPathDistance(node, pillNode) << 16 | pill;
+            }
+            Arrays.sort(distanceAndPill);
+            for (int rank = 0; rank < numPills; rank++) {
+                pillsByDistance[node * numPills + rank] = (short) (distanceAndPill[rank] & 0xFFFF);
+            }
+        }
+    }
+
+    /**
+     * @param node a node of the maze
+     * @param lastMove the last move made to reach the node
+     * @return the number of steps to the next junction when following the corridor from the node, where there is
+     * only one move which does not reverse at each step
+     */
+    private int followCorridor(int node, MOVE lastMove)
+    {
+        int steps = 0;
+        MOVE move = lastMove;
+        while (move != MOVE.NEUTRAL && !junctions[node] && steps < numNodes) {
+            MOVE[] moves = movesWithoutReversing[node * NUM_MOVES + move.ordinal()];
+            if (moves.length != 1) {
+                break;
+            }
+            move = moves[0];
+            node = neighbours[node * NUM_MOVES + move.ordinal()];
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * @param game a game
+     * @return the tables of the maze the given game is being played in
+     */
+    static synchronized MazeTables forGame(Game game)
+    {
+        MazeTables tables = TABLES_BY_MAZE.get(game.getMazeIndex());
+        if (tables == null) {
+            tables = new MazeTables(game);
+            TABLES_BY_MAZE.put(game.getMazeIndex(), tables);
+        }
+        return tables;
+    }
+
+    /**
+     * @param node a node of the maze
+     * @param move a move
+     * @return the node reached by making the move from the given node, or -1 if the move is not possible
+     */
+    int getNeighbour(int node, MOVE move)
+    {
+        return neighbours[node * NUM_MOVES + move.ordinal()];
+    }
+
+    /**
+     * @param node a node of the maze
+     * @param lastMove the last move made to reach the node
+     * @return the moves which can be made from the node without reversing
+     */
+    MOVE[] getMovesWithoutReversing(int node, MOVE lastMove)
+    {
+        return movesWithoutReversing[node * NUM_MOVES + lastMove.ordinal()];
+    }
+}
@@ -1,9 +1,7 @@
 package minimax;
 
-import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import com.sun.istack.internal.Nullable;
 import pacman.game.Constants.MOVE;
 import pacman.game.Constants.GHOST;
@@ -11,233 +9,1844 @@ import pacman.game.Game;
 
 
 import java.util.Arrays;
-import java.util.EnumMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Implementation of the Minimax algorithm which evaluates which moves are best in Ms. Pac-Man for either the ghosts
- * or Ms. Pac-Man.
+ * or Ms. Pac-Man. The game is copied into a {@link SimulationState} once at the root, and the tree is created by
+ * applying moves to that state and undoing them again.
  */
-public class MinimaxAlgorithm
+public class MinimaxAlgorithm implements SearchEngine
 {
     /**
-     * History of moves returned by createMiniMaxTreeAndGetBestMove
+     * How long (in milliseconds) before a move is due that an iterative deepening search stops. This leaves time for
+     * the controller to return its move before the deadline passes.
      */
-    private Queue<MOVE> moveHistory;
+    private static final long DEADLINE_SAFETY_MARGIN = 5;
+    /**
+     * The deepest tree that an iterative deepening search will create, even if time remains before the deadline
+     */
+    private static final int MAX_ITERATIVE_DEEPENING_DEPTH = 50;
+    /**
+     * The default transposition table holds 2^18 entries (4 MB)
+     */
+    private static final int DEFAULT_TRANSPOSITION_TABLE_SIZE_IN_BITS = 18;
+    /**
+     * The default depth of the tree created by getBestMove when there is no deadline
+     */
+    private static final int DEFAULT_FIXED_DEPTH = 6;
+    /**
+     * By default, chance nodes do not search combinations of ghost moves which are less likely than this
+     */
+    private static final double DEFAULT_CHANCE_PRUNING_THRESHOLD = 0.01;
+    /**
+     * The root of the search of the next game tick is this many plies below the root of the current search: one for
+     * Pac-Man's move and one for the ghosts' moves
+     */
+    private static final int PLIES_PER_TICK = 2;
+    /**
+     * The most forced corridor steps simulated after a ghost ply when searching with macro-actions
+     */
+    private static final int MAX_CORRIDOR_STEPS = 30;
+    /**
+     * A corridor stops when a ghost outside of the lair is within this path distance of Pac-Man, since nobody being
+     * eaten is simulated and Pac-Man and the ghost close in on each other by up to two nodes per step
+     */
+    private static final int CORRIDOR_GHOST_DISTANCE = 6;
+    /**
+     * The default half-width of the aspiration window around the expected value of the root
+     */
+    private static final int DEFAULT_ASPIRATION_WINDOW = 50;
+    /**
+     * Each time the value of the root falls outside the aspiration window, the window is made this many times wider
+     * on that side
+     */
+    private static final int ASPIRATION_WIDENING_FACTOR = 4;
+    /**
+     * A leaf is not quiet if an unedible ghost is within this path distance of Pac-Man
+     */
+    private static final int QUIESCENCE_GHOST_DISTANCE = 6;
+    /**
+     * A leaf is not quiet if a power pill or an edible ghost is within this path distance of Pac-Man
+     */
+    private static final int QUIESCENCE_REACH_DISTANCE = 3;
+    /**
+     * The most plies the search of a leaf which is not quiet is extended by
+     */
+    private static final int MAX_QUIESCENCE_PLIES = 6;
+    /**
+     * The lower bound of a full alpha-beta window, which is below the value of every state
+     */
+    public static final int NEGATIVE_INFINITY = -Integer.MAX_VALUE;
+    /**
+     * The upper bound of a full alpha-beta window, which is above the value of every state
+     */
+    public static final int POSITIVE_INFINITY = Integer.MAX_VALUE;
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final int NUM_MOVES = MOVES.length;
+
+    /**
+     * Pac-Man's last moves, packed by {@link MoveHistory}: the moves returned by createMiniMaxTreeAndGetBestMove when
+     * searching for Pac-Man, or the moves Pac-Man was seen to make when searching for the ghosts
+     */
+    private long moveHistory = MoveHistory.EMPTY;
+    /**
+     * The total time of the game at the previous search, or -1 if there has not been a search
+     */
+    private int previousSearchTick = -1;
     /**
      * The evaluation function used to determine how 'good' the current state of the game is for a player
      */
-    private Heuristic heuristicFunction;
+    private Heuristic heuristicFunction;
+    /**
+     * The time (in milliseconds) after which the current search must be abandoned, or -1 if there is no deadline
+     */
+    private long searchDeadline = -1;
+    /**
+     * Was the current search abandoned because its deadline passed?
+     */
+    private boolean searchAborted = false;
+    /**
+     * The depth of the last tree which was completely created by a call to createMiniMaxTreeAndGetBestMove
+     */
+    private int lastSearchDepth = 0;
+    /**
+     * Results of previously searched states which are reused when a state is reached again, or null to search every
+     * state
+     */
+    private TranspositionTable transpositionTable;
+    /**
+     * Counters for the work done by the current (or last) call to createMiniMaxTreeAndGetBestMove
+     */
+    private SearchStatistics statistics = new SearchStatistics();
+    /**
+     * Decides the order in which the moves of each node are searched so that alpha-beta pruning cuts off more
+     */
+    private MoveOrdering moveOrdering = new MoveOrdering();
+    /**
+     * Generates the ghost move combinations of each ply into arrays which are reused at every node
+     */
+    private GhostCombinations ghostCombinations = new GhostCombinations();
+    /**
+     * The shape of the tree created for the ghosts' moves
+     */
+    private GhostPlyMode ghostPlyMode = GhostPlyMode.JOINT;
+    /**
+     * How likely the ghosts are to make each move, used by chance nodes in the expectimax mode
+     */
+    private GhostModel ghostModel = new UniformGhostModel();
+    /**
+     * Chance nodes do not search combinations of ghost moves which are less likely than this, unless it is the most
+     * likely combination
+     */
+    private double chancePruningThreshold = DEFAULT_CHANCE_PRUNING_THRESHOLD;
+    /**
+     * The probability of each ghost's moves at the chance node of each ply, indexed by
+     * [ply][ghost ordinal * number of moves + move ordinal]
+     */
+    private final double[][] ghostMoveProbabilities = new double[MoveOrdering.MAX_PLY][GHOSTS.length * NUM_MOVES];
+    /**
+     * The number of ghost move combinations searched so far at the current node of each ply, when the ghosts move
+     * one at a time
+     */
+    private final int[] ghostCombinationsSearched = new int[MoveOrdering.MAX_PLY];
+    /**
+     * Should forced corridor steps be simulated without branching, so that Pac-Man only chooses moves at junctions?
+     */
+    private boolean macroActions = false;
+    /**
+     * The moves of the ghosts during the forced corridor steps after each ply, indexed by [ply][ghost ordinal]
+     */
+    private final MOVE[][] corridorGhostMoves = new MOVE[MoveOrdering.MAX_PLY][GHOSTS.length];
+    /**
+     * Receives the statistics of every call to createMiniMaxTreeAndGetBestMove, or null
+     */
+    private SearchMetricsSink metricsSink = null;
+    /**
+     * Should the time spent in the heuristic be measured? Reading the clock twice per leaf costs about as much as a
+     * cheap heuristic, so it is only done while the statistics are being recorded by a metrics sink.
+     */
+    private boolean timeHeuristic = false;
+    /**
+     * Should the moves after the first at each node be searched with a null window first (principal variation
+     * search)?
+     */
+    private boolean principalVariationSearch = true;
+    /**
+     * The half-width of the aspiration window around the expected value of the root, or 0 to always search the root
+     * with a full window
+     */
+    private int aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+    /**
+     * The most nodes the extensions of the leaves which are not quiet may search in each tree, or 0 to not extend
+     * them
+     */
+    private int quiescenceNodeLimit = 0;
+    /**
+     * The number of nodes the extensions may still search in the current tree
+     */
+    private int quiescenceNodesLeft = 0;
+    /**
+     * Has a call to createMiniMaxTreeAndGetBestMove returned a move yet? If so, its value is previousSearchValue.
+     */
+    private boolean hasPreviousSearchValue = false;
+    /**
+     * The value of the root of the previous call to createMiniMaxTreeAndGetBestMove, which is the expected value of
+     * the next root when there is no better guess
+     */
+    private int previousSearchValue = 0;
+    /**
+     * The depth of the tree created by getBestMove when there is no deadline
+     */
+    private int fixedDepth = DEFAULT_FIXED_DEPTH;
+    /**
+     * Pool which searches the children of the root in parallel, or null if the search is single-threaded
+     */
+    private ForkJoinPool searchPool = null;
+    /**
+     * One Minimax instance per thread of searchPool. Each has its own move ordering, statistics and deadline state
+     * but shares this instance's heuristic and transposition table.
+     */
+    private MinimaxAlgorithm[] workers = new MinimaxAlgorithm[0];
+    /**
+     * Should a search reuse the results of the previous search when its root is a state of the previous tree?
+     */
+    private boolean treeReuse = true;
+    /**
+     * The transposition table key of the root of the previous search, or 0 if there has not been a search
+     */
+    private long previousRootHash = 0;
+    /**
+     * Runs the searches of the predicted next position between calls to createMiniMaxTreeAndGetBestMove, or null if
+     * pondering is off
+     */
+    private ExecutorService ponderExecutor = null;
+    /**
+     * The Minimax instance which searches on the pondering thread. It shares this instance's heuristic and
+     * transposition table, which passes its results on to the next search.
+     */
+    private MinimaxAlgorithm ponderWorker = null;
+    /**
+     * The search of the predicted next position which is running on the pondering thread, or null
+     */
+    private Future<?> ponderTask = null;
+    /**
+     * The transposition table key of the position being pondered
+     */
+    private long ponderedRootHash = 0;
+    /**
+     * Set by the searching thread to make the pondering thread abandon its search
+     */
+    private volatile boolean stopRequested = false;
+    /**
+     * The depth of the deepest tree completed by the pondering search. Only read once the search has finished.
+     */
+    private int ponderedDepth = 0;
+    /**
+     * The number of searches which were preceded by pondering
+     */
+    private int ponderedSearches = 0;
+    /**
+     * The number of searches whose root was the position pondered before them
+     */
+    private int ponderHits = 0;
+    /**
+     * Was the last search preceded by pondering?
+     */
+    private boolean lastSearchPondered = false;
+    /**
+     * Was the root of the last search the position pondered before it?
+     */
+    private boolean lastSearchPonderHit = false;
+    /**
+     * The total depth completed by pondering before the searches which were ponder hits
+     */
+    private long totalPonderedDepth = 0;
+
+    /**
+     * @param heuristic evaluation function to analyze game state
+     */
+    public MinimaxAlgorithm(Heuristic heuristic)
+    {
+        this(heuristic, new TranspositionTable(DEFAULT_TRANSPOSITION_TABLE_SIZE_IN_BITS, false));
+    }
+
+    /**
+     * @param heuristic evaluation function to analyze game state
+     * @param transpositionTable table used to reuse the results of states reached more than once, or null to not
+     *                           use one
+     */
+    public MinimaxAlgorithm(Heuristic heuristic, @Nullable TranspositionTable transpositionTable)
+    {
+        this.heuristicFunction = checkNotNull(heuristic);
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * Sets how many threads are used to search. With more than one thread, the first (best-ordered) child of the
+     * root is searched on its own to get a bound, and then the remaining children of the root are split between the
+     * threads (Young Brothers Wait at the root). Each child is searched with the best bound found by any thread so
+     * far.
+     *
+     * @param threads the number of threads to search with, where 1 searches on the calling thread only
+     */
+    @Override
+    public void setParallelism(int threads)
+    {
+        checkArgument(threads >= 1, "At least one thread is needed to search");
+        if (searchPool != null) {
+            searchPool.shutdown();
+            searchPool = null;
+        }
+        workers = new MinimaxAlgorithm[0];
+
+        if (threads > 1) {
+            searchPool = new ForkJoinPool(threads);
+            workers = new MinimaxAlgorithm[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new MinimaxAlgorithm(heuristicFunction, transpositionTable);
+                copySettingsTo(workers[i]);
+            }
+        }
+    }
+
+    /**
+     * @param worker a Minimax instance which searches on behalf of this one, whose search settings are set to this
+     *               instance's
+     */
+    private void copySettingsTo(MinimaxAlgorithm worker)
+    {
+        worker.ghostPlyMode = ghostPlyMode;
+        worker.ghostModel = ghostModel;
+        worker.chancePruningThreshold = chancePruningThreshold;
+        worker.macroActions = macroActions;
+        worker.principalVariationSearch = principalVariationSearch;
+        worker.quiescenceNodeLimit = quiescenceNodeLimit;
+        worker.timeHeuristic = timeHeuristic;
+    }
+
+    /**
+     * Sets whether to search with macro-actions. Most of Pac-Man's moves are forced steps along a corridor of the
+     * maze, where its only sensible choice is to keep going. With macro-actions, after each ghost ply Pac-Man follows
+     * its corridor to the next junction of the maze's junction graph (or until a power pill is eaten or a ghost comes
+     * near), while each ghost moves towards Pac-Man (or away from it while edible). These steps are simulated without
+     * branching and do not count towards the depth of the tree, so a tree of the same depth looks many more game ticks
+     * ahead. The root still branches on every move, so Pac-Man can turn around in the middle of a corridor.
+     *
+     * @param macroActions should Pac-Man only choose moves at junctions below the root? False by default.
+     */
+    public void setMacroActions(boolean macroActions)
+    {
+        this.macroActions = macroActions;
+        for (MinimaxAlgorithm worker : workers) {
+            worker.macroActions = macroActions;
+        }
+    }
+
+    /**
+     * Sets whether to ponder. When pondering, the position expected at the next call to
+     * createMiniMaxTreeAndGetBestMove is searched on a background thread in the meantime (while the opponent picks
+     * its move and the game advances). The expected position is reached by the move just returned and the
+     * opponent's reply predicted by the principal variation. If the prediction is right, the next search starts from
+     * the depth reached by pondering (see {@link #setTreeReuse}), and a search without a deadline returns at once if
+     * that depth is deep enough. Pondering stops as soon as the next search starts.
+     *
+     * @param ponder should the next position be searched between searches? False by default. Pondering needs a
+     *               transposition table and tree reuse to pass its results on.
+     */
+    public void setPondering(boolean ponder)
+    {
+        if (ponder == (ponderExecutor != null)) {
+            return;
+        }
+        if (ponder) {
+            checkState(transpositionTable != null, "Pondering needs a transposition table");
+            ponderWorker = new MinimaxAlgorithm(heuristicFunction, transpositionTable);
+            ponderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    // Pondering must not keep the program running once the game is over
+                    Thread thread = new Thread(runnable, "minimax-ponder");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            finishPondering(0);
+            ponderExecutor.shutdown();
+            ponderExecutor = null;
+            ponderWorker = null;
+        }
+    }
+
+    /**
+     * @param sink receives the statistics of every call to createMiniMaxTreeAndGetBestMove once it has finished, or
+     *             null to not record them. The time spent in the heuristic is only measured while there is a sink.
+     */
+    public void setMetricsSink(@Nullable SearchMetricsSink sink)
+    {
+        this.metricsSink = sink;
+        this.timeHeuristic = sink != null;
+        for (MinimaxAlgorithm worker : workers) {
+            worker.timeHeuristic = timeHeuristic;
+        }
+    }
+
+    /**
+     * @return fraction of the searches preceded by pondering whose root was the position pondered, or 0 if there
+     * were none
+     */
+    public double getPonderHitRate()
+    {
+        return ponderedSearches == 0 ? 0 : (double) ponderHits / (double) ponderedSearches;
+    }
+
+    /**
+     * @return was the last search preceded by pondering?
+     */
+    public boolean wasLastSearchPondered()
+    {
+        return lastSearchPondered;
+    }
+
+    /**
+     * @return was the root of the last search the position pondered before it?
+     */
+    public boolean wasLastSearchPonderHit()
+    {
+        return lastSearchPonderHit;
+    }
+
+    /**
+     * @return the average depth completed by pondering before the searches which were ponder hits, or 0 if there
+     * were none. Iterative deepening continues from this depth, so it is the extra depth gained by pondering.
+     */
+    public double getAveragePonderedDepth()
+    {
+        return ponderHits == 0 ? 0 : (double) totalPonderedDepth / (double) ponderHits;
+    }
+
+    /**
+     * Sets the shape of the tree created for the ghosts' moves below the root. The children of a ghost root are
+     * always every combination of ghost moves, with one or more threads, so that a parallel search can split them
+     * between threads and the tree does not depend on the number of threads.
+     *
+     * @param mode {@link GhostPlyMode#JOINT} (the default), {@link GhostPlyMode#SEQUENTIAL} or
+     *             {@link GhostPlyMode#EXPECTIMAX}
+     */
+    public void setGhostPlyMode(GhostPlyMode mode)
+    {
+        this.ghostPlyMode = checkNotNull(mode);
+        for (MinimaxAlgorithm worker : workers) {
+            worker.ghostPlyMode = mode;
+        }
+    }
+
+    /**
+     * Sets how the ghosts are expected to move in the expectimax mode
+     *
+     * @param model how likely the ghosts are to make each move, which is uniform by default
+     * @param pruningThreshold combinations of ghost moves less likely than this are not searched, except for the most
+     *                         likely combination of each chance node. 0 searches every combination.
+     */
+    public void setGhostModel(GhostModel model, double pruningThreshold)
+    {
+        checkArgument(pruningThreshold >= 0 && pruningThreshold <= 1, "The threshold must be a probability");
+        this.ghostModel = checkNotNull(model);
+        this.chancePruningThreshold = pruningThreshold;
+        for (MinimaxAlgorithm worker : workers) {
+            worker.ghostModel = model;
+            worker.chancePruningThreshold = pruningThreshold;
+        }
+    }
+
+    /**
+     * Sets whether a search reuses the results of the previous search. The root of the search of each game tick is
+     * usually a grandchild of the previous root, so the transposition table entries, killer moves and best move found
+     * for it by the previous search are kept. Iterative deepening then starts from the depth of the previous search's
+     * exact value for the new root instead of from depth 1. The table is keyed by the Pac-Man move history as well as
+     * the state, so an entry is only reused when the previous search reached the new root with the history it has
+     * now, and reused values are the same as those of a new search. The ghosts' searches do not record Pac-Man's
+     * moves in their history, so for the ghosts only a pondered root is reused.
+     *
+     * @param reuse should the results of the previous search be reused? True by default.
+     */
+    public void setTreeReuse(boolean reuse)
+    {
+        this.treeReuse = reuse;
+    }
+
+    /**
+     * Sets whether to use principal variation search. The first move searched at a node is expected to be the best
+     * because of the move ordering, so every later move is first searched with a null window, which only shows
+     * whether the move is better than the best so far and prunes much more than the full window. Only a move which
+     * turns out to be better is searched again with the full window. Chance nodes always search with a full window.
+     *
+     * @param pvs should moves after the first be searched with a null window first? True by default.
+     */
+    public void setPrincipalVariationSearch(boolean pvs)
+    {
+        this.principalVariationSearch = pvs;
+        for (MinimaxAlgorithm worker : workers) {
+            worker.principalVariationSearch = pvs;
+        }
+    }
+
+    /**
+     * Sets the aspiration window. Each tree of an iterative deepening search is searched with a window of this
+     * half-width around the value of the previous tree, and the first tree around the value found by the previous
+     * call to createMiniMaxTreeAndGetBestMove (the previous game tick). If the value of the root falls outside the
+     * window, the root is searched again with the window widened on that side.
+     *
+     * @param window the half-width of the window, in the units of the heuristic, or 0 to search the root with a full
+     *               window
+     */
+    public void setAspirationWindow(int window)
+    {
+        checkArgument(window >= 0, "The aspiration window cannot be negative");
+        this.aspirationWindow = window;
+    }
+
+    /**
+     * Sets how far the search of leaves which are not quiet is extended. A leaf is not quiet while an unedible ghost
+     * is close to Pac-Man, or a power pill or edible ghost is in Pac-Man's reach, since its value is about to change a
+     * lot. Instead of evaluating such a leaf, the search continues with a narrow set of moves: Pac-Man tries each of
+     * its moves, only the ghost nearest to Pac-Man tries each of its moves, and the other ghosts move towards Pac-Man
+     * (or away from it while edible). The extension stops once the state is quiet, when an unedible ghost catches
+     * Pac-Man (which the state records as Pac-Man being eaten, so the heuristic scores the leaf as such), after
+     * MAX_QUIESCENCE_PLIES plies, or when the extensions of the tree have searched the given number of nodes, which
+     * bounds the extra time each tree can take.
+     *
+     * @param nodeLimit the most nodes the extensions may search in each tree, or 0 to not extend the search (the
+     *                  default)
+     */
+    public void setQuiescence(int nodeLimit)
+    {
+        checkArgument(nodeLimit >= 0, "The node limit cannot be negative");
+        this.quiescenceNodeLimit = nodeLimit;
+        for (MinimaxAlgorithm worker : workers) {
+            worker.quiescenceNodeLimit = nodeLimit;
+        }
+    }
+
+    /**
+     * @param depth the depth of the tree created by getBestMove when there is no deadline
+     */
+    public void setFixedDepth(int depth)
+    {
+        checkArgument(depth >= 0, "The depth of a tree cannot be negative");
+        this.fixedDepth = depth;
+    }
+
+    @Override
+    public MoveNumber getBestMove(Game game, boolean isPacMan, long timeDue)
+    {
+        return createMiniMaxTreeAndGetBestMove(game, fixedDepth, isPacMan, timeDue);
+    }
+
+    /**
+     * @param game state of a Pac-Man game
+     * @param depth the depth of the Minimax tree to create
+     * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
+     * @param alpha the alpha value for alpha-beta pruning, or NEGATIVE_INFINITY
+     * @param beta the beta value for alpha-beta pruning, or POSITIVE_INFINITY. With a full window, the root is
+     *             searched with an aspiration window around the value of the previous search.
+     * @return the best move for either Pac-Man or the ghosts in the given game
+     */
+    public MoveNumber createMiniMaxTreeAndGetBestMove(Game game, int depth, boolean isPacMan, int alpha, int beta)
+    {
+        checkArgument(alpha < beta, "The alpha value must be below the beta value");
+        long startTime = System.nanoTime();
+        searchDeadline = -1;
+        searchAborted = false;
+        recordPacManMoveMade(game, isPacMan);
+        SimulationState state = SimulationState.fromGame(game, isPacMan);
+        long previousRootEntry = startSearch(state);
+        MoveNumber moveNumber = seedFromPreviousSearch(state, isPacMan, previousRootEntry);
+        boolean isFullWindow = alpha == NEGATIVE_INFINITY && beta == POSITIVE_INFINITY;
+        if (moveNumber != null && TranspositionTable.getDepth(previousRootEntry) >= depth && isFullWindow) {
+            // An earlier search (such as pondering) already found the value of the root at this depth
+            statistics.previousSearchReused(TranspositionTable.getDepth(previousRootEntry));
+        } else if (isFullWindow) {
+            boolean hasExpectedValue = moveNumber != null || hasPreviousSearchValue;
+            int expectedValue = moveNumber != null ? moveNumber.hValue : previousSearchValue;
+            moveNumber = aspirationSearch(state, depth, isPacMan, hasExpectedValue, expectedValue);
+        } else {
+            MoveHistory copyOfMoveHistory = new MoveHistory(moveHistory);
+            moveNumber = searchRoot(state, depth, isPacMan, alpha, beta, copyOfMoveHistory);
+        }
+        lastSearchDepth = depth;
+        previousSearchValue = moveNumber.hValue;
+        hasPreviousSearchValue = true;
+        recordMove(moveNumber, isPacMan);
+        finishStatistics(game, isPacMan, startTime);
+        startPondering(state, moveNumber, isPacMan);
+        return moveNumber;
+    }
+
+    /**
+     * Anytime version of Minimax which uses iterative deepening. Trees of depth 1, 2, 3 and so on are created until
+     * the deadline is about to pass, and the best move of the deepest tree which was completely created is returned.
+     * A tree of depth 1 is always completed. If there is no deadline, a single tree of the given depth is created.
+     * When the previous search already found an exact value for the root (see {@link #setTreeReuse}), that result is
+     * used in place of the shallower trees and iterative deepening continues from the next depth. Each tree is
+     * searched with an aspiration window around the value of the previous tree (see {@link #setAspirationWindow}).
+     *
+     * @param game state of a Pac-Man game
+     * @param depth the depth of the Minimax tree to create if there is no deadline
+     * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
+     * @param timeDue the time (in milliseconds) by which a move must be returned, or a value of 0 or less if there
+     *                is no deadline
+     * @return the best move for either Pac-Man or the ghosts in the given game
+     */
+    public MoveNumber createMiniMaxTreeAndGetBestMove(Game game, int depth, boolean isPacMan, long timeDue)
+    {
+        if (timeDue <= 0) {
+            return createMiniMaxTreeAndGetBestMove(game, depth, isPacMan, NEGATIVE_INFINITY, POSITIVE_INFINITY);
+        }
+
+        long startTime = System.nanoTime();
+        recordPacManMoveMade(game, isPacMan);
+        SimulationState state = SimulationState.fromGame(game, isPacMan);
+        long previousRootEntry = startSearch(state);
+        MoveNumber bestMove = seedFromPreviousSearch(state, isPacMan, previousRootEntry);
+        int completedDepth = 0;
+        if (bestMove != null) {
+            completedDepth = TranspositionTable.getDepth(previousRootEntry);
+            statistics.previousSearchReused(completedDepth);
+        }
+        // The value of each tree is expected to be close to the value of the tree before it, or of the previous tick
+        boolean hasExpectedValue = bestMove != null || hasPreviousSearchValue;
+        int expectedValue = bestMove != null ? bestMove.hValue : previousSearchValue;
+        for (int currentDepth = completedDepth + 1; currentDepth <= MAX_ITERATIVE_DEEPENING_DEPTH; currentDepth++) {
+            // The first tree is always completed so that there is a move to return
+            searchDeadline = bestMove == null ? -1 : timeDue - DEADLINE_SAFETY_MARGIN;
+            searchAborted = false;
+            if (searchDeadline != -1 && System.currentTimeMillis() >= searchDeadline) {
+                break;
+            }
+
+            MoveNumber moveNumber = aspirationSearch(state, currentDepth, isPacMan, hasExpectedValue, expectedValue);
+            if (searchAborted) {
+                // The tree was only partially created so its result cannot be trusted
+                break;
+            }
+            bestMove = moveNumber;
+            completedDepth = currentDepth;
+            hasExpectedValue = true;
+            expectedValue = moveNumber.hValue;
+
+            // Deeper trees will not change anything if the game ends before this depth is reached
+            if (moveNumber.move == null && moveNumber.ghostMoves == null) {
+                break;
+            }
+        }
+        searchDeadline = -1;
+        searchAborted = false;
+
+        lastSearchDepth = completedDepth;
+        previousSearchValue = bestMove.hValue;
+        hasPreviousSearchValue = true;
+        recordMove(bestMove, isPacMan);
+        finishStatistics(game, isPacMan, startTime);
+        startPondering(state, bestMove, isPacMan);
+        return bestMove;
+    }
+
+    /**
+     * @return the depth of the tree created by the last call to createMiniMaxTreeAndGetBestMove. For iterative
+     * deepening searches, this is the depth of the deepest tree which was completely created.
+     */
+    @Override
+    public int getLastSearchDepth()
+    {
+        return lastSearchDepth;
+    }
+
+    /**
+     * @return counters for the work done by the last call to createMiniMaxTreeAndGetBestMove
+     */
+    public SearchStatistics getLastSearchStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Resets the per-search state before a call to createMiniMaxTreeAndGetBestMove creates any trees. If tree reuse is
+     * on and the previous search stored the root in the transposition table, the root was in the previous tree, so
+     * the table entries and killer moves of the previous search are kept.
+     *
+     * @param root the state at the root of the new search
+     * @return the transposition table entry of the previous search for the root, or TranspositionTable.NOT_FOUND if
+     * the previous search is not reused
+     */
+    private long startSearch(SimulationState root)
+    {
+        statistics = new SearchStatistics();
+        // The root was copied from the game
+        statistics.stateCopied();
+        long rootHash = tableKey(root, moveHistory);
+        finishPondering(rootHash);
+        long previousRootEntry = TranspositionTable.NOT_FOUND;
+        if (treeReuse && transpositionTable != null) {
+            previousRootEntry = transpositionTable.probe(rootHash);
+        }
+
+        if (previousRootEntry != TranspositionTable.NOT_FOUND) {
+            statistics.previousSearchReused(0);
+            // The root is searched again (such as by a benchmark) or is a grandchild of the previous root
+            int pliesPlayed = rootHash == previousRootHash ? 0 : PLIES_PER_TICK;
+            moveOrdering.continueSearch(pliesPlayed);
+            for (MinimaxAlgorithm worker : workers) {
+                worker.moveOrdering.continueSearch(pliesPlayed);
+            }
+            transpositionTable.newSearchKeepingEntries();
+        } else {
+            moveOrdering.newSearch();
+            for (MinimaxAlgorithm worker : workers) {
+                worker.moveOrdering.newSearch();
+            }
+            if (transpositionTable != null) {
+                transpositionTable.newSearch();
+            }
+        }
+        previousRootHash = rootHash;
+        return previousRootEntry;
+    }
+
+    /**
+     * Completes the statistics of a call to createMiniMaxTreeAndGetBestMove and passes them to the metrics sink
+     *
+     * @param game the game which was searched
+     * @param isPacMan was the search for Pac-Man? (Else, the ghosts)
+     * @param startTime the value of System.nanoTime() when the search started
+     */
+    private void finishStatistics(Game game, boolean isPacMan, long startTime)
+    {
+        statistics.searchFinished(isPacMan, game.getTotalTime(), lastSearchDepth, System.nanoTime() - startTime);
+        if (metricsSink != null) {
+            metricsSink.record(statistics);
+        }
+    }
+
+    /**
+     * Starts pondering on the position expected at the next search, if pondering is on and the opponent's reply to
+     * the given move is known
+     *
+     * @param root the state at the root of the search which just finished
+     * @param bestMove the move which the search returned
+     * @param isPacMan was the search for Pac-Man? (Else, the ghosts)
+     */
+    private void startPondering(SimulationState root, MoveNumber bestMove, final boolean isPacMan)
+    {
+        if (ponderExecutor == null || bestMove == null || (isPacMan ? bestMove.move == null :
+                bestMove.ghostMoves == null)) {
+            return;
+        }
+
+        // The opponent's predicted reply is the best move stored for the child of the root on the principal variation
+        final SimulationState nextRoot = root.copy();
+        if (isPacMan) {
+            nextRoot.applyPacManMove(bestMove.move);
+        } else {
+            nextRoot.applyGhostMoves(GhostCombinations.toArray(GhostCombinations.encode(bestMove.ghostMoves)));
+        }
+        // Pac-Man's move has already been added to moveHistory by recordMove, and the ghosts' moves do not change it
+        long entry = transpositionTable.probe(tableKey(nextRoot, moveHistory));
+        if (entry == TranspositionTable.NOT_FOUND || !isPossibleMove(nextRoot, !isPacMan,
+                TranspositionTable.getBestMove(entry))) {
+            return;
+        }
+        int reply = TranspositionTable.getBestMove(entry);
+        long nextMoveHistory = moveHistory;
+        if (isPacMan) {
+            nextRoot.applyGhostMoves(GhostCombinations.toArray(reply));
+        } else {
+            nextRoot.applyPacManMove(MOVES[reply]);
+            // The next search for the ghosts adds the move Pac-Man made to the history (see recordPacManMoveMade)
+            nextMoveHistory = MoveHistory.append(moveHistory, MOVES[reply]);
+        }
+
+        copySettingsTo(ponderWorker);
+        ponderWorker.stopRequested = false;
+        ponderWorker.ponderedDepth = 0;
+        ponderedRootHash = tableKey(nextRoot, nextMoveHistory);
+        final MoveHistory copyOfMoveHistory = new MoveHistory(nextMoveHistory);
+        ponderTask = ponderExecutor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ponderWorker.ponder(nextRoot, isPacMan, copyOfMoveHistory);
+            }
+        });
+    }
+
+    /**
+     * Run on the pondering thread: creates deeper and deeper trees for the given state until the searching thread
+     * asks for pondering to stop. Each completed tree stores the value and best move of the state in the shared
+     * transposition table.
+     *
+     * @param state the state expected at the root of the next search, which is owned by this method
+     * @param isPacMan will the next search be for Pac-Man? (Else, the ghosts)
+     * @param moveHistoryCopy a copy of the move history which is owned by this method
+     */
+    private void ponder(SimulationState state, boolean isPacMan, MoveHistory moveHistoryCopy)
+    {
+        statistics = new SearchStatistics();
+        moveOrdering.newSearch();
+        searchDeadline = -1;
+        searchAborted = false;
+        for (int depth = 1; depth <= MAX_ITERATIVE_DEEPENING_DEPTH && !isEndGameState(state); depth++) {
+            quiescenceNodesLeft = quiescenceNodeLimit;
+            createMiniMaxTreeAndGetBestMoveHelper(state, depth, 0, isPacMan, NEGATIVE_INFINITY, POSITIVE_INFINITY,
+                    moveHistoryCopy);
+            if (searchAborted) {
+                break;
+            }
+            ponderedDepth = depth;
+        }
+    }
 
     /**
-     * @param heuristic evaluation function to analyze game state
+     * Stops pondering (if it is running) and waits for the pondering thread to finish, so that the search of the
+     * given root does not share the transposition table with it
+     *
+     * @param rootHash the transposition table key of the root of the search which is starting, used to count ponder
+     *                 hits
      */
-    public MinimaxAlgorithm(Heuristic heuristic)
+    private void finishPondering(long rootHash)
     {
-        this.heuristicFunction = checkNotNull(heuristic);
-        this.moveHistory = Lists.newLinkedList();
+        lastSearchPondered = false;
+        lastSearchPonderHit = false;
+        if (ponderTask == null) {
+            return;
+        }
+        ponderWorker.stopRequested = true;
+        try {
+            ponderTask.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            ponderTask = null;
+        }
+
+        ponderedSearches++;
+        lastSearchPondered = true;
+        if (rootHash == ponderedRootHash) {
+            lastSearchPonderHit = true;
+            ponderHits++;
+            totalPonderedDepth += ponderWorker.ponderedDepth;
+        }
     }
 
     /**
-     * @param game state of a Pac-Man game
-     * @param depth the depth of the Minimax tree to create
+     * @param state state at the root of the new search
+     * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
+     * @param previousRootEntry the transposition table entry of the previous search for the root, or
+     *                          TranspositionTable.NOT_FOUND
+     * @return the best move and exact value which the previous search found for the root, or null if there is none or
+     * the stored move is not possible (which means that the entry was for another state with the same hash)
+     */
+    @Nullable
+    private static MoveNumber seedFromPreviousSearch(SimulationState state, boolean isPacMan, long previousRootEntry)
+    {
+        if (previousRootEntry == TranspositionTable.NOT_FOUND ||
+                TranspositionTable.getBoundType(previousRootEntry) != TranspositionTable.EXACT ||
+                TranspositionTable.getBestMove(previousRootEntry) == TranspositionTable.NO_MOVE ||
+                TranspositionTable.getDepth(previousRootEntry) >= MAX_ITERATIVE_DEEPENING_DEPTH) {
+            return null;
+        }
+
+        int encodedMove = TranspositionTable.getBestMove(previousRootEntry);
+        if (!isPossibleMove(state, isPacMan, encodedMove)) {
+            return null;
+        }
+        MoveNumber seed = new MoveNumber(null, TranspositionTable.getValue(previousRootEntry));
+        if (isPacMan) {
+            seed.setMove(MOVES[encodedMove]);
+        } else {
+            seed.setEncodedGhostMoves(encodedMove);
+            seed.setGhostMoves(GhostCombinations.toMap(encodedMove));
+        }
+        return seed;
+    }
+
+    /**
+     * @param state state of a Pac-Man game
+     * @param isPacMan is the move for Pac-Man? (Else, the ghosts)
+     * @param encodedMove a move encoded as in the transposition table
+     * @return can the move be made in the state? A stored move which cannot be made means that the entry was for
+     * another state with the same hash.
+     */
+    private static boolean isPossibleMove(SimulationState state, boolean isPacMan, int encodedMove)
+    {
+        if (isPacMan) {
+            return encodedMove < NUM_MOVES &&
+                    Arrays.asList(state.getPossiblePacManMoves()).contains(MOVES[encodedMove]);
+        }
+        if (encodedMove == TranspositionTable.NO_MOVE) {
+            return false;
+        }
+        for (GHOST ghost : GHOSTS) {
+            if (!Arrays.asList(state.getPossibleGhostMoves(ghost)).contains(GhostCombinations.getMove(encodedMove,
+                    ghost))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the root with a narrow window around its expected value, which prunes much more than a full window.
+     * If the value of the root falls outside the window, it is only a bound on the true value (and the best move
+     * cannot be trusted), so the root is searched again with the window widened on the side that failed.
+     *
+     * @param state state of a Pac-Man game
+     * @param depth the depth of the tree to create
+     * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
+     * @param hasExpectedValue is there an expected value for the root? If not, the root is searched with a full
+     *                         window.
+     * @param expectedValue the expected value of the root, such as the value of the previous tree
+     * @return the best move, or the result of an abandoned search if the deadline passed
+     */
+    private MoveNumber aspirationSearch(SimulationState state, int depth, boolean isPacMan, boolean hasExpectedValue,
+                                        int expectedValue)
+    {
+        if (!hasExpectedValue || aspirationWindow == 0 || depth == 0 || isEndGameState(state)) {
+            return searchRoot(state, depth, isPacMan, NEGATIVE_INFINITY, POSITIVE_INFINITY,
+                    new MoveHistory(moveHistory));
+        }
+
+        // The widths are longs so that widening them cannot overflow before the window becomes a full window
+        long lowerWidth = aspirationWindow;
+        long upperWidth = aspirationWindow;
+        while (true) {
+            int alpha = (int) Math.max(NEGATIVE_INFINITY, expectedValue - lowerWidth);
+            int beta = (int) Math.min(POSITIVE_INFINITY, expectedValue + upperWidth);
+            MoveNumber moveNumber = searchRoot(state, depth, isPacMan, alpha, beta, new MoveHistory(moveHistory));
+            if (searchAborted) {
+                return moveNumber;
+            }
+            if (moveNumber.hValue <= alpha && alpha != NEGATIVE_INFINITY) {
+                lowerWidth *= ASPIRATION_WIDENING_FACTOR;
+            } else if (moveNumber.hValue >= beta && beta != POSITIVE_INFINITY) {
+                upperWidth *= ASPIRATION_WIDENING_FACTOR;
+            } else {
+                return moveNumber;
+            }
+            statistics.aspirationResearched();
+        }
+    }
+
+    /**
+     * @param state state of a Pac-Man game
+     * @param depth the depth of the tree to create
+     * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
+     * @param alpha the alpha value for alpha-beta pruning
+     * @param beta the beta value for alpha-beta pruning
+     * @param moveHistoryCopy a copy of the move history which is owned by this search
+     * @return the best move found by a single-threaded or parallel search, depending on the parallelism set
+     */
+    private MoveNumber searchRoot(SimulationState state, int depth, boolean isPacMan, int alpha, int beta,
+                                  MoveHistory moveHistoryCopy)
+    {
+        quiescenceNodesLeft = quiescenceNodeLimit;
+        if (searchPool == null || depth == 0 || isEndGameState(state)) {
+            return createMiniMaxTreeAndGetBestMoveHelper(state, depth, 0, isPacMan, alpha, beta, moveHistoryCopy);
+        }
+        return parallelRootSearch(state, depth, isPacMan, alpha, beta, moveHistoryCopy);
+    }
+
+    /**
+     * Searches the root on this thread and its children on the threads of searchPool. The eldest (first-ordered)
+     * child is searched first on its own so that the other children can be searched with a bound.
+     *
+     * @param state state of a Pac-Man game which is not an end game state
+     * @param depth the depth of the tree to create, which is at least 1
      * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
      * @param alpha the alpha value for alpha-beta pruning
      * @param beta the beta value for alpha-beta pruning
+     * @param moveHistoryCopy a copy of the move history which is owned by this search
      * @return the best move for either Pac-Man or the ghosts in the given game
      */
-    public MoveNumber createMiniMaxTreeAndGetBestMove(Game game, int depth, boolean isPacMan,
-                                                      Optional<Integer> alpha, Optional<Integer> beta)
+    private MoveNumber parallelRootSearch(SimulationState state, final int depth, final boolean isPacMan,
+                                          final int alpha, final int beta, MoveHistory moveHistoryCopy)
     {
-        Queue<MOVE> copyOfMoveHistory = new LinkedList<>(moveHistory);
-        MoveNumber moveNumber = createMiniMaxTreeAndGetBestMoveHelper(game, depth, isPacMan, alpha, beta,
-                copyOfMoveHistory);
-        if (isPacMan && moveNumber.move != null) {
-            moveHistory.add(moveNumber.move);
+        statistics.nodeSearched();
+        long hash = tableKey(state, moveHistoryCopy.getPacked());
+        int hashMove = TranspositionTable.NO_MOVE;
+        if (transpositionTable != null) {
+            long entry = transpositionTable.probe(hash);
+            if (entry != TranspositionTable.NOT_FOUND) {
+                hashMove = TranspositionTable.getBestMove(entry);
+            }
         }
-        if (moveHistory.size() > 20) {
-            moveHistory.remove();
+        final List<RootChild> children = createRootChildren(state, isPacMan, moveHistoryCopy, hashMove);
+
+        // Young brothers wait for their eldest brother to be searched so that they can be searched with a bound
+        RootChild eldest = children.get(0);
+        MoveNumber eldestResult = createMiniMaxTreeAndGetBestMoveHelper(eldest.state, depth - 1, 1, !isPacMan,
+                alpha, beta, eldest.moveHistory);
+        if (searchAborted) {
+            return eldestResult;
+        }
+
+        // Children which are not searched because the root was cut off keep a null result
+        final MoveNumber[] results = new MoveNumber[children.size()];
+        results[0] = eldestResult;
+        final AtomicInteger sharedBound = new AtomicInteger(isPacMan ? Math.max(alpha, eldestResult.hValue) :
+                Math.min(beta, eldestResult.hValue));
+        final AtomicInteger nextChild = new AtomicInteger(1);
+        final List<RecursiveAction> workerTasks = Lists.newArrayList();
+        for (final MinimaxAlgorithm worker : workers) {
+            worker.statistics = new SearchStatistics();
+            worker.quiescenceNodesLeft = worker.quiescenceNodeLimit;
+            worker.searchDeadline = searchDeadline;
+            worker.searchAborted = false;
+            workerTasks.add(new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    worker.searchRootChildren(children, results, nextChild, sharedBound, depth, isPacMan, alpha,
+                            beta);
+                }
+            });
+        }
+        searchPool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                invokeAll(workerTasks);
+            }
+        });
+
+        for (MinimaxAlgorithm worker : workers) {
+            statistics.add(worker.statistics);
+            searchAborted |= worker.searchAborted;
+        }
+        if (searchAborted) {
+            // Some children were not searched, so the result is ignored by the caller
+            return eldestResult;
+        }
+
+        // Pick the best child, preferring earlier children on ties just like the single-threaded search
+        int bestIndex = 0;
+        for (int i = 1; i < results.length; i++) {
+            boolean isBetter = results[i] != null && (isPacMan ? results[i].hValue > results[bestIndex].hValue :
+                    results[i].hValue < results[bestIndex].hValue);
+            if (isBetter) {
+                bestIndex = i;
+            }
+        }
+        MoveNumber best = results[bestIndex];
+        RootChild bestChild = children.get(bestIndex);
+        int bestMove;
+        if (isPacMan) {
+            best.setMove(bestChild.move);
+            bestMove = bestChild.move.ordinal();
+        } else {
+            best.setEncodedGhostMoves(bestChild.ghostMoves);
+            best.setGhostMoves(GhostCombinations.toMap(bestChild.ghostMoves));
+            bestMove = bestChild.ghostMoves;
+        }
+        if (transpositionTable != null && !searchAborted) {
+            transpositionTable.store(hash, depth, boundType(best.hValue, alpha, beta), bestMove, best.hValue);
+        }
+        return best;
+    }
+
+    /**
+     * Run by a worker: repeatedly takes the next unsearched child of the root and searches it with the best bound
+     * found so far, until there are no children left, the root is cut off or the deadline passes. With principal
+     * variation search, each child is first searched with a null window at the bound.
+     *
+     * @param children the children of the root, in search order
+     * @param results the value of each child is saved here
+     * @param nextChild index of the next child which no worker has started searching
+     * @param sharedBound the best value of the root found so far by any thread
+     * @param depth the depth of the tree below the root
+     * @param isPacMan is the root a Pac-Man node? (Else, a ghost node)
+     * @param alpha the alpha value the root is searched with
+     * @param beta the beta value the root is searched with
+     */
+    private void searchRootChildren(List<RootChild> children, MoveNumber[] results, AtomicInteger nextChild,
+                                    AtomicInteger sharedBound, int depth, boolean isPacMan, int alpha, int beta)
+    {
+        int childIndex;
+        while (!searchAborted && (childIndex = nextChild.getAndIncrement()) < children.size()) {
+            RootChild child = children.get(childIndex);
+            // Pac-Man only cares about children better than the best so far, and the ghosts the same
+            int bound = sharedBound.get();
+            int childAlpha = isPacMan ? bound : alpha;
+            int childBeta = isPacMan ? beta : bound;
+            if (childAlpha >= childBeta) {
+                // Another child was good enough to cut off the root
+                return;
+            }
+            MoveNumber result;
+            if (principalVariationSearch) {
+                result = createMiniMaxTreeAndGetBestMoveHelper(child.state, depth - 1, 1, !isPacMan,
+                        isPacMan ? bound : bound - 1, isPacMan ? bound + 1 : bound, child.moveHistory);
+                if (!searchAborted && result.hValue > childAlpha && result.hValue < childBeta) {
+                    statistics.nullWindowResearched();
+                    result = createMiniMaxTreeAndGetBestMoveHelper(child.state, depth - 1, 1, !isPacMan,
+                            childAlpha, childBeta, child.moveHistory);
+                }
+            } else {
+                result = createMiniMaxTreeAndGetBestMoveHelper(child.state, depth - 1, 1, !isPacMan, childAlpha,
+                        childBeta, child.moveHistory);
+            }
+            results[childIndex] = result;
+            if (searchAborted) {
+                return;
+            }
+
+            do {
+                bound = sharedBound.get();
+            } while ((isPacMan ? result.hValue > bound : result.hValue < bound) &&
+                    !sharedBound.compareAndSet(bound, result.hValue));
+        }
+    }
+
+    /**
+     * @param state the state at the root
+     * @param isPacMan is the root a Pac-Man node? (Else, a ghost node)
+     * @param moveHistoryCopy the move history at the root
+     * @param hashMove the encoded best move from the transposition table, or TranspositionTable.NO_MOVE
+     * @return the children of the root in the order they should be searched, each with its own copy of the state
+     * and move history so that they can be searched on different threads
+     */
+    private List<RootChild> createRootChildren(SimulationState state, boolean isPacMan, MoveHistory moveHistoryCopy,
+                                               int hashMove)
+    {
+        List<RootChild> children = Lists.newArrayList();
+        if (isPacMan) {
+            for (MOVE move : moveOrdering.orderPacManMoves(state.getPossiblePacManMoves(),
+                    state.getPacmanCurrentNodeIndex(), 0, hashMove)) {
+                SimulationState childState = state.copy();
+                statistics.stateCopied();
+                childState.applyPacManMove(move);
+                MoveHistory copyOfMoveHistory = moveHistoryCopy.copy();
+                copyOfMoveHistory.push(move);
+                children.add(new RootChild(childState, copyOfMoveHistory, move, TranspositionTable.NO_MOVE));
+            }
+        } else {
+            int count = ghostCombinations.generate(state, 0);
+            int[] combinations = ghostCombinations.getCombinations(0);
+            moveOrdering.orderGhostCombinations(combinations, count, state, 0, hashMove);
+            for (int i = 0; i < count; i++) {
+                SimulationState childState = state.copy();
+                statistics.stateCopied();
+                MoveHistory copyOfMoveHistory = moveHistoryCopy.copy();
+                childState.applyGhostMoves(ghostCombinations.decode(combinations[i], 0));
+                followCorridor(childState, 0, copyOfMoveHistory);
+                children.add(new RootChild(childState, copyOfMoveHistory, null, combinations[i]));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * @param state state of a Pac-Man game
+     * @param packedHistory the Pac-Man move history in the state, packed by {@link MoveHistory}
+     * @return the key of the state in the transposition table, which includes the move history since the heuristics
+     * read it
+     */
+    private static long tableKey(SimulationState state, long packedHistory)
+    {
+        return state.getHash() ^ ZobristHash.historyKey(packedHistory);
+    }
+
+    /**
+     * When searching for the ghosts, adds the move Pac-Man made since the previous search to the move history, so that
+     * the history at the root is the one the previous tree had below its ghost and Pac-Man moves. A search for Pac-Man
+     * records its own moves instead (see recordMove).
+     *
+     * @param game the game about to be searched
+     * @param isPacMan is the search for Pac-Man? (Else, the ghosts)
+     */
+    private void recordPacManMoveMade(Game game, boolean isPacMan)
+    {
+        // Pac-Man only stands still when the level or its position is reset, which the tree does not simulate
+        if (!isPacMan && previousSearchTick != -1 && game.getTotalTime() != previousSearchTick &&
+                game.getPacmanLastMoveMade() != MOVE.NEUTRAL) {
+            moveHistory = MoveHistory.append(moveHistory, game.getPacmanLastMoveMade());
+        }
+        previousSearchTick = game.getTotalTime();
+    }
+
+    /**
+     * @param moveNumber the result of a search which is about to be returned
+     * @param isPacMan was the search performed for Pac-Man? (Else, the ghosts)
+     */
+    private void recordMove(MoveNumber moveNumber, boolean isPacMan)
+    {
+        if (isPacMan && moveNumber.move != null) {
+            moveHistory = MoveHistory.append(moveHistory, moveNumber.move);
         }
-        return moveNumber;
     }
 
     /**
-     * @param game copy of the current game
+     * @param state state of the current game, which is changed while creating the tree but restored before returning
      * @param depth the depth of the tree to create
+     * @param ply how many moves the given state is below the root of the tree
      * @param isPacMan are the next branches to create for PacMan? (Else, the ghosts)
      * @param alpha the alpha value for alpha-beta pruning
      * @param beta the beta value for alpha-beta pruning
+     * @param moveHistoryCopy the Pac-Man move history, which is restored before returning just like the state
      * @return a state-space search tree in which the leaves have been assigned values based on a heuristic. High
      * values represent PacMan winning while low values represent the ghosts winning.
      */
-    private MoveNumber createMiniMaxTreeAndGetBestMoveHelper(Game game, int depth, boolean isPacMan,
-                                                             Optional<Integer> alpha, Optional<Integer> beta,
-                                                             Queue<MOVE> moveHistoryCopy)
+    private MoveNumber createMiniMaxTreeAndGetBestMoveHelper(SimulationState state, int depth, int ply,
+                                                             boolean isPacMan, int alpha, int beta,
+                                                             MoveHistory moveHistoryCopy)
     {
-        Optional<Integer> newAlpha = alpha;
-        Optional<Integer> newBeta = beta;
+        // Give up on this tree if it cannot be completed in time. The value returned is ignored by the caller.
+        if (isPastDeadline()) {
+            return new MoveNumber(null, 0);
+        }
+        statistics.nodeSearched();
 
         // If there are no more branches to make or this is a terminal node
-        if (depth == 0 || isEndGameState(game)) {
-            return new MoveNumber(null, heuristicFunction.heuristicVal(game, moveHistoryCopy));
-        } else if (isPacMan) {
-            Optional<MoveNumber> val = Optional.absent();
+        if (depth == 0 || isEndGameState(state)) {
+            if (depth == 0 && ply > 0 && quiescenceNodeLimit > 0 && !isEndGameState(state) && !isQuiet(state)) {
+                long extensionStartTime = System.nanoTime();
+                int nodesLeft = quiescenceNodesLeft;
+                int value = quiescenceSearch(state, ply, MAX_QUIESCENCE_PLIES, isPacMan, alpha, beta,
+                        moveHistoryCopy);
+                statistics.quiescenceExtended(nodesLeft - quiescenceNodesLeft, System.nanoTime() - extensionStartTime);
+                return new MoveNumber(null, value);
+            }
+            return new MoveNumber(null, evaluateLeaf(state, moveHistoryCopy));
+        }
+        long hash = tableKey(state, moveHistoryCopy.getPacked());
+
+        // Reuse the result of an earlier search of this state if it was at least as deep. The root must always be
+        // searched so that its best move is known. Otherwise, the best move found earlier is searched first.
+        int hashMove = TranspositionTable.NO_MOVE;
+        if (transpositionTable != null) {
+            long entry = transpositionTable.probe(hash);
+            if (entry == TranspositionTable.NOT_FOUND) {
+                statistics.transpositionMiss();
+            } else {
+                statistics.transpositionHit();
+                if (ply > 0 && TranspositionTable.getDepth(entry) >= depth &&
+                        isUsableTranspositionValue(entry, alpha, beta)) {
+                    statistics.transpositionCutoff();
+                    return new MoveNumber(null, TranspositionTable.getValue(entry));
+                }
+                hashMove = TranspositionTable.getBestMove(entry);
+            }
+        }
+
+        MoveNumber result;
+        int bestMove;
+        if (isPacMan) {
+            MoveNumber val = null;
+            int newAlpha = alpha;
             // Create tree with branches for PacMan's moves at the top
 
-            List<MOVE> possiblePacManMoves =
-                    Arrays.asList(game.getPossibleMoves(game.getPacmanCurrentNodeIndex()));
+            int pacManNode = state.getPacmanCurrentNodeIndex();
+            MOVE[] possiblePacManMoves = moveOrdering.orderPacManMoves(state.getPossiblePacManMoves(),
+                    pacManNode, ply, hashMove);
 
-            for (MOVE move : possiblePacManMoves) {
-                Game nextGameState = stateAfterPacMove(move, game);
-                Queue<MOVE> copyOfMoveHistory = new LinkedList<>(moveHistoryCopy);
-                copyOfMoveHistory.add(move);
-                MoveNumber moveNumber = createMiniMaxTreeAndGetBestMoveHelper(nextGameState, depth - 1, false,
-                        newAlpha, newBeta, copyOfMoveHistory);
+            for (int i = 0; i < possiblePacManMoves.length; i++) {
+                MOVE move = possiblePacManMoves[i];
+                state.applyPacManMove(move);
+                moveHistoryCopy.push(move);
+                MoveNumber moveNumber;
+                if (i == 0 || !principalVariationSearch) {
+                    moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, false, newAlpha,
+                            beta, moveHistoryCopy);
+                } else {
+                    // A null window only shows whether this move is better than the best so far
+                    moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, false, newAlpha,
+                            newAlpha + 1, moveHistoryCopy);
+                    if (!searchAborted && moveNumber.hValue > newAlpha && moveNumber.hValue < beta) {
+                        statistics.nullWindowResearched();
+                        moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, false,
+                                newAlpha, beta, moveHistoryCopy);
+                    }
+                }
+                moveHistoryCopy.pop();
+                state.undo();
                 moveNumber.setMove(move);
-                if (!val.isPresent() || moveNumber.hValue > val.get().hValue) {
-                    val = Optional.of(moveNumber);
+                if (val == null || moveNumber.hValue > val.hValue) {
+                    val = moveNumber;
+                }
+                if (val.hValue > newAlpha) {
+                    newAlpha = val.hValue;
                 }
-                if (!newAlpha.isPresent() || val.get().hValue > newAlpha.get()) {
-                    newAlpha = Optional.of(val.get().hValue);
+                if (searchAborted) {
+                    break;
                 }
-                if (newBeta.isPresent() && newBeta.get() <= newAlpha.get()) {
+                if (beta <= newAlpha) {
+                    statistics.cutoff(ply, i == 0);
+                    moveOrdering.recordPacManCutoff(move, pacManNode, ply, depth);
                     break;
                 }
             }
 
-            return val.get();
+            result = val;
+            bestMove = result.move.ordinal();
+        } else if (ghostPlyMode == GhostPlyMode.EXPECTIMAX && ply > 0) {
+            // The ghosts are expected to move according to the ghost model
+            result = searchChanceNode(state, depth, ply, moveHistoryCopy);
+            bestMove = result.encodedGhostMoves;
+        } else if (ghostPlyMode == GhostPlyMode.SEQUENTIAL && ply > 0) {
+            // Create trees in which the ghosts choose their moves one at a time
+            ghostCombinationsSearched[ply] = 0;
+            result = searchGhostsSequentially(state, depth, ply, 0, 0, 1, hashMove, alpha, beta, moveHistoryCopy);
+            bestMove = result.encodedGhostMoves;
+            if (!searchAborted && result.hValue <= alpha) {
+                statistics.cutoff(ply, ghostCombinationsSearched[ply] == 1);
+                moveOrdering.recordGhostCutoff(bestMove, state, ply, depth);
+            }
         } else {
-            // Create trees for possible ghost moves
+            // Create trees for possible ghost moves. A ghost ply at the root always branches on every combination, so
+            // that the tree has the same shape whether or not the root's children are searched in parallel.
 
-            // Determine possible moves for each ghost
-            Set<MOVE> possibleBlinkyMoves = getPossibleGhostMoves(game, GHOST.BLINKY);
-            Set<MOVE> possibleInkyMoves = getPossibleGhostMoves(game, GHOST.INKY);
-            Set<MOVE> possiblePinkyMoves = getPossibleGhostMoves(game, GHOST.PINKY);
-            Set<MOVE> possibleSueMoves = getPossibleGhostMoves(game, GHOST.SUE);
             // Determine all possible combinations of ghost moves that can occur
-            Set<Map<GHOST, MOVE>> possibleGhostCombinations = calculateGhostCombinations(possibleBlinkyMoves,
-                    possibleInkyMoves,
-                    possiblePinkyMoves,
-                    possibleSueMoves);
-
-            Optional<MoveNumber> val = Optional.absent();
-            for (Map<GHOST, MOVE> possibleGhostMoves : possibleGhostCombinations) {
-                Game gameStateAfterGhosts = gameStateAfterGhosts(game, possibleGhostMoves);
-                MoveNumber moveNumber = createMiniMaxTreeAndGetBestMoveHelper(gameStateAfterGhosts, depth - 1, true,
-                        newAlpha, newBeta, moveHistoryCopy);
-                moveNumber.setGhostMoves(possibleGhostMoves);
-                if (!val.isPresent() || moveNumber.hValue < val.get().hValue) {
-                    val = Optional.of(moveNumber);
+            int count = ghostCombinations.generate(state, ply);
+            int[] combinations = ghostCombinations.getCombinations(ply);
+            moveOrdering.orderGhostCombinations(combinations, count, state, ply, hashMove);
+
+            MoveNumber val = null;
+            int newBeta = beta;
+            for (int i = 0; i < count; i++) {
+                int possibleGhostMoves = combinations[i];
+                state.applyGhostMoves(ghostCombinations.decode(possibleGhostMoves, ply));
+                int corridorSteps = followCorridor(state, ply, moveHistoryCopy);
+                MoveNumber moveNumber;
+                if (i == 0 || !principalVariationSearch) {
+                    moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, true, alpha,
+                            newBeta, moveHistoryCopy);
+                } else {
+                    // A null window only shows whether these moves are better for the ghosts than the best so far
+                    moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, true,
+                            newBeta - 1, newBeta, moveHistoryCopy);
+                    if (!searchAborted && moveNumber.hValue > alpha && moveNumber.hValue < newBeta) {
+                        statistics.nullWindowResearched();
+                        moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, true, alpha,
+                                newBeta, moveHistoryCopy);
+                    }
+                }
+                undoCorridor(state, corridorSteps, moveHistoryCopy);
+                state.undo();
+                moveNumber.setEncodedGhostMoves(possibleGhostMoves);
+                if (val == null || moveNumber.hValue < val.hValue) {
+                    val = moveNumber;
+                }
+                if (moveNumber.hValue < newBeta) {
+                    newBeta = moveNumber.hValue;
                 }
-                if (!newBeta.isPresent() || moveNumber.hValue < newBeta.get()) {
-                    newBeta = Optional.of(moveNumber.hValue);
+                if (searchAborted) {
+                    break;
                 }
-                if (newAlpha.isPresent() && newBeta.get() <= newAlpha.get()) {
+                if (newBeta <= alpha) {
+                    statistics.cutoff(ply, i == 0);
+                    moveOrdering.recordGhostCutoff(possibleGhostMoves, state, ply, depth);
                     break;
                 }
             }
 
-            return val.get();
+            result = val;
+            bestMove = result.encodedGhostMoves;
+            if (ply == 0) {
+                // Only the moves returned to the controller are turned into a map
+                result.setGhostMoves(GhostCombinations.toMap(bestMove));
+            }
+        }
+
+        if (transpositionTable != null && !searchAborted) {
+            // Chance nodes search every child with an open window, so their values are always exact
+            boolean isChanceNode = !isPacMan && ghostPlyMode == GhostPlyMode.EXPECTIMAX && ply > 0;
+            int boundType = isChanceNode ? TranspositionTable.EXACT : boundType(result.hValue, alpha, beta);
+            transpositionTable.store(hash, depth, boundType, bestMove, result.hValue);
         }
+        return result;
     }
 
     /**
-     * @param game a copy of the current game
-     * @return is the game currently in an end game state?
+     * Creates a chance node whose value is the expected value of its children, with each combination of ghost moves
+     * weighted by its probability according to the ghost model. Combinations less likely than the pruning threshold
+     * are not searched (except for the most likely one), and the probabilities of the searched combinations are
+     * scaled up to add to 1.
+     *
+     * The heuristics have no bounds on their values, so the alpha and beta values cannot be used to prune the
+     * children of a chance node (as in Star1 and Star2 pruning). The children are searched with an open window
+     * instead, which makes the value of the chance node exact.
+     *
+     * @param state state of the current game, which is restored before returning
+     * @param depth the depth of the tree below the chance node
+     * @param ply how many moves the chance node is below the root of the tree
+     * @param moveHistoryCopy the Pac-Man move history, which is restored before returning
+     * @return the expected value of the node, with the most likely combination of ghost moves as its move
+     */
+    private MoveNumber searchChanceNode(SimulationState state, int depth, int ply, MoveHistory moveHistoryCopy)
+    {
+        double[] moveProbabilities = ghostMoveProbabilities[ply];
+        for (GHOST ghost : GHOSTS) {
+            MOVE[] moves = state.getPossibleGhostMoves(ghost);
+            double totalWeight = 0;
+            for (MOVE move : moves) {
+                double weight = move == MOVE.NEUTRAL ? 1 : ghostModel.getMoveWeight(state, ghost, move);
+                moveProbabilities[ghost.ordinal() * NUM_MOVES + move.ordinal()] = weight;
+                totalWeight += weight;
+            }
+            for (MOVE move : moves) {
+                int index = ghost.ordinal() * NUM_MOVES + move.ordinal();
+                moveProbabilities[index] = totalWeight > 0 ? moveProbabilities[index] / totalWeight :
+                        1.0 / moves.length;
+            }
+        }
+
+        int count = ghostCombinations.generate(state, ply);
+        int[] combinations = ghostCombinations.getCombinations(ply);
+        int mostLikelyCombination = combinations[0];
+        double highestProbability = 0;
+        for (int i = 0; i < count; i++) {
+            double probability = combinationProbability(combinations[i], moveProbabilities);
+            if (probability > highestProbability) {
+                highestProbability = probability;
+                mostLikelyCombination = combinations[i];
+            }
+        }
+
+        double expectedValue = 0;
+        double searchedProbability = 0;
+        for (int i = 0; i < count; i++) {
+            double probability = combinationProbability(combinations[i], moveProbabilities);
+            if (probability < chancePruningThreshold && combinations[i] != mostLikelyCombination) {
+                statistics.chanceCombinationPruned();
+                continue;
+            }
+            state.applyGhostMoves(ghostCombinations.decode(combinations[i], ply));
+            int corridorSteps = followCorridor(state, ply, moveHistoryCopy);
+            MoveNumber moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, true,
+                    NEGATIVE_INFINITY, POSITIVE_INFINITY, moveHistoryCopy);
+            undoCorridor(state, corridorSteps, moveHistoryCopy);
+            state.undo();
+            if (searchAborted) {
+                break;
+            }
+            expectedValue += probability * moveNumber.hValue;
+            searchedProbability += probability;
+        }
+
+        int value = searchedProbability > 0 ? (int) Math.round(expectedValue / searchedProbability) : 0;
+        MoveNumber result = new MoveNumber(null, value);
+        result.setEncodedGhostMoves(mostLikelyCombination);
+        return result;
+    }
+
+    /**
+     * @param combination an encoded combination of ghost moves
+     * @param moveProbabilities the probability of each ghost's moves, indexed by
+     *                          [ghost ordinal * number of moves + move ordinal]
+     * @return the probability of the combination, assuming the ghosts choose their moves independently
      */
-    private static boolean isEndGameState(Game game)
+    private static double combinationProbability(int combination, double[] moveProbabilities)
     {
-        return (game.getNumberOfActivePills() == 0 && game.getNumberOfActivePowerPills() == 0) ||
-                game.wasPacManEaten() ||
-                game.gameOver();
+        double probability = 1;
+        for (int ghost = 0; ghost < GHOSTS.length; ghost++) {
+            probability *= moveProbabilities[ghost * NUM_MOVES + combination % NUM_MOVES];
+            combination /= NUM_MOVES;
+        }
+        return probability;
     }
 
     /**
-     * @param pacMove the move which PacMan will take to create a new game state
-     * @param curGame current game (which should not be modified in any way)
-     * @return a copy of the current game except PacMan has taken the given move
+     * Creates the min-ply of one ghost, whose children are the min-plies of the next ghost. After the last ghost has
+     * chosen its move, the combined moves are applied to the state and the tree continues with Pac-Man.
+     *
+     * @param state state of the current game, which is restored before returning
+     * @param depth the depth of the tree below the ghost node, which counts the four ghosts as one move
+     * @param ply how many moves the ghost node is below the root of the tree
+     * @param ghostIndex ordinal of the ghost choosing its move, or the number of ghosts if all have chosen
+     * @param chosenMoves the encoded moves chosen by the ghosts before this one
+     * @param placeValue the place value of this ghost's digit in the encoded moves
+     * @param hashMove the encoded best move from the transposition table, or TranspositionTable.NO_MOVE
+     * @param alpha the alpha value for alpha-beta pruning
+     * @param beta the beta value for alpha-beta pruning
+     * @param moveHistoryCopy the Pac-Man move history, which is restored before returning
+     * @return the best result for the ghosts, with the encoded moves of all four ghosts
      */
-    private static Game stateAfterPacMove(MOVE pacMove, Game curGame)
+    private MoveNumber searchGhostsSequentially(SimulationState state, int depth, int ply, int ghostIndex,
+                                                int chosenMoves, int placeValue, int hashMove, int alpha,
+                                                int beta, MoveHistory moveHistoryCopy)
     {
-        Game copyOfGame = curGame.copy();
-        copyOfGame.updatePacMan(pacMove);
-        return copyOfGame;
+        if (ghostIndex == GHOSTS.length) {
+            ghostCombinationsSearched[ply]++;
+            state.applyGhostMoves(ghostCombinations.decode(chosenMoves, ply));
+            int corridorSteps = followCorridor(state, ply, moveHistoryCopy);
+            MoveNumber moveNumber = createMiniMaxTreeAndGetBestMoveHelper(state, depth - 1, ply + 1, true, alpha,
+                    beta, moveHistoryCopy);
+            undoCorridor(state, corridorSteps, moveHistoryCopy);
+            state.undo();
+            moveNumber.setEncodedGhostMoves(chosenMoves);
+            return moveNumber;
+        }
+
+        GHOST ghost = GHOSTS[ghostIndex];
+        MOVE[] possibleMoves = state.getPossibleGhostMoves(ghost);
+        MOVE[] orderedMoves = ghostCombinations.getOrderedMoveBuffer(ply, ghost);
+        moveOrdering.orderGhostMoves(possibleMoves, ghost, state.getGhostCurrentNodeIndex(ghost), ply, hashMove,
+                orderedMoves);
+
+        int newBeta = beta;
+        MoveNumber val = null;
+        for (int i = 0; i < possibleMoves.length; i++) {
+            int moves = chosenMoves + orderedMoves[i].ordinal() * placeValue;
+            MoveNumber moveNumber;
+            if (i == 0 || !principalVariationSearch) {
+                moveNumber = searchGhostsSequentially(state, depth, ply, ghostIndex + 1, moves,
+                        placeValue * NUM_MOVES, hashMove, alpha, newBeta, moveHistoryCopy);
+            } else {
+                moveNumber = searchGhostsSequentially(state, depth, ply, ghostIndex + 1, moves,
+                        placeValue * NUM_MOVES, hashMove, newBeta - 1, newBeta, moveHistoryCopy);
+                if (!searchAborted && moveNumber.hValue > alpha && moveNumber.hValue < newBeta) {
+                    statistics.nullWindowResearched();
+                    moveNumber = searchGhostsSequentially(state, depth, ply, ghostIndex + 1, moves,
+                            placeValue * NUM_MOVES, hashMove, alpha, newBeta, moveHistoryCopy);
+                }
+            }
+            if (val == null || moveNumber.hValue < val.hValue) {
+                val = moveNumber;
+            }
+            if (moveNumber.hValue < newBeta) {
+                newBeta = moveNumber.hValue;
+            }
+            if (searchAborted) {
+                break;
+            }
+            if (newBeta <= alpha) {
+                break;
+            }
+        }
+        return val;
     }
 
     /**
-     * @param possibleBlinkyMoves possible moves for Blinky ghost
-     * @param possibleInkyMoves possible moves for Inky ghost
-     * @param possiblePinkyMoves possible moves for Pinky ghost
-     * @param possibleSueMoves possible moves for Sue ghost
-     * @return a set containing a representation of all possible move combinations that the ghosts could make
+     * @param entry data found in the transposition table
+     * @param alpha the alpha value of the node being searched
+     * @param beta the beta value of the node being searched
+     * @return can the stored value be used as the value of the node? This is true for exact values and for bounds
+     * which would cause the node to be pruned anyway.
      */
-    private static Set<Map<GHOST, MOVE>> calculateGhostCombinations(Set<MOVE> possibleBlinkyMoves,
-                                                                                 Set<MOVE> possibleInkyMoves,
-                                                                                 Set<MOVE> possiblePinkyMoves,
-                                                                                 Set<MOVE> possibleSueMoves)
+    private static boolean isUsableTranspositionValue(long entry, int alpha, int beta)
     {
-        Set<Map<GHOST, MOVE>> result = Sets.newHashSet();
+        int value = TranspositionTable.getValue(entry);
+        switch (TranspositionTable.getBoundType(entry)) {
+            case TranspositionTable.EXACT:
+                return true;
+            case TranspositionTable.LOWER_BOUND:
+                return value >= beta;
+            case TranspositionTable.UPPER_BOUND:
+                return value <= alpha;
+            default:
+                return false;
+        }
+    }
 
-        for (MOVE blinkyMove : possibleBlinkyMoves) {
-            for (MOVE inkyMove : possibleInkyMoves) {
-                for (MOVE pinkyMove : possiblePinkyMoves) {
-                    for (MOVE sueMove : possibleSueMoves) {
+    /**
+     * @param state state of the game at a leaf of the tree
+     * @param moveHistoryCopy the Pac-Man move history
+     * @return the value of the state according to the heuristic
+     */
+    private int evaluateLeaf(SimulationState state, MoveHistory moveHistoryCopy)
+    {
+        statistics.leafReached(state.getTicksSimulated());
+        if (!timeHeuristic) {
+            statistics.leafEvaluated(0);
+            return heuristicFunction.heuristicVal(state, moveHistoryCopy.getPacked());
+        }
+        long heuristicStartTime = System.nanoTime();
+        int value = heuristicFunction.heuristicVal(state, moveHistoryCopy.getPacked());
+        statistics.leafEvaluated(System.nanoTime() - heuristicStartTime);
+        return value;
+    }
 
-                        Map<GHOST, MOVE> possibleMoveSet = Maps.newHashMap();
-                        possibleMoveSet.put(GHOST.BLINKY, blinkyMove);
-                        possibleMoveSet.put(GHOST.INKY, inkyMove);
-                        possibleMoveSet.put(GHOST.PINKY, pinkyMove);
-                        possibleMoveSet.put(GHOST.SUE, sueMove);
+    /**
+     * @param state state of the game
+     * @return is the state quiet, meaning that no unedible ghost is close to Pac-Man and no power pill or edible ghost
+     * is in Pac-Man's reach? The value of a state which is not quiet is about to change a lot.
+     */
+    private static boolean isQuiet(SimulationState state)
+    {
+        int pacManNode = state.getPacmanCurrentNodeIndex();
+        for (GHOST ghost : GHOSTS) {
+            if (state.getGhostLairTime(ghost) > 0) {
+                continue;
+            }
+            int distance = state.getShortestPathDistance(pacManNode, state.getGhostCurrentNodeIndex(ghost));
+            if (distance <= (state.isGhostEdible(ghost) ? QUIESCENCE_REACH_DISTANCE : QUIESCENCE_GHOST_DISTANCE)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < state.getNumberOfPowerPills(); i++) {
+            if (state.isPowerPillStillAvailable(i) &&
+                    state.getShortestPathDistance(pacManNode, state.getPowerPillNode(i)) <= QUIESCENCE_REACH_DISTANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                        result.add(possibleMoveSet);
-                    }
+    /**
+     * Extends the search below a leaf which is not quiet until the state is quiet, with a narrow set of moves (see
+     * {@link #setQuiescence}). The results are not stored in the transposition table.
+     *
+     * @param state state of the game, which is restored before returning
+     * @param ply how many moves the node is below the root of the tree
+     * @param pliesLeft the most plies the extension may still search below this node
+     * @param isPacMan are the next moves Pac-Man's? (Else, the ghosts')
+     * @param alpha the alpha value for alpha-beta pruning
+     * @param beta the beta value for alpha-beta pruning
+     * @param moveHistoryCopy the Pac-Man move history, which is restored before returning
+     * @return the value of the node
+     */
+    private int quiescenceSearch(SimulationState state, int ply, int pliesLeft, boolean isPacMan, int alpha,
+                                 int beta, MoveHistory moveHistoryCopy)
+    {
+        if (isPastDeadline()) {
+            return 0;
+        }
+        if (pliesLeft == 0 || isEndGameState(state) || (pliesLeft < MAX_QUIESCENCE_PLIES && isQuiet(state))) {
+            return evaluateLeaf(state, moveHistoryCopy);
+        }
+        if (quiescenceNodesLeft <= 0) {
+            statistics.quiescenceLimitReached();
+            return evaluateLeaf(state, moveHistoryCopy);
+        }
+        quiescenceNodesLeft--;
+
+        if (isPacMan) {
+            int best = NEGATIVE_INFINITY;
+            for (MOVE move : state.getPossiblePacManMoves()) {
+                state.applyPacManMove(move);
+                moveHistoryCopy.push(move);
+                int value = quiescenceSearch(state, ply + 1, pliesLeft - 1, false, Math.max(alpha, best), beta,
+                        moveHistoryCopy);
+                moveHistoryCopy.pop();
+                state.undo();
+                best = Math.max(best, value);
+                if (searchAborted || best >= beta) {
+                    break;
                 }
             }
+            return best;
         }
 
-        return result;
+        // Only the ghost nearest to Pac-Man branches, while the others make the move a corridor step would
+        MOVE[] ghostMoves = chooseCorridorGhostMoves(state, ply);
+        int pacManNode = state.getPacmanCurrentNodeIndex();
+        GHOST nearestGhost = GHOSTS[0];
+        int nearestDistance = -1;
+        for (GHOST ghost : GHOSTS) {
+            int distance = state.getShortestPathDistance(pacManNode, state.getGhostCurrentNodeIndex(ghost));
+            if (nearestDistance == -1 || distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestGhost = ghost;
+            }
+        }
+        int best = POSITIVE_INFINITY;
+        for (MOVE move : state.getPossibleGhostMoves(nearestGhost)) {
+            ghostMoves[nearestGhost.ordinal()] = move;
+            state.applyGhostMoves(ghostMoves);
+            int value = quiescenceSearch(state, ply + 1, pliesLeft - 1, true, alpha, Math.min(beta, best),
+                    moveHistoryCopy);
+            state.undo();
+            best = Math.min(best, value);
+            if (searchAborted || best <= alpha) {
+                break;
+            }
+        }
+        return best;
     }
 
     /**
-     * @param game current game (which should not be modified)
-     * @param ghostMoves map of ghosts to the moves they should have performed in result
-     * @return copy of the given game in which the ghosts have performed the given moves
+     * When searching with macro-actions, simulates the forced steps of Pac-Man along its corridor up to the next
+     * junction, stopping early if a power pill is eaten, a ghost comes within CORRIDOR_GHOST_DISTANCE of Pac-Man or
+     * the game ends. Each ghost moves towards Pac-Man at every step (or away from it while edible), which only matters
+     * for the ghosts at junctions. The ghost timers count down at every step, so edible ghosts slow down and turn
+     * dangerous again and ghosts leave the lair. Only Pac-Man being caught is detected, not what follows it or a
+     * ghost being eaten, so the corridor stops before Pac-Man and a ghost can meet and the tree branches there
+     * instead.
+     *
+     * @param state state of the game after a ghost ply, which is left at the end of the corridor
+     * @param ply how many moves the ghost ply is below the root of the tree
+     * @param moveHistoryCopy the Pac-Man move history, to which Pac-Man's steps are added
+     * @return the number of steps simulated, which must be passed to undoCorridor
      */
-    private static Game gameStateAfterGhosts(Game game, Map<GHOST, MOVE> ghostMoves)
+    private int followCorridor(SimulationState state, int ply, MoveHistory moveHistoryCopy)
     {
-        Game copyOfGame = game.copy();
-        // game's method updateGhosts takes in an EnumMap which we have to convert the given map to.
-        EnumMap<GHOST, MOVE> enumMap = new EnumMap<>(GHOST.class);
+        if (!macroActions) {
+            return 0;
+        }
+        int maxSteps = Math.min(state.getStepsToJunction(), MAX_CORRIDOR_STEPS);
+        int steps = 0;
+        while (steps < maxSteps && !isEndGameState(state) && !state.wasPowerPillEaten() &&
+                !isGhostNearPacMan(state)) {
+            MOVE move = state.getPossiblePacManMovesWithoutReversing()[0];
+            state.applyPacManMove(move);
+            moveHistoryCopy.push(move);
+            state.applyGhostMoves(chooseCorridorGhostMoves(state, ply));
+            steps++;
+        }
+        statistics.corridorStepsSimulated(steps);
+        return steps;
+    }
 
-        for (Map.Entry<GHOST, MOVE> ghostMove : ghostMoves.entrySet()) {
-            enumMap.put(ghostMove.getKey(), ghostMove.getValue());
+    /**
+     * @param state state of the game
+     * @return is a ghost outside of the lair within CORRIDOR_GHOST_DISTANCE of Pac-Man?
+     */
+    private static boolean isGhostNearPacMan(SimulationState state)
+    {
+        int pacManNode = state.getPacmanCurrentNodeIndex();
+        for (GHOST ghost : GHOSTS) {
+            if (state.getGhostLairTime(ghost) == 0 && state.getShortestPathDistance(pacManNode,
+                    state.getGhostCurrentNodeIndex(ghost)) <= CORRIDOR_GHOST_DISTANCE) {
+                return true;
+            }
         }
-        copyOfGame.updateGhosts(enumMap);
+        return false;
+    }
 
-        return copyOfGame;
+    /**
+     * @param state state of the game which was changed by followCorridor
+     * @param steps the number of steps returned by followCorridor
+     * @param moveHistoryCopy the Pac-Man move history, from which Pac-Man's steps are removed
+     */
+    private static void undoCorridor(SimulationState state, int steps, MoveHistory moveHistoryCopy)
+    {
+        for (int i = 0; i < steps; i++) {
+            state.undo();
+            state.undo();
+            moveHistoryCopy.pop();
+        }
     }
 
     /**
-     * @param game copy of a game
-     * @param ghost one of the four ghosts
-     * @return set of all possible moves that the given ghost can perform in the given game state
+     * @param state state of the game with the ghosts to move
+     * @param ply how many moves the ghost ply before the corridor is below the root of the tree
+     * @return the move of each ghost which gets it closest to Pac-Man (or furthest from Pac-Man while edible),
+     * indexed by ghost ordinal. The array is reused by later corridors of the same ply.
      */
-    static Set<MOVE> getPossibleGhostMoves(Game game, GHOST ghost)
+    private MOVE[] chooseCorridorGhostMoves(SimulationState state, int ply)
     {
-        Set<MOVE> result = Sets.newHashSet(game.getPossibleMoves(game.getGhostCurrentNodeIndex(ghost),
-                game.getGhostLastMoveMade(ghost)));
+        MOVE[] moves = corridorGhostMoves[ply];
+        int pacManNode = state.getPacmanCurrentNodeIndex();
+        for (GHOST ghost : GHOSTS) {
+            MOVE[] possibleMoves = state.getPossibleGhostMoves(ghost);
+            MOVE bestMove = possibleMoves[0];
+            if (possibleMoves.length > 1) {
+                boolean isEdible = state.isGhostEdible(ghost);
+                int ghostNode = state.getGhostCurrentNodeIndex(ghost);
+                int bestDistance = -1;
+                for (MOVE move : possibleMoves) {
+                    int distance = state.getShortestPathDistance(state.getNeighbour(ghostNode, move), pacManNode);
+                    if (bestDistance == -1 || (isEdible ? distance > bestDistance : distance < bestDistance)) {
+                        bestDistance = distance;
+                        bestMove = move;
+                    }
+                }
+            }
+            moves[ghost.ordinal()] = bestMove;
+        }
+        return moves;
+    }
 
-        if (result.isEmpty()) {
-            // If ghosts can't perform any moves, they have to go in straight line (or the neutral move)
-            return Sets.newHashSet(MOVE.NEUTRAL);
+    /**
+     * @param value the value found for a node
+     * @param alpha the alpha value the node was searched with
+     * @param beta the beta value the node was searched with
+     * @return the kind of bound the value is on the true value of the node, for storing in the transposition table
+     */
+    private static int boundType(int value, int alpha, int beta)
+    {
+        if (value <= alpha) {
+            return TranspositionTable.UPPER_BOUND;
+        } else if (value >= beta) {
+            return TranspositionTable.LOWER_BOUND;
+        } else {
+            return TranspositionTable.EXACT;
+        }
+    }
+
+    /**
+     * @return has the deadline of the current search passed (or has pondering been asked to stop)? If so, the search
+     * is marked as aborted.
+     */
+    private boolean isPastDeadline()
+    {
+        if (!searchAborted && (stopRequested ||
+                (searchDeadline != -1 && System.currentTimeMillis() >= searchDeadline))) {
+            searchAborted = true;
+        }
+        return searchAborted;
+    }
+
+    /**
+     * @param state state of the current game
+     * @return is the game currently in an end game state?
+     */
+    static boolean isEndGameState(SimulationState state)
+    {
+        return (state.getNumberOfActivePills() == 0 && state.getNumberOfActivePowerPills() == 0) ||
+                state.wasPacManEaten() ||
+                state.gameOver();
+    }
+
+    /**
+     * A child of the root of the tree, which a parallel search can search on any thread
+     */
+    private static class RootChild
+    {
+        /**
+         * The state after the move to this child, owned by whichever thread searches this child
+         */
+        private final SimulationState state;
+        /**
+         * The Pac-Man move history after the move to this child, owned by whichever thread searches this child
+         */
+        private final MoveHistory moveHistory;
+        /**
+         * The Pac-Man move to this child, or null if the root is a ghost node
+         */
+        private final MOVE move;
+        /**
+         * The encoded ghost moves to this child, or TranspositionTable.NO_MOVE if the root is a Pac-Man node
+         */
+        private final int ghostMoves;
+
+        RootChild(SimulationState state, MoveHistory moveHistory, @Nullable MOVE move, int ghostMoves)
+        {
+            this.state = checkNotNull(state);
+            this.moveHistory = checkNotNull(moveHistory);
+            this.move = move;
+            this.ghostMoves = ghostMoves;
         }
-        return result;
     }
 
     /**
@@ -253,6 +1862,11 @@ public class MinimaxAlgorithm
          * Moves for the ghosts to use
          */
         public Map<GHOST, MOVE> ghostMoves;
+        /**
+         * Moves for the ghosts encoded by {@link GhostCombinations}, or TranspositionTable.NO_MOVE. Only the result
+         * returned to the controller also has them as a map.
+         */
+        int encodedGhostMoves = TranspositionTable.NO_MOVE;
         /**
          * Heuristic value
          */
@@ -273,5 +1887,10 @@ public class MinimaxAlgorithm
         {
             this.ghostMoves = checkNotNull(ghostMoves);
         }
+
+        void setEncodedGhostMoves(int encodedGhostMoves)
+        {
+            this.encodedGhostMoves = encodedGhostMoves;
+        }
     }
 }
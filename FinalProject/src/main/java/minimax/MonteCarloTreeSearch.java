@@ -0,0 +1,551 @@
+package minimax;
+
+import com.google.common.collect.Lists;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Monte Carlo Tree Search which picks moves in Ms. Pac-Man for either the ghosts or Ms. Pac-Man using UCT. Each
+ * iteration walks down the tree picking the child with the best upper confidence bound, adds the children of the node
+ * it reaches, and plays random moves from there for a few plies. The state reached is then evaluated with a
+ * {@link Heuristic} (a truncated playout) and the value is added to every node on the path. Plies alternate between
+ * Pac-Man and all four ghosts, just like in {@link MinimaxAlgorithm}.
+ *
+ * Unlike Minimax, the search can stop after any iteration, so it uses all of the time before the deadline. The tree is
+ * stored in arrays with room for MAX_TREE_NODES nodes, which are allocated by the first search of each engine, and the
+ * game is simulated on a {@link SimulationState}, so iterations do not allocate. With more than one thread, each
+ * thread grows its own tree from the root (root parallelism) and the visits of the root's children are added up. The
+ * engine which owns the threads then has no tree of its own.
+ */
+public class MonteCarloTreeSearch implements SearchEngine
+{
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final GHOST[] GHOSTS = GHOST.values();
+    /**
+     * How long (in milliseconds) before a move is due that the search stops
+     */
+    private static final long DEADLINE_SAFETY_MARGIN = 5;
+    /**
+     * The default number of playouts when there is no deadline
+     */
+    private static final int DEFAULT_PLAYOUTS_WITHOUT_DEADLINE = 2000;
+    /**
+     * The number of nodes each tree has room for. Once a tree is full, it stops growing but playouts continue.
+     */
+    private static final int MAX_TREE_NODES = 1 << 17;
+    /**
+     * The deepest node a tree can have
+     */
+    private static final int MAX_TREE_DEPTH = 64;
+    /**
+     * The number of plies of random moves played after leaving the tree before the state is evaluated
+     */
+    private static final int PLAYOUT_DEPTH = 10;
+    /**
+     * Weight of exploration against exploitation in the upper confidence bound
+     */
+    private static final double EXPLORATION_CONSTANT = Math.sqrt(2);
+    /**
+     * Marks a node whose children have not been added to the tree
+     */
+    private static final int NOT_EXPANDED = -1;
+    /**
+     * More than the largest move encoding, which is that of a combination of ghost moves
+     */
+    private static final int MAX_ENCODED_MOVES = 5 * 5 * 5 * 5;
+    /**
+     * Seed of the random moves, so that searches can be repeated
+     */
+    private static final long SEED = 5100L;
+    /**
+     * The bytes of memory used by each node of a tree: four ints and a double. Each tree allocates room for
+     * MAX_TREE_NODES nodes, whether or not they are used.
+     */
+    public static final int BYTES_PER_TREE_NODE = 4 * 4 + 8;
+
+    /**
+     * The evaluation function used at the end of each playout
+     */
+    private final Heuristic heuristicFunction;
+    /**
+     * Source of the random moves of the playouts
+     */
+    private final Random random;
+    /**
+     * The last moves returned by getBestMove, packed by {@link MoveHistory}
+     */
+    private long moveHistory = MoveHistory.EMPTY;
+    /**
+     * Generates the combinations of ghost moves of a node when it is expanded
+     */
+    private final GhostCombinations ghostCombinations = new GhostCombinations();
+    /**
+     * The random ghost moves of a playout ply, indexed by ghost ordinal
+     */
+    private final MOVE[] playoutGhostMoves = new MOVE[GHOSTS.length];
+    /**
+     * The nodes from the root to the node reached by the current iteration
+     */
+    private final int[] path = new int[MAX_TREE_DEPTH + 1];
+
+    /**
+     * The index of the first child of each node (the children of a node are next to each other), or NOT_EXPANDED.
+     * The arrays of the tree are null until the engine first searches.
+     */
+    private int[] firstChild = null;
+    private int[] numChildren = null;
+    /**
+     * The move made to reach each node: a MOVE ordinal for Pac-Man or a combination encoded by
+     * {@link GhostCombinations} for the ghosts
+     */
+    private int[] moveToNode = null;
+    private int[] visits = null;
+    /**
+     * The sum of the values of the playouts through each node
+     */
+    private double[] totalValue = null;
+    private int treeSize = 0;
+    /**
+     * The lowest and highest playout values of the current search, used to scale values to between 0 and 1
+     */
+    private double minValue;
+    private double maxValue;
+
+    /**
+     * The number of playouts done by getBestMove when there is no deadline
+     */
+    private int playoutsWithoutDeadline = DEFAULT_PLAYOUTS_WITHOUT_DEADLINE;
+    /**
+     * The number of playouts done by the current (or last) search
+     */
+    private long playouts = 0;
+    /**
+     * The depth of the deepest node reached by the current (or last) search
+     */
+    private int lastSearchDepth = 0;
+    /**
+     * Pool which runs a search on each of the workers at once, or null if the search is single-threaded
+     */
+    private ForkJoinPool searchPool = null;
+    /**
+     * One engine per thread of searchPool, each growing its own tree
+     */
+    private MonteCarloTreeSearch[] workers = new MonteCarloTreeSearch[0];
+
+    /**
+     * @param heuristic evaluation function used at the end of each playout
+     */
+    public MonteCarloTreeSearch(Heuristic heuristic)
+    {
+        this(heuristic, SEED);
+    }
+
+    /**
+     * @param heuristic evaluation function used at the end of each playout
+     * @param seed seed of the random moves of the playouts
+     */
+    private MonteCarloTreeSearch(Heuristic heuristic, long seed)
+    {
+        this.heuristicFunction = checkNotNull(heuristic);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets how many threads are used to search. Each thread grows its own tree from the root, and the move whose
+     * root child has the most visits across all trees is picked.
+     *
+     * @param threads the number of threads to search with, where 1 searches on the calling thread only
+     */
+    @Override
+    public void setParallelism(int threads)
+    {
+        checkArgument(threads >= 1, "At least one thread is needed to search");
+        if (searchPool != null) {
+            searchPool.shutdown();
+            searchPool = null;
+        }
+        workers = new MonteCarloTreeSearch[0];
+
+        if (threads > 1) {
+            // The workers grow the trees, so this engine's tree is not needed until it searches on its own again
+            releaseTree();
+            searchPool = new ForkJoinPool(threads);
+            workers = new MonteCarloTreeSearch[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new MonteCarloTreeSearch(heuristicFunction, SEED + i + 1);
+            }
+        }
+    }
+
+    /**
+     * @param playouts the number of playouts done by getBestMove when there is no deadline, split between the
+     *                 threads if there are several
+     */
+    public void setPlayoutsWithoutDeadline(int playouts)
+    {
+        checkArgument(playouts >= 1, "At least one playout is needed to pick a move");
+        this.playoutsWithoutDeadline = playouts;
+    }
+
+    @Override
+    public MinimaxAlgorithm.MoveNumber getBestMove(Game game, final boolean isPacMan, long timeDue)
+    {
+        final SimulationState state = SimulationState.fromGame(game, isPacMan);
+        final long deadline = timeDue <= 0 ? -1 : timeDue - DEADLINE_SAFETY_MARGIN;
+        if (MinimaxAlgorithm.isEndGameState(state)) {
+            lastSearchDepth = 0;
+            playouts = 0;
+            return new MinimaxAlgorithm.MoveNumber(null, heuristicFunction.heuristicVal(state, moveHistory));
+        }
+
+        MonteCarloTreeSearch[] engines;
+        if (searchPool == null) {
+            engines = new MonteCarloTreeSearch[]{this};
+            search(state, isPacMan, deadline, playoutsWithoutDeadline, new MoveHistory(moveHistory));
+        } else {
+            engines = workers;
+            final int workerPlayouts = Math.max(1, playoutsWithoutDeadline / workers.length);
+            final List<RecursiveAction> workerTasks = Lists.newArrayList();
+            for (final MonteCarloTreeSearch worker : workers) {
+                final SimulationState workerState = state.copy();
+                final MoveHistory workerHistory = new MoveHistory(moveHistory);
+                workerTasks.add(new RecursiveAction()
+                {
+                    @Override
+                    protected void compute()
+                    {
+                        worker.search(workerState, isPacMan, deadline, workerPlayouts, workerHistory);
+                    }
+                });
+            }
+            searchPool.invoke(new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    invokeAll(workerTasks);
+                }
+            });
+        }
+
+        // Add up the visits and values of the root's children of every tree
+        int[] rootVisits = new int[MAX_ENCODED_MOVES];
+        double[] rootValues = new double[MAX_ENCODED_MOVES];
+        long totalPlayouts = 0;
+        int deepest = 0;
+        for (MonteCarloTreeSearch engine : engines) {
+            for (int i = 0; i < engine.numChildren[0]; i++) {
+                int child = engine.firstChild[0] + i;
+                rootVisits[engine.moveToNode[child]] += engine.visits[child];
+                rootValues[engine.moveToNode[child]] += engine.totalValue[child];
+            }
+            totalPlayouts += engine.playouts;
+            deepest = Math.max(deepest, engine.lastSearchDepth);
+        }
+        playouts = totalPlayouts;
+        lastSearchDepth = deepest;
+
+        int bestMove = 0;
+        for (int i = 1; i < MAX_ENCODED_MOVES; i++) {
+            if (rootVisits[i] > rootVisits[bestMove]) {
+                bestMove = i;
+            }
+        }
+        int value = rootVisits[bestMove] == 0 ? 0 : (int) (rootValues[bestMove] / rootVisits[bestMove]);
+
+        MinimaxAlgorithm.MoveNumber result;
+        if (isPacMan) {
+            result = new MinimaxAlgorithm.MoveNumber(MOVES[bestMove], value);
+            moveHistory = MoveHistory.append(moveHistory, result.move);
+        } else {
+            result = new MinimaxAlgorithm.MoveNumber(null, value);
+            result.setEncodedGhostMoves(bestMove);
+            result.setGhostMoves(GhostCombinations.toMap(bestMove));
+        }
+        return result;
+    }
+
+    @Override
+    public int getLastSearchDepth()
+    {
+        return lastSearchDepth;
+    }
+
+    /**
+     * @return the number of playouts done by the last call to getBestMove, across all threads
+     */
+    public long getLastSearchPlayouts()
+    {
+        return playouts;
+    }
+
+    /**
+     * @return the number of nodes in the trees grown by the last call to getBestMove, across all threads
+     */
+    public int getLastSearchTreeSize()
+    {
+        if (workers.length == 0) {
+            return treeSize;
+        }
+        int size = 0;
+        for (MonteCarloTreeSearch worker : workers) {
+            size += worker.treeSize;
+        }
+        return size;
+    }
+
+    /**
+     * @return the bytes of memory allocated for the trees of this engine and its workers, whether or not their nodes
+     * are used
+     */
+    public long getAllocatedTreeBytes()
+    {
+        long bytes = getOwnTreeBytes();
+        for (MonteCarloTreeSearch worker : workers) {
+            bytes += worker.getOwnTreeBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the bytes of memory allocated for the tree of this engine, or 0 if it has not searched
+     */
+    private long getOwnTreeBytes()
+    {
+        if (firstChild == null) {
+            return 0;
+        }
+        long intBytes = 4L * (firstChild.length + numChildren.length + moveToNode.length + visits.length);
+        return intBytes + 8L * totalValue.length;
+    }
+
+    /**
+     * Allocates the arrays of the tree, unless they are already allocated
+     */
+    private void allocateTree()
+    {
+        if (firstChild != null) {
+            return;
+        }
+        firstChild = new int[MAX_TREE_NODES];
+        numChildren = new int[MAX_TREE_NODES];
+        moveToNode = new int[MAX_TREE_NODES];
+        visits = new int[MAX_TREE_NODES];
+        totalValue = new double[MAX_TREE_NODES];
+    }
+
+    /**
+     * Lets the arrays of the tree be garbage collected. They are allocated again by the next search.
+     */
+    private void releaseTree()
+    {
+        firstChild = null;
+        numChildren = null;
+        moveToNode = null;
+        visits = null;
+        totalValue = null;
+        treeSize = 0;
+    }
+
+    /**
+     * Grows a new tree from the given state until the deadline passes or, without a deadline, until the given number
+     * of playouts is done. At least one playout is always done.
+     *
+     * @param state state of a game which is not an end game state. It is restored before returning.
+     * @param isPacMan is the root a Pac-Man node? (Else, a ghost node)
+     * @param deadline the time (in milliseconds) at which to stop, or -1 if there is no deadline
+     * @param maxPlayouts the number of playouts to do if there is no deadline
+     * @param history the Pac-Man move history at the root, which is restored before returning
+     */
+    private void search(SimulationState state, boolean isPacMan, long deadline, int maxPlayouts,
+                        MoveHistory history)
+    {
+        allocateTree();
+        treeSize = 1;
+        initialiseNode(0, TranspositionTable.NO_MOVE);
+        minValue = Double.POSITIVE_INFINITY;
+        maxValue = Double.NEGATIVE_INFINITY;
+        playouts = 0;
+        lastSearchDepth = 0;
+
+        do {
+            playout(state, isPacMan, history);
+            playouts++;
+        } while (deadline == -1 ? playouts < maxPlayouts : System.currentTimeMillis() < deadline);
+    }
+
+    /**
+     * Runs one iteration of the search: selection, expansion, a random playout and backpropagation
+     *
+     * @param state state at the root, which is restored before returning
+     * @param isPacMan is the root a Pac-Man node? (Else, a ghost node)
+     * @param history the Pac-Man move history at the root, which is restored before returning
+     */
+    private void playout(SimulationState state, boolean isPacMan, MoveHistory history)
+    {
+        int node = 0;
+        int depth = 0;
+        int movesApplied = 0;
+        int pacManMovesApplied = 0;
+        boolean isPacManToMove = isPacMan;
+        path[0] = 0;
+
+        // Selection: walk down the tree by the upper confidence bound
+        while (firstChild[node] != NOT_EXPANDED && depth < MAX_TREE_DEPTH) {
+            node = selectChild(node, isPacManToMove);
+            applyTreeMove(state, history, moveToNode[node], isPacManToMove);
+            movesApplied++;
+            pacManMovesApplied += isPacManToMove ? 1 : 0;
+            isPacManToMove = !isPacManToMove;
+            path[++depth] = node;
+        }
+
+        // Expansion: add the children of the node and move to one of them
+        if ((visits[node] > 0 || node == 0) && depth < MAX_TREE_DEPTH && !MinimaxAlgorithm.isEndGameState(state) &&
+                expand(node, state, isPacManToMove)) {
+            node = firstChild[node] + random.nextInt(numChildren[node]);
+            applyTreeMove(state, history, moveToNode[node], isPacManToMove);
+            movesApplied++;
+            pacManMovesApplied += isPacManToMove ? 1 : 0;
+            isPacManToMove = !isPacManToMove;
+            path[++depth] = node;
+        }
+        lastSearchDepth = Math.max(lastSearchDepth, depth);
+
+        // Simulation: play random moves for a few plies and evaluate the state reached
+        for (int ply = 0; ply < PLAYOUT_DEPTH && !MinimaxAlgorithm.isEndGameState(state); ply++) {
+            if (isPacManToMove) {
+                MOVE[] moves = state.getPossiblePacManMovesWithoutReversing();
+                MOVE move = moves[random.nextInt(moves.length)];
+                state.applyPacManMove(move);
+                history.push(move);
+                pacManMovesApplied++;
+            } else {
+                for (GHOST ghost : GHOSTS) {
+                    MOVE[] moves = state.getPossibleGhostMoves(ghost);
+                    playoutGhostMoves[ghost.ordinal()] = moves[random.nextInt(moves.length)];
+                }
+                state.applyGhostMoves(playoutGhostMoves);
+            }
+            movesApplied++;
+            isPacManToMove = !isPacManToMove;
+        }
+        int value = heuristicFunction.heuristicVal(state, history.getPacked());
+
+        for (int i = 0; i < movesApplied; i++) {
+            state.undo();
+        }
+        for (int i = 0; i < pacManMovesApplied; i++) {
+            history.pop();
+        }
+
+        // Backpropagation
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+        for (int i = 0; i <= depth; i++) {
+            visits[path[i]]++;
+            totalValue[path[i]] += value;
+        }
+    }
+
+    /**
+     * @param node an expanded node
+     * @param isPacManToMove is the node a Pac-Man node? (Else, a ghost node)
+     * @return the child of the node with the highest upper confidence bound for the player to move, or the first
+     * child which has not been visited
+     */
+    private int selectChild(int node, boolean isPacManToMove)
+    {
+        double logVisits = Math.log(visits[node]);
+        double valueRange = maxValue - minValue;
+        int bestChild = firstChild[node];
+        double bestBound = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child < firstChild[node] + numChildren[node]; child++) {
+            if (visits[child] == 0) {
+                return child;
+            }
+            // Scale the mean value to between 0 and 1, where 1 is best for the player to move
+            double meanValue = totalValue[child] / visits[child];
+            double exploitation = valueRange > 0 ? (meanValue - minValue) / valueRange : 0.5;
+            if (!isPacManToMove) {
+                exploitation = 1 - exploitation;
+            }
+            double bound = exploitation + EXPLORATION_CONSTANT * Math.sqrt(logVisits / visits[child]);
+            if (bound > bestBound) {
+                bestBound = bound;
+                bestChild = child;
+            }
+        }
+        return bestChild;
+    }
+
+    /**
+     * Adds the children of a node to the tree, if there is room for them
+     *
+     * @param node the node to expand
+     * @param state the state at the node
+     * @param isPacManToMove is the node a Pac-Man node? (Else, a ghost node)
+     * @return were the children added?
+     */
+    private boolean expand(int node, SimulationState state, boolean isPacManToMove)
+    {
+        MOVE[] pacManMoves = null;
+        int count;
+        if (isPacManToMove) {
+            pacManMoves = state.getPossiblePacManMoves();
+            count = pacManMoves.length;
+        } else {
+            count = ghostCombinations.generate(state, 0);
+        }
+        if (count == 0 || treeSize + count > MAX_TREE_NODES) {
+            return false;
+        }
+
+        int[] combinations = ghostCombinations.getCombinations(0);
+        for (int i = 0; i < count; i++) {
+            initialiseNode(treeSize + i, isPacManToMove ? pacManMoves[i].ordinal() : combinations[i]);
+        }
+        firstChild[node] = treeSize;
+        numChildren[node] = count;
+        treeSize += count;
+        return true;
+    }
+
+    /**
+     * @param node index of a node which is being added to the tree
+     * @param move the encoded move made to reach the node
+     */
+    private void initialiseNode(int node, int move)
+    {
+        firstChild[node] = NOT_EXPANDED;
+        numChildren[node] = 0;
+        moveToNode[node] = move;
+        visits[node] = 0;
+        totalValue[node] = 0;
+    }
+
+    /**
+     * @param state the state to apply the move to
+     * @param history the Pac-Man move history, which Pac-Man moves are added to
+     * @param move a MOVE ordinal for Pac-Man or an encoded combination of ghost moves
+     * @param isPacManToMove is the move Pac-Man's? (Else, the ghosts')
+     */
+    private void applyTreeMove(SimulationState state, MoveHistory history, int move, boolean isPacManToMove)
+    {
+        if (isPacManToMove) {
+            state.applyPacManMove(MOVES[move]);
+            history.push(MOVES[move]);
+        } else {
+            state.applyGhostMoves(ghostCombinations.decode(move, 0));
+        }
+    }
+}
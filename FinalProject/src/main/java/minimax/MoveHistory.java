@@ -0,0 +1,229 @@
+package minimax;
+
+import pacman.game.Constants.MOVE;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The last MAX_MOVES moves of Pac-Man packed into a single long, which {@link Heuristic}s are given instead of a
+ * collection of moves. The features of the history which the heuristics use are kept up to date as moves are added,
+ * so reading them takes constant time and allocates nothing.
+ *
+ * A MoveHistory object is a stack of packed histories for a search: each move made along the search path pushes the
+ * history after the move, and undoing the move pops it again, which restores the move that fell out of the window.
+ *
+ * Packed layout (from the least significant bit): 40 bits of moves with 2 bits per move and the newest move in the
+ * lowest bits, 5 bits number of moves, and 5 bits each for the number of UP, RIGHT and DOWN moves. The number of
+ * LEFT moves is the number of moves minus the others. NEUTRAL cannot be in the history.
+ */
+public class MoveHistory
+{
+    /**
+     * The number of moves kept in the history
+     */
+    public static final int MAX_MOVES = 20;
+    /**
+     * A history without any moves
+     */
+    public static final long EMPTY = 0;
+
+    private static final int BITS_PER_MOVE = 2;
+    private static final long MOVE_MASK = (1L << BITS_PER_MOVE) - 1;
+    private static final long MOVES_MASK = (1L << (MAX_MOVES * BITS_PER_MOVE)) - 1;
+    private static final int SIZE_SHIFT = MAX_MOVES * BITS_PER_MOVE;
+    private static final int COUNT_BITS = 5;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int COUNTS_SHIFT = SIZE_SHIFT + COUNT_BITS;
+    /**
+     * The number of moves which can be in the history. The last of them has no count of its own.
+     */
+    private static final int NUM_DIRECTIONS = 4;
+    private static final MOVE[] MOVES = MOVE.values();
+    /**
+     * The number of packed histories the stack starts with room for
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The packed histories of the search path, with the current one at index top
+     */
+    private long[] stack = new long[INITIAL_CAPACITY];
+    private int top = 0;
+
+    /**
+     * @param packed the packed history at the root of the search
+     */
+    public MoveHistory(long packed)
+    {
+        stack[0] = packed;
+    }
+
+    /**
+     * @param move a move made by Pac-Man, which is added to the history until it is popped
+     */
+    public void push(MOVE move)
+    {
+        if (top + 1 == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top + 1] = append(stack[top], move);
+        top++;
+    }
+
+    /**
+     * Removes the last move pushed, restoring the history from before it
+     */
+    public void pop()
+    {
+        checkState(top > 0, "There are no moves to pop");
+        top--;
+    }
+
+    /**
+     * @return the current packed history
+     */
+    public long getPacked()
+    {
+        return stack[top];
+    }
+
+    /**
+     * @return a new stack starting from the current packed history, for a search on another thread
+     */
+    public MoveHistory copy()
+    {
+        return new MoveHistory(stack[top]);
+    }
+
+    /**
+     * @param packed a packed history
+     * @param move a move made by Pac-Man after the moves of the history
+     * @return the packed history with the move added, without the oldest move if the history was full
+     */
+    public static long append(long packed, MOVE move)
+    {
+        int direction = move.ordinal();
+        checkArgument(direction < NUM_DIRECTIONS, "NEUTRAL cannot be added to the history");
+        int size = size(packed);
+        if (size == MAX_MOVES) {
+            packed = addToCount(packed, getDirection(packed, MAX_MOVES - 1), -1);
+            size--;
+        }
+        packed = addToCount(packed, direction, 1);
+        long moves = ((packed & MOVES_MASK) << BITS_PER_MOVE | direction) & MOVES_MASK;
+        return (packed & ~MOVES_MASK & ~(COUNT_MASK << SIZE_SHIFT)) | moves | ((long) (size + 1) << SIZE_SHIFT);
+    }
+
+    /**
+     * @param packed a packed history
+     * @return the number of moves in the history
+     */
+    public static int size(long packed)
+    {
+        return (int) ((packed >>> SIZE_SHIFT) & COUNT_MASK);
+    }
+
+    /**
+     * @param packed a packed history
+     * @param movesAgo 0 for the last move, 1 for the move before it and so on, which is less than the size
+     * @return the move
+     */
+    public static MOVE getMove(long packed, int movesAgo)
+    {
+        return MOVES[getDirection(packed, movesAgo)];
+    }
+
+    /**
+     * @param packed a packed history
+     * @param move UP, RIGHT, DOWN or LEFT
+     * @return the number of times the move is in the history
+     */
+    public static int count(long packed, MOVE move)
+    {
+        return count(packed, move.ordinal());
+    }
+
+    /**
+     * When the history contains exactly two kinds of moves, such as Pac-Man going back and forth along a corridor,
+     * this measures how unevenly they are split: 0 when each is half of the history, up to 50 when one of them is
+     * almost all of it.
+     *
+     * @param packed a packed history
+     * @return how far (in percent) the share of one of the two kinds of moves is from one half, or 0 if the history
+     * does not contain exactly two kinds of moves
+     */
+    public static int getUnvariedMoves(long packed)
+    {
+        int kinds = 0;
+        int firstCount = 0;
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            int count = count(packed, direction);
+            if (count > 0) {
+                kinds++;
+                if (firstCount == 0) {
+                    firstCount = count;
+                }
+            }
+        }
+        if (kinds != 2) {
+            return 0;
+        }
+        // |0.5 - count / size| * 100 in integers, which gives the same result for either kind of move
+        int size = size(packed);
+        return Math.abs(size - 2 * firstCount) * 50 / size;
+    }
+
+    /**
+     * @param packed a packed history
+     * @return was the last move the opposite of the move before it?
+     */
+    public static boolean isReversed(long packed)
+    {
+        // UP and DOWN, and RIGHT and LEFT, are two ordinals apart
+        return size(packed) >= 2 && getDirection(packed, 0) == (getDirection(packed, 1) ^ 2);
+    }
+
+    /**
+     * @param packed a packed history
+     * @param movesAgo 0 for the last move, 1 for the move before it and so on
+     * @return the ordinal of the move
+     */
+    private static int getDirection(long packed, int movesAgo)
+    {
+        return (int) ((packed >>> (movesAgo * BITS_PER_MOVE)) & MOVE_MASK);
+    }
+
+    /**
+     * @param packed a packed history
+     * @param direction the ordinal of UP, RIGHT, DOWN or LEFT
+     * @return the number of times the move is in the history
+     */
+    private static int count(long packed, int direction)
+    {
+        if (direction == NUM_DIRECTIONS - 1) {
+            int others = 0;
+            for (int i = 0; i < NUM_DIRECTIONS - 1; i++) {
+                others += count(packed, i);
+            }
+            return size(packed) - others;
+        }
+        return (int) ((packed >>> (COUNTS_SHIFT + direction * COUNT_BITS)) & COUNT_MASK);
+    }
+
+    /**
+     * @param packed a packed history
+     * @param direction the ordinal of UP, RIGHT, DOWN or LEFT
+     * @param amount 1 or -1
+     * @return the packed history with the amount added to the count of the move, which is implied for LEFT
+     */
+    private static long addToCount(long packed, int direction, int amount)
+    {
+        if (direction == NUM_DIRECTIONS - 1) {
+            return packed;
+        }
+        return packed + ((long) amount << (COUNTS_SHIFT + direction * COUNT_BITS));
+    }
+}
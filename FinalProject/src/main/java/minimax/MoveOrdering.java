@@ -0,0 +1,336 @@
+package minimax;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+
+import java.util.Arrays;
+
+/**
+ * Orders the moves of a node so that alpha-beta pruning cuts off as many branches as possible. Moves are tried in the
+ * following order:
+ * 1. The best move stored in the transposition table for the state (the hash move)
+ * 2. The killer moves of the ply, which are recent moves that caused a cutoff at the same ply in a sibling subtree
+ * 3. All other moves, ranked by the history table. The history table is a butterfly table which scores each move from
+ *    each maze node by how often (and how deep) it caused a cutoff anywhere in the tree.
+ */
+class MoveOrdering
+{
+    /**
+     * Deeper than any tree created by Minimax
+     */
+    static final int MAX_PLY = 128;
+    /**
+     * More nodes than there are in any of the Ms. Pac-Man mazes
+     */
+    private static final int MAX_NODES = 4096;
+    /**
+     * Number of killer moves remembered per ply
+     */
+    private static final int KILLERS_PER_PLY = 2;
+    private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int FIRST_KILLER_SCORE = Integer.MAX_VALUE - 1;
+    private static final int SECOND_KILLER_SCORE = Integer.MAX_VALUE - 2;
+    /**
+     * History scores are kept below this so that they never reach the scores of hash and killer moves
+     */
+    private static final int MAX_HISTORY_SCORE = 1 << 28;
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] MOVES = MOVE.values();
+
+    /**
+     * Encoded killer moves for each ply, with the most recent killer first
+     */
+    private final int[][] killerMoves = new int[MAX_PLY][KILLERS_PER_PLY];
+    /**
+     * History scores for Pac-Man indexed by [node * number of moves + move]
+     */
+    private final int[] pacManHistory = new int[MAX_NODES * MOVES.length];
+    /**
+     * History scores for each ghost indexed by [ghost][node * number of moves + move]
+     */
+    private final int[][] ghostHistory = new int[GHOSTS.length][MAX_NODES * MOVES.length];
+    /**
+     * Scores of the ghost move combinations being sorted, indexed by [ply][combination]
+     */
+    private final int[][] ghostScores = new int[MAX_PLY][GhostCombinations.MAX_COMBINATIONS];
+    /**
+     * Scores of the moves of a single ghost being sorted
+     */
+    private final int[] singleGhostScores = new int[MOVES.length];
+    /**
+     * The ordered Pac-Man moves of each ply, with one array for each number of moves, indexed by
+     * [ply][number of moves][move]
+     */
+    private final MOVE[][][] orderedPacManMoves = new MOVE[MAX_PLY][MOVES.length + 1][];
+    /**
+     * Scores of the Pac-Man moves being sorted
+     */
+    private final int[] pacManScores = new int[MOVES.length];
+
+    MoveOrdering()
+    {
+        for (MOVE[][] plyMoves : orderedPacManMoves) {
+            for (int length = 0; length < plyMoves.length; length++) {
+                plyMoves[length] = new MOVE[length];
+            }
+        }
+        clearKillerMoves();
+    }
+
+    /**
+     * Prepares for a new search. Killer moves are forgotten since they were for a different root, and history
+     * scores are halved so that recent information counts for more.
+     */
+    void newSearch()
+    {
+        clearKillerMoves();
+        ageHistory(pacManHistory);
+        for (int[] history : ghostHistory) {
+            ageHistory(history);
+        }
+    }
+
+    /**
+     * Prepares for a search whose root is a state of the tree of the previous search. The killer moves are moved up
+     * by the number of plies between the two roots so that they stay with the same states, and history scores are
+     * halved like in {@link #newSearch}.
+     *
+     * @param pliesPlayed how many plies below the root of the previous search the new root is
+     */
+    void continueSearch(int pliesPlayed)
+    {
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            if (ply + pliesPlayed < MAX_PLY) {
+                System.arraycopy(killerMoves[ply + pliesPlayed], 0, killerMoves[ply], 0, KILLERS_PER_PLY);
+            } else {
+                Arrays.fill(killerMoves[ply], TranspositionTable.NO_MOVE);
+            }
+        }
+        ageHistory(pacManHistory);
+        for (int[] history : ghostHistory) {
+            ageHistory(history);
+        }
+    }
+
+    /**
+     * @param moves the possible moves of Pac-Man
+     * @param pacManNode the node Pac-Man is at
+     * @param ply how many moves the node is below the root of the tree
+     * @param hashMove the encoded best move from the transposition table, or TranspositionTable.NO_MOVE
+     * @return the given moves in the order in which they should be searched. The array is reused by later nodes of
+     * the same ply.
+     */
+    MOVE[] orderPacManMoves(MOVE[] moves, int pacManNode, int ply, int hashMove)
+    {
+        MOVE[] ordered = orderedPacManMoves[ply][moves.length];
+        int[] scores = pacManScores;
+        for (int i = 0; i < moves.length; i++) {
+            MOVE move = moves[i];
+            int score = orderingScore(move.ordinal(), ply, hashMove, pacManHistory[historyIndex(pacManNode, move)]);
+
+            // Insertion sort by descending score since there are at most four moves
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ordered[j + 1] = ordered[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ordered[j + 1] = move;
+            scores[j + 1] = score;
+        }
+        return ordered;
+    }
+
+    /**
+     * Sorts the given ghost move combinations in place into the order in which they should be searched
+     *
+     * @param combinations the encoded combinations of ghost moves, of which the first count are sorted
+     * @param count the number of combinations
+     * @param state the state the ghosts are moving in
+     * @param ply how many moves the node is below the root of the tree
+     * @param hashMove the encoded best move from the transposition table, or TranspositionTable.NO_MOVE
+     */
+    void orderGhostCombinations(int[] combinations, int count, SimulationState state, int ply, int hashMove)
+    {
+        int[] scores = ghostScores[Math.min(ply, MAX_PLY - 1)];
+        for (int i = 0; i < count; i++) {
+            scores[i] = ghostOrderingScore(combinations[i], state, ply, hashMove);
+        }
+
+        // Insertion sort by descending score, which keeps combinations with equal scores in generated order
+        for (int i = 1; i < count; i++) {
+            int combination = combinations[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                combinations[j + 1] = combinations[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            combinations[j + 1] = combination;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Sorts the moves of a single ghost into the order in which they should be searched. The hash move and killer
+     * moves are combinations of ghost moves, so the ghost's own move in them is used.
+     *
+     * @param moves the possible moves of the ghost
+     * @param ghost the ghost which is moving
+     * @param ghostNode the node the ghost is at
+     * @param ply how many moves the node is below the root of the tree
+     * @param hashMove the encoded best combination from the transposition table, or TranspositionTable.NO_MOVE
+     * @param ordered array to write the ordered moves to, which must be at least as long as moves
+     */
+    void orderGhostMoves(MOVE[] moves, GHOST ghost, int ghostNode, int ply, int hashMove, MOVE[] ordered)
+    {
+        int[] scores = singleGhostScores;
+        for (int i = 0; i < moves.length; i++) {
+            MOVE move = moves[i];
+            int score;
+            if (hashMove != TranspositionTable.NO_MOVE && GhostCombinations.getMove(hashMove, ghost) == move) {
+                score = HASH_MOVE_SCORE;
+            } else if (ply < MAX_PLY && killerMoves[ply][0] != TranspositionTable.NO_MOVE &&
+                    GhostCombinations.getMove(killerMoves[ply][0], ghost) == move) {
+                score = FIRST_KILLER_SCORE;
+            } else if (ply < MAX_PLY && killerMoves[ply][1] != TranspositionTable.NO_MOVE &&
+                    GhostCombinations.getMove(killerMoves[ply][1], ghost) == move) {
+                score = SECOND_KILLER_SCORE;
+            } else {
+                score = ghostHistory[ghost.ordinal()][historyIndex(ghostNode, move)];
+            }
+
+            // Insertion sort by descending score since there are at most four moves
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ordered[j + 1] = ordered[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ordered[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Records that a Pac-Man move caused a beta cutoff
+     *
+     * @param move the move which caused the cutoff
+     * @param pacManNode the node Pac-Man was at
+     * @param ply how many moves the node is below the root of the tree
+     * @param depth the depth of the tree below the node
+     */
+    void recordPacManCutoff(MOVE move, int pacManNode, int ply, int depth)
+    {
+        addKillerMove(move.ordinal(), ply);
+        addHistory(pacManHistory, historyIndex(pacManNode, move), depth);
+    }
+
+    /**
+     * Records that a combination of ghost moves caused an alpha cutoff
+     *
+     * @param ghostMoves the encoded moves which caused the cutoff
+     * @param state the state the ghosts were moving in
+     * @param ply how many moves the node is below the root of the tree
+     * @param depth the depth of the tree below the node
+     */
+    void recordGhostCutoff(int ghostMoves, SimulationState state, int ply, int depth)
+    {
+        addKillerMove(ghostMoves, ply);
+        for (GHOST ghost : GHOSTS) {
+            addHistory(ghostHistory[ghost.ordinal()], historyIndex(state.getGhostCurrentNodeIndex(ghost),
+                    GhostCombinations.getMove(ghostMoves, ghost)), depth);
+        }
+    }
+
+    /**
+     * @param ghostMoves an encoded combination of ghost moves
+     * @param state the state the ghosts are moving in
+     * @param ply how many moves the node is below the root of the tree
+     * @param hashMove the encoded best move from the transposition table, or TranspositionTable.NO_MOVE
+     * @return the score of the combination, with higher scores searched first
+     */
+    private int ghostOrderingScore(int ghostMoves, SimulationState state, int ply, int hashMove)
+    {
+        int historyScore = 0;
+        for (GHOST ghost : GHOSTS) {
+            historyScore += ghostHistory[ghost.ordinal()][historyIndex(state.getGhostCurrentNodeIndex(ghost),
+                    GhostCombinations.getMove(ghostMoves, ghost))];
+        }
+        return orderingScore(ghostMoves, ply, hashMove, historyScore);
+    }
+
+    /**
+     * @param encodedMove the move to score
+     * @param ply how many moves the node is below the root of the tree
+     * @param hashMove the encoded best move from the transposition table, or TranspositionTable.NO_MOVE
+     * @param historyScore the history score of the move
+     * @return the score of the move, with higher scores searched first
+     */
+    private int orderingScore(int encodedMove, int ply, int hashMove, int historyScore)
+    {
+        if (encodedMove == hashMove) {
+            return HASH_MOVE_SCORE;
+        } else if (ply < MAX_PLY && encodedMove == killerMoves[ply][0]) {
+            return FIRST_KILLER_SCORE;
+        } else if (ply < MAX_PLY && encodedMove == killerMoves[ply][1]) {
+            return SECOND_KILLER_SCORE;
+        }
+        return historyScore;
+    }
+
+    /**
+     * @param encodedMove move which caused a cutoff
+     * @param ply the ply at which the cutoff happened
+     */
+    private void addKillerMove(int encodedMove, int ply)
+    {
+        if (ply >= MAX_PLY || killerMoves[ply][0] == encodedMove) {
+            return;
+        }
+        killerMoves[ply][1] = killerMoves[ply][0];
+        killerMoves[ply][0] = encodedMove;
+    }
+
+    /**
+     * @param history the history table to update
+     * @param index the index of the move in the table
+     * @param depth the depth of the tree below the node where the cutoff happened. Cutoffs near the root prune more
+     *              so they count for more.
+     */
+    private static void addHistory(int[] history, int index, int depth)
+    {
+        history[index] += depth * depth;
+        if (history[index] > MAX_HISTORY_SCORE) {
+            ageHistory(history);
+        }
+    }
+
+    /**
+     * @param history history table whose scores should all be halved
+     */
+    private static void ageHistory(int[] history)
+    {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    private void clearKillerMoves()
+    {
+        for (int[] killers : killerMoves) {
+            Arrays.fill(killers, TranspositionTable.NO_MOVE);
+        }
+    }
+
+    /**
+     * @param node a maze node
+     * @param move a move from that node
+     * @return the index of the move from the node in a history table
+     */
+    private static int historyIndex(int node, MOVE move)
+    {
+        return node * MOVES.length + move.ordinal();
+    }
+}
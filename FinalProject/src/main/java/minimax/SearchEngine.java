@@ -0,0 +1,28 @@
+package minimax;
+
+import pacman.game.Game;
+
+/**
+ * A search algorithm which picks moves for Pac-Man or the ghosts. The Minimax controllers can use any search engine.
+ */
+public interface SearchEngine
+{
+    /**
+     * @param game state of a Pac-Man game
+     * @param isPacMan is the best move for Pac-Man (or the ghosts) to be returned?
+     * @param timeDue the time (in milliseconds) by which a move must be returned, or a value of 0 or less if there is
+     *                no deadline. Without a deadline, the engine does a fixed amount of work set when it was created.
+     * @return the best move for either Pac-Man or the ghosts in the given game
+     */
+    MinimaxAlgorithm.MoveNumber getBestMove(Game game, boolean isPacMan, long timeDue);
+
+    /**
+     * @return the depth of the deepest tree the last call to getBestMove created, in moves below the root
+     */
+    int getLastSearchDepth();
+
+    /**
+     * @param threads the number of threads to search with, where 1 searches on the calling thread only
+     */
+    void setParallelism(int threads);
+}
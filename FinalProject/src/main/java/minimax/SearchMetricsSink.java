@@ -0,0 +1,14 @@
+package minimax;
+
+/**
+ * Receives the {@link SearchStatistics} of every search made by a {@link MinimaxAlgorithm} (see
+ * {@link MinimaxAlgorithm#setMetricsSink}). The statistics can be written to a file by {@link CsvMetricsSink} or
+ * {@link JsonLinesMetricsSink}, or kept in memory by {@link InMemoryMetricsSink}.
+ */
+public interface SearchMetricsSink
+{
+    /**
+     * @param statistics the statistics of a search which has just finished. They are not changed afterwards.
+     */
+    void record(SearchStatistics statistics);
+}
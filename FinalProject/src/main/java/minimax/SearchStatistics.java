@@ -0,0 +1,540 @@
+package minimax;
+
+import java.util.Arrays;
+
+/**
+ * Counters describing the work done by a single call to {@link MinimaxAlgorithm}'s search. The statistics of every
+ * search can be streamed to a {@link SearchMetricsSink}.
+ */
+public class SearchStatistics
+{
+    /**
+     * Was the search for Pac-Man? (Else, the ghosts)
+     */
+    private boolean isPacMan = false;
+    /**
+     * The total time of the game which was searched
+     */
+    private int gameTick = 0;
+    /**
+     * The depth of the deepest tree which was completely created
+     */
+    private int depth = 0;
+    /**
+     * The number of searches these statistics are for, which is more than 1 once statistics are added together
+     */
+    private int searches = 0;
+    /**
+     * Number of nodes of the Minimax tree that were visited
+     */
+    private long nodesSearched = 0;
+    /**
+     * Number of leaves whose value came from the heuristic
+     */
+    private long leavesEvaluated = 0;
+    /**
+     * Time (in nanoseconds) spent in the heuristic
+     */
+    private long heuristicNanos = 0;
+    /**
+     * Time (in nanoseconds) from the start to the end of the search
+     */
+    private long wallNanos = 0;
+    /**
+     * Number of copies of the game state made, which are SimulationState copies since the search does not copy Game
+     */
+    private long stateCopies = 0;
+    /**
+     * Number of lookups in the transposition table which found an entry for the state
+     */
+    private long transpositionHits = 0;
+    /**
+     * Number of lookups in the transposition table which found no entry for the state
+     */
+    private long transpositionMisses = 0;
+    /**
+     * Number of nodes whose value came from the transposition table without creating their subtree
+     */
+    private long transpositionCutoffs = 0;
+    /**
+     * Number of nodes where alpha-beta pruning cut off the remaining moves
+     */
+    private long cutoffs = 0;
+    /**
+     * Number of cutoffs which happened after searching only the first move of the node
+     */
+    private long firstMoveCutoffs = 0;
+    /**
+     * Number of alpha-beta cutoffs at each ply
+     */
+    private final long[] cutoffsByPly = new long[MoveOrdering.MAX_PLY];
+    /**
+     * Number of ghost move combinations at chance nodes which were not searched because they were too unlikely
+     */
+    private long chanceCombinationsPruned = 0;
+    /**
+     * Did the search reuse the results of the previous search, because its root was in the previous tree?
+     */
+    private boolean previousSearchReused = false;
+    /**
+     * The depth of the previous search's result for the root which the iterative deepening started from, or 0
+     */
+    private int seededDepth = 0;
+    /**
+     * Number of forced corridor steps which were simulated without branching, when searching with macro-actions
+     */
+    private long corridorSteps = 0;
+    /**
+     * The most game ticks below the root that any leaf of the tree was
+     */
+    private int maxTicksAhead = 0;
+    /**
+     * Number of children which were searched again with a full window after a null-window search showed they could
+     * be better than the best move so far
+     */
+    private long nullWindowResearches = 0;
+    /**
+     * Number of times the root was searched again because its value fell outside the aspiration window
+     */
+    private long aspirationResearches = 0;
+    /**
+     * Number of leaves whose search was extended because the state was not quiet
+     */
+    private long quiescenceExtensions = 0;
+    /**
+     * Number of nodes searched by the extensions, which are not counted in nodesSearched
+     */
+    private long quiescenceNodes = 0;
+    /**
+     * Time (in nanoseconds) spent in the extensions, including the heuristic at their leaves
+     */
+    private long quiescenceNanos = 0;
+    /**
+     * Number of times an extension evaluated a state which was not quiet because the node limit was reached
+     */
+    private long quiescenceLimitsReached = 0;
+
+    void nodeSearched()
+    {
+        nodesSearched++;
+    }
+
+    /**
+     * @param nanos time (in nanoseconds) the heuristic took to evaluate the leaf, or 0 if it was not measured
+     */
+    void leafEvaluated(long nanos)
+    {
+        leavesEvaluated++;
+        heuristicNanos += nanos;
+    }
+
+    void stateCopied()
+    {
+        stateCopies++;
+    }
+
+    void transpositionHit()
+    {
+        transpositionHits++;
+    }
+
+    void transpositionMiss()
+    {
+        transpositionMisses++;
+    }
+
+    void transpositionCutoff()
+    {
+        transpositionCutoffs++;
+    }
+
+    /**
+     * @param ply how many moves the node is below the root of the tree
+     * @param isFirstMove was the cutoff caused by the first move searched at the node?
+     */
+    void cutoff(int ply, boolean isFirstMove)
+    {
+        cutoffs++;
+        if (ply < cutoffsByPly.length) {
+            cutoffsByPly[ply]++;
+        }
+        if (isFirstMove) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    void chanceCombinationPruned()
+    {
+        chanceCombinationsPruned++;
+    }
+
+    /**
+     * @param isPacMan was the search for Pac-Man? (Else, the ghosts)
+     * @param gameTick the total time of the game which was searched
+     * @param depth the depth of the deepest tree which was completely created
+     * @param wallNanos time (in nanoseconds) from the start to the end of the search
+     */
+    void searchFinished(boolean isPacMan, int gameTick, int depth, long wallNanos)
+    {
+        this.isPacMan = isPacMan;
+        this.gameTick = gameTick;
+        this.depth = depth;
+        this.wallNanos = wallNanos;
+        this.searches = 1;
+    }
+
+    /**
+     * @param steps the number of forced corridor steps simulated without branching
+     */
+    void corridorStepsSimulated(int steps)
+    {
+        corridorSteps += steps;
+    }
+
+    /**
+     * @param ticksAhead the number of game ticks below the root of a leaf of the tree
+     */
+    void leafReached(int ticksAhead)
+    {
+        if (ticksAhead > maxTicksAhead) {
+            maxTicksAhead = ticksAhead;
+        }
+    }
+
+    void nullWindowResearched()
+    {
+        nullWindowResearches++;
+    }
+
+    void aspirationResearched()
+    {
+        aspirationResearches++;
+    }
+
+    /**
+     * @param nodes the number of nodes the extension searched
+     * @param nanos time (in nanoseconds) the extension took
+     */
+    void quiescenceExtended(long nodes, long nanos)
+    {
+        quiescenceExtensions++;
+        quiescenceNodes += nodes;
+        quiescenceNanos += nanos;
+    }
+
+    void quiescenceLimitReached()
+    {
+        quiescenceLimitsReached++;
+    }
+
+    /**
+     * @param depth the depth of the previous search's result for the root which iterative deepening started from, or
+     *              0 if it started from depth 1
+     */
+    void previousSearchReused(int depth)
+    {
+        previousSearchReused = true;
+        seededDepth = depth;
+    }
+
+    /**
+     * @param other statistics of another part of the same search (such as another thread), or of another search, to
+     *              add to these
+     */
+    public void add(SearchStatistics other)
+    {
+        nodesSearched += other.nodesSearched;
+        leavesEvaluated += other.leavesEvaluated;
+        heuristicNanos += other.heuristicNanos;
+        wallNanos += other.wallNanos;
+        stateCopies += other.stateCopies;
+        searches += other.searches;
+        depth = Math.max(depth, other.depth);
+        for (int ply = 0; ply < cutoffsByPly.length; ply++) {
+            cutoffsByPly[ply] += other.cutoffsByPly[ply];
+        }
+        transpositionHits += other.transpositionHits;
+        transpositionMisses += other.transpositionMisses;
+        transpositionCutoffs += other.transpositionCutoffs;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        chanceCombinationsPruned += other.chanceCombinationsPruned;
+        previousSearchReused |= other.previousSearchReused;
+        seededDepth = Math.max(seededDepth, other.seededDepth);
+        corridorSteps += other.corridorSteps;
+        maxTicksAhead = Math.max(maxTicksAhead, other.maxTicksAhead);
+        nullWindowResearches += other.nullWindowResearches;
+        aspirationResearches += other.aspirationResearches;
+        quiescenceExtensions += other.quiescenceExtensions;
+        quiescenceNodes += other.quiescenceNodes;
+        quiescenceNanos += other.quiescenceNanos;
+        quiescenceLimitsReached += other.quiescenceLimitsReached;
+    }
+
+    /**
+     * @return number of nodes of the Minimax tree that were visited
+     */
+    public long getNodesSearched()
+    {
+        return nodesSearched;
+    }
+
+    /**
+     * @return was the search for Pac-Man? (Else, the ghosts)
+     */
+    public boolean isPacMan()
+    {
+        return isPacMan;
+    }
+
+    /**
+     * @return the total time of the game which was searched
+     */
+    public int getGameTick()
+    {
+        return gameTick;
+    }
+
+    /**
+     * @return the depth of the deepest tree which was completely created (the deepest of all searches once
+     * statistics are added together)
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return the number of searches these statistics are for
+     */
+    public int getSearches()
+    {
+        return searches;
+    }
+
+    /**
+     * @return number of leaves whose value came from the heuristic
+     */
+    public long getLeavesEvaluated()
+    {
+        return leavesEvaluated;
+    }
+
+    /**
+     * @return time (in nanoseconds) spent in the heuristic, which is only measured while the search has a metrics
+     * sink (and is 0 otherwise)
+     */
+    public long getHeuristicNanos()
+    {
+        return heuristicNanos;
+    }
+
+    /**
+     * @return time (in nanoseconds) from the start to the end of the search
+     */
+    public long getWallNanos()
+    {
+        return wallNanos;
+    }
+
+    /**
+     * @return number of copies of the game state made
+     */
+    public long getStateCopies()
+    {
+        return stateCopies;
+    }
+
+    /**
+     * @return the effective branching factor: the branching factor of a uniform tree of the search's depth with as
+     * many nodes as were searched, or 0 if the depth was 0
+     */
+    public double getEffectiveBranchingFactor()
+    {
+        return depth == 0 ? 0 : Math.pow(nodesSearched, 1.0 / depth);
+    }
+
+    /**
+     * @return number of lookups in the transposition table which found an entry for the state
+     */
+    public long getTranspositionHits()
+    {
+        return transpositionHits;
+    }
+
+    /**
+     * @return number of lookups in the transposition table which found no entry for the state
+     */
+    public long getTranspositionMisses()
+    {
+        return transpositionMisses;
+    }
+
+    /**
+     * @return number of nodes whose value came from the transposition table without creating their subtree
+     */
+    public long getTranspositionCutoffs()
+    {
+        return transpositionCutoffs;
+    }
+
+    /**
+     * @return fraction of transposition table lookups which found an entry, or 0 if there were no lookups
+     */
+    public double getTranspositionHitRate()
+    {
+        long probes = transpositionHits + transpositionMisses;
+        return probes == 0 ? 0 : (double) transpositionHits / (double) probes;
+    }
+
+    /**
+     * @return number of nodes where alpha-beta pruning cut off the remaining moves
+     */
+    public long getCutoffs()
+    {
+        return cutoffs;
+    }
+
+    /**
+     * @return number of cutoffs which happened after searching only the first move of the node
+     */
+    public long getFirstMoveCutoffs()
+    {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * @return number of alpha-beta cutoffs at each ply, up to the deepest ply which had any
+     */
+    public long[] getCutoffsByPly()
+    {
+        int plies = cutoffsByPly.length;
+        while (plies > 0 && cutoffsByPly[plies - 1] == 0) {
+            plies--;
+        }
+        return Arrays.copyOf(cutoffsByPly, plies);
+    }
+
+    /**
+     * @return fraction of cutoffs which happened on the first move searched, or 0 if there were no cutoffs. The closer
+     * this is to 1, the better the moves are ordered.
+     */
+    public double getFirstMoveCutoffRate()
+    {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / (double) cutoffs;
+    }
+
+    /**
+     * @return number of ghost move combinations at chance nodes which were not searched because they were too
+     * unlikely
+     */
+    public long getChanceCombinationsPruned()
+    {
+        return chanceCombinationsPruned;
+    }
+
+    /**
+     * @return did the search reuse the results of the previous search, because its root was in the previous tree?
+     */
+    public boolean wasPreviousSearchReused()
+    {
+        return previousSearchReused;
+    }
+
+    /**
+     * @return the depth of the previous search's result for the root which iterative deepening started from, or 0 if
+     * it started from depth 1
+     */
+    public int getSeededDepth()
+    {
+        return seededDepth;
+    }
+
+    /**
+     * @return number of forced corridor steps which were simulated without branching, when searching with
+     * macro-actions
+     */
+    public long getCorridorSteps()
+    {
+        return corridorSteps;
+    }
+
+    /**
+     * @return the most game ticks below the root that any leaf of the tree was, which is how far ahead the search
+     * looked
+     */
+    public int getMaxTicksAhead()
+    {
+        return maxTicksAhead;
+    }
+
+    /**
+     * @return number of children which were searched again with a full window after a null-window search showed they
+     * could be better than the best move so far
+     */
+    public long getNullWindowResearches()
+    {
+        return nullWindowResearches;
+    }
+
+    /**
+     * @return number of times the root was searched again because its value fell outside the aspiration window
+     */
+    public long getAspirationResearches()
+    {
+        return aspirationResearches;
+    }
+
+    /**
+     * @return number of leaves whose search was extended because the state was not quiet
+     */
+    public long getQuiescenceExtensions()
+    {
+        return quiescenceExtensions;
+    }
+
+    /**
+     * @return number of nodes searched by the extensions, which are not counted in getNodesSearched
+     */
+    public long getQuiescenceNodes()
+    {
+        return quiescenceNodes;
+    }
+
+    /**
+     * @return time (in nanoseconds) spent in the extensions, including the heuristic at their leaves
+     */
+    public long getQuiescenceNanos()
+    {
+        return quiescenceNanos;
+    }
+
+    /**
+     * @return number of times an extension evaluated a state which was not quiet because the node limit was reached
+     */
+    public long getQuiescenceLimitsReached()
+    {
+        return quiescenceLimitsReached;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "nodes=" + nodesSearched +
+                " ttHits=" + transpositionHits +
+                " ttMisses=" + transpositionMisses +
+                " ttCutoffs=" + transpositionCutoffs +
+                " cutoffs=" + cutoffs +
+                " firstMoveCutoffs=" + firstMoveCutoffs +
+                " chancePruned=" + chanceCombinationsPruned +
+                " reused=" + previousSearchReused +
+                " seededDepth=" + seededDepth +
+                " corridorSteps=" + corridorSteps +
+                " maxTicksAhead=" + maxTicksAhead +
+                " nullWindowResearches=" + nullWindowResearches +
+                " aspirationResearches=" + aspirationResearches +
+                " quiescenceExtensions=" + quiescenceExtensions +
+                " quiescenceNodes=" + quiescenceNodes +
+                " quiescenceLimitsReached=" + quiescenceLimitsReached;
+    }
+}
@@ -1,179 +1,327 @@
 package minimax;
 
-import com.google.common.collect.Lists;
-import com.google.common.primitives.Ints;
 import pacman.game.Constants.GHOST;
-import pacman.game.Constants.MOVE;
-import pacman.game.Game;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static minimax.FeatureWeightNames.*;
 import static pacman.game.Constants.GHOST.BLINKY;
 import static pacman.game.Constants.GHOST.INKY;
 import static pacman.game.Constants.GHOST.PINKY;
 import static pacman.game.Constants.GHOST.SUE;
 import static pacman.game.Constants.MOVE.DOWN;
 import static pacman.game.Constants.MOVE.LEFT;
-import static pacman.game.Constants.MOVE.UP;
 
 /**
  * Evaluation function to evaluate the state of the game. It takes in feature weights for all of its features.
+ *
+ * Only the features with a nonzero weight are computed. The values which several features are computed from (the
+ * distance to each ghost, the nearest ghost and the distance to the nearest pill) are computed once per evaluation,
+ * and only if a feature with a nonzero weight depends on them, so gene sets with fewer features evaluate faster.
  */
 public class SettableHeuristic implements Heuristic
 {
+    private static final GHOST[] GHOSTS = GHOST.values();
     /**
-     * Map of feature names to the feature weights for that feature
+     * The features which depend on the nearest ghost and its distance, and so on the distance to every ghost
      */
-    private Map<String, Integer> fieldToWeights;
+    private static final int[] NEAREST_GHOST_FEATURES = {PAC_MAN_NEAREST_GHOST_EDIBLE,
+            PAC_MAN_DISTANCE_TO_NEAREST_GHOST_UNDER_20, PAC_MAN_NEAREST_GHOST_EDIBLE_AND_UNDER_40,
+            PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_10, PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_5,
+            PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_10, PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_5};
     /**
-     * Map of possible moves to the moves in the opposite direction
+     * The features which depend on the distance to one ghost, indexed by ghost ordinal
      */
-    private static final Map<MOVE, MOVE> MOVE_TO_OPPOSITE_MOVE = moveToOppositeMovesMap();
-
+    private static final int[] GHOST_DISTANCE_FEATURES = new int[GHOSTS.length];
     /**
-     * @param fieldToWeights feature weights to use in this evaluation function
+     * The features which depend on the distance to the nearest pill
      */
-    public SettableHeuristic(Map<String, Integer> fieldToWeights)
-    {
-        this.fieldToWeights = checkNotNull(fieldToWeights);
+    private static final int[] NEAREST_PILL_FEATURES = {PAC_MAN_DISTANCE_TO_NEAREST_PILL,
+            DISTANCE_TO_NEXT_NEAREST_PILL_MORE_THAN_10_IF_PILL_JUST_EATEN, DISTANCE_TO_NEAREST_PILL_ABOVE_FIVE};
+
+    static {
+        GHOST_DISTANCE_FEATURES[BLINKY.ordinal()] = PAC_MAN_DISTANCE_TO_UNEDIBLE_BLINKY;
+        GHOST_DISTANCE_FEATURES[INKY.ordinal()] = PAC_MAN_DISTANCE_TO_UNEDIBLE_INKY;
+        GHOST_DISTANCE_FEATURES[PINKY.ordinal()] = PAC_MAN_DISTANCE_TO_UNEDIBLE_PINKY;
+        GHOST_DISTANCE_FEATURES[SUE.ordinal()] = PAC_MAN_DISTANCE_TO_UNEDIBLE_SUE;
     }
 
     /**
-     * @return map of moves in Pac-Man to the move in the opposite direction
+     * The feature weights indexed by feature ordinal (see {@link FeatureWeightNames}), compiled once from the map
+     * given to the constructor so that evaluating a state does not look up or unbox any weights
      */
-    private static Map<MOVE, MOVE> moveToOppositeMovesMap()
-    {
-        Map<MOVE, MOVE> moveOppositeMoveMap = new HashMap<>();
-        moveOppositeMoveMap.put(DOWN, UP);
-        moveOppositeMoveMap.put(UP, MOVE.DOWN);
-        moveOppositeMoveMap.put(MOVE.RIGHT, MOVE.LEFT);
-        moveOppositeMoveMap.put(MOVE.LEFT, MOVE.RIGHT);
-        return moveOppositeMoveMap;
-    }
+    private final int[] weights;
+    /**
+     * The ordinals of the features with a nonzero weight, which are the only features computed
+     */
+    private final int[] activeFeatures;
+    /**
+     * Does a feature with a nonzero weight depend on the nearest ghost?
+     */
+    private final boolean needsNearestGhost;
+    /**
+     * Does a feature with a nonzero weight depend on the distance to the ghost? Indexed by ghost ordinal.
+     */
+    private final boolean[] needsGhostDistance = new boolean[GHOSTS.length];
+    /**
+     * Does a feature with a nonzero weight depend on the distance to the nearest pill?
+     */
+    private final boolean needsNearestPill;
 
-    @Override
-    public int heuristicVal(Game game, Queue<MOVE> pacManMoveHistory)
+    /**
+     * @param fieldToWeights feature weights to use in this evaluation function, which has a weight for every feature
+     */
+    public SettableHeuristic(Map<String, Integer> fieldToWeights)
     {
-        // Determine distance to nearest ghost
-        int distanceToBlinky = shortestPathDistanceToGhost(game, BLINKY);
-        int distanceToInky = shortestPathDistanceToGhost(game, INKY);
-        int distanceToPinky = shortestPathDistanceToGhost(game, PINKY);
-        int distanceToSue = shortestPathDistanceToGhost(game, SUE);
-        Map<GHOST, Integer> ghostsToDistance = new HashMap<>();
-        ghostsToDistance.put(BLINKY, distanceToBlinky);
-        ghostsToDistance.put(INKY, distanceToInky);
-        ghostsToDistance.put(PINKY, distanceToPinky);
-        ghostsToDistance.put(SUE, distanceToSue);
-
-        int distanceToNearestGhost = Collections.min(Lists.newArrayList(distanceToBlinky, distanceToInky,
-                distanceToPinky, distanceToSue));
-        GHOST nearestGhost = null;
-        // Determine the nearest ghost
-        for (Map.Entry<GHOST, Integer> ghostDistance : ghostsToDistance.entrySet()) {
-            if (ghostDistance.getValue() == distanceToNearestGhost) {
-                nearestGhost = ghostDistance.getKey();
+        this.weights = FeatureWeightNames.compileWeights(checkNotNull(fieldToWeights));
+
+        int numActiveFeatures = 0;
+        for (int weight : weights) {
+            if (weight != 0) {
+                numActiveFeatures++;
             }
         }
-        boolean isNearestGhostEdible = game.isGhostEdible(nearestGhost);
-        int distanceToNearestGhostIfNotEdible = distanceToNearestGhost;
-        if (game.isGhostEdible(nearestGhost)) {
-            distanceToNearestGhostIfNotEdible = 0;
+        this.activeFeatures = new int[numActiveFeatures];
+        int next = 0;
+        for (int feature = 0; feature < NUM_FEATURES; feature++) {
+            if (weights[feature] != 0) {
+                activeFeatures[next++] = feature;
+            }
         }
-        // Determine all active pill indices to be used to find closest pill
-        List<Integer> activePillIndices = new ArrayList<>();
-        activePillIndices.addAll(Ints.asList(game.getActivePillsIndices()));
-        activePillIndices.addAll(Ints.asList(game.getActivePowerPillsIndices()));
-
-        List<Integer> distancesToPills = new ArrayList<>();
-        for (int pillIndice : activePillIndices) {
-            distancesToPills.add(game.getShortestPathDistance(game.getPacmanCurrentNodeIndex(), pillIndice));
+
+        this.needsNearestGhost = anyActive(NEAREST_GHOST_FEATURES);
+        for (GHOST ghost : GHOSTS) {
+            needsGhostDistance[ghost.ordinal()] =
+                    needsNearestGhost || weights[GHOST_DISTANCE_FEATURES[ghost.ordinal()]] != 0;
         }
-        int distanceToNearestPill = 0;
-        if (!distancesToPills.isEmpty()) {
-            // If there are no pills at the end of the level, Collections.min throws an exception
-            distanceToNearestPill = Collections.min(distancesToPills);
+        this.needsNearestPill = anyActive(NEAREST_PILL_FEATURES);
+    }
+
+    @Override
+    public int heuristicVal(SimulationState game, long pacManMoveHistory)
+    {
+        // Determine the distance to each ghost which an active feature needs
+        int distanceToBlinky = needsGhostDistance[BLINKY.ordinal()] ? shortestPathDistanceToGhost(game, BLINKY) : 0;
+        int distanceToInky = needsGhostDistance[INKY.ordinal()] ? shortestPathDistanceToGhost(game, INKY) : 0;
+        int distanceToPinky = needsGhostDistance[PINKY.ordinal()] ? shortestPathDistanceToGhost(game, PINKY) : 0;
+        int distanceToSue = needsGhostDistance[SUE.ordinal()] ? shortestPathDistanceToGhost(game, SUE) : 0;
+
+        int distanceToNearestGhost = 0;
+        boolean isNearestGhostEdible = false;
+        if (needsNearestGhost) {
+            distanceToNearestGhost = Math.min(Math.min(distanceToBlinky, distanceToInky),
+                    Math.min(distanceToPinky, distanceToSue));
+            GHOST nearestGhost = null;
+            // Determine the nearest ghost, which is the last of the ghosts at the nearest distance
+            for (GHOST ghost : GHOSTS) {
+                if (selectByGhost(ghost, distanceToBlinky, distanceToInky, distanceToPinky, distanceToSue) ==
+                        distanceToNearestGhost) {
+                    nearestGhost = ghost;
+                }
+            }
+            isNearestGhostEdible = game.isGhostEdible(nearestGhost);
         }
 
-        Set<MOVE> possibleBlinkyMoves = MinimaxAlgorithm.getPossibleGhostMoves(game, BLINKY);
-        Set<MOVE> possibleInkyMoves = MinimaxAlgorithm.getPossibleGhostMoves(game, INKY);
-        Set<MOVE> possiblePinkyMoves = MinimaxAlgorithm.getPossibleGhostMoves(game, PINKY);
-        Set<MOVE> possibleSueMoves = MinimaxAlgorithm.getPossibleGhostMoves(game, SUE);
+        int distanceToNearestPill = needsNearestPill ? distanceToNearestPill(game) : 0;
+
+        int value = 0;
+        for (int feature : activeFeatures) {
+            int featureValue;
+            switch (feature) {
+                case PAC_MAN_EATEN:
+                    featureValue = boolToNum(game.wasPacManEaten());
+                    break;
+                case NUM_ACTIVE_PILLS:
+                    featureValue = game.getNumberOfActivePills();
+                    break;
+                case NUM_ACTIVE_POWER_PILLS:
+                    featureValue = game.getNumberOfActivePowerPills();
+                    break;
+                case SCORE:
+                    featureValue = game.getScore();
+                    break;
+                case PAC_MAN_DISTANCE_TO_UNEDIBLE_BLINKY:
+                    featureValue = !game.isGhostEdible(BLINKY) ? distanceToBlinky : 0;
+                    break;
+                case PAC_MAN_DISTANCE_TO_UNEDIBLE_INKY:
+                    featureValue = !game.isGhostEdible(INKY) ? distanceToInky : 0;
+                    break;
+                case PAC_MAN_DISTANCE_TO_UNEDIBLE_PINKY:
+                    featureValue = !game.isGhostEdible(PINKY) ? distanceToPinky : 0;
+                    break;
+                case PAC_MAN_DISTANCE_TO_UNEDIBLE_SUE:
+                    featureValue = !game.isGhostEdible(SUE) ? distanceToSue : 0;
+                    break;
+                case PAC_MAN_NEAREST_GHOST_EDIBLE:
+                    featureValue = boolToNum(isNearestGhostEdible);
+                    break;
+                case PAC_MAN_DISTANCE_TO_NEAREST_GHOST_UNDER_20:
+                    featureValue = (distanceToNearestGhost < 20 && !isNearestGhostEdible) ? distanceToNearestGhost : 0;
+                    break;
+                case PAC_MAN_NEAREST_GHOST_EDIBLE_AND_UNDER_40:
+                    featureValue = boolToNum(isNearestGhostEdible && distanceToNearestGhost <= 40);
+                    break;
+                case PAC_MAN_DISTANCE_TO_NEAREST_PILL:
+                    featureValue = distanceToNearestPill;
+                    break;
+
+                case NUM_TOTAL_ACTIVE_PILLS:
+                    featureValue = game.getNumberOfActivePills() + game.getNumberOfActivePowerPills();
+                    break;
+                case NUM_LEVEL:
+                    featureValue = game.getCurrentLevel();
+                    break;
+                case LEVEL_TIME:
+                    featureValue = game.getCurrentLevelTime();
+                    break;
+                case TOTAL_GAME_TIME:
+                    featureValue = game.getTotalTime();
+                    break;
+                case NUM_GHOSTS_EATEN:
+                    featureValue = game.getNumGhostsEaten();
+                    break;
+                case LIVES_REMAINING:
+                    featureValue = game.getPacmanNumberOfLivesRemaining();
+                    break;
+                case GAME_OVER:
+                    featureValue = boolToNum(game.gameOver());
+                    break;
+                case WAS_PILL_EATEN:
+                    featureValue = boolToNum(game.wasPillEaten());
+                    break;
+                case WAS_POWER_PILL_EATEN:
+                    featureValue = boolToNum(game.wasPowerPillEaten());
+                    break;
 
-        int distanceToNextNearestPillMOreThan10IfPillJustEaten = 0;
-        if (game.wasPillEaten() || distanceToNearestPill > 10) {
-            distanceToNextNearestPillMOreThan10IfPillJustEaten = distanceToNearestPill;
+                case PAC_MAN_NUM_POSSIBLE_MOVES:
+                    featureValue = game.getPossiblePacManMoves().length;
+                    break;
+                case BLINKY_NUM_POSSIBLE_MOVES:
+                    featureValue = game.getPossibleGhostMoves(BLINKY).length;
+                    break;
+                case INKY_NUM_POSSIBLE_MOVES:
+                    featureValue = game.getPossibleGhostMoves(INKY).length;
+                    break;
+                case PINKY_NUM_POSSIBLE_MOVES:
+                    featureValue = game.getPossibleGhostMoves(PINKY).length;
+                    break;
+                case SUE_NUM_POSSIBLE_MOVES:
+                    featureValue = game.getPossibleGhostMoves(SUE).length;
+                    break;
+                case DISTANCE_TO_NEXT_NEAREST_PILL_MORE_THAN_10_IF_PILL_JUST_EATEN:
+                    featureValue = (game.wasPillEaten() || distanceToNearestPill > 10) ? distanceToNearestPill : 0;
+                    break;
+                case DISTANCE_TO_NEAREST_PILL_ABOVE_FIVE:
+                    featureValue = boolToNum(distanceToNearestPill >= 5);
+                    break;
+
+                case PAC_MAN_LAST_MOVE_LEFT:
+                    featureValue = boolToNum(game.getPacmanLastMoveMade() == LEFT);
+                    break;
+                case PAC_MAN_LAST_MOVE_DOWN:
+                    featureValue = boolToNum(game.getPacmanLastMoveMade() == DOWN);
+                    break;
+
+                case PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_10:
+                    featureValue = (distanceToNearestGhost < 10 && !isNearestGhostEdible) ? distanceToNearestGhost : 0;
+                    break;
+                case PAC_MAN_DISTANCE_TO_NEAREST_GHOST_IF_UNDER_5:
+                    featureValue = (distanceToNearestGhost < 5 && !isNearestGhostEdible) ? distanceToNearestGhost : 0;
+                    break;
+
+                // Both move history features are kept up to date by the packed history as moves are made
+                case LIKELY_NOT_STUCK:
+                    featureValue = MoveHistory.getUnvariedMoves(pacManMoveHistory);
+                    break;
+                case REVERSED_DIRECTION:
+                    featureValue = boolToNum(MoveHistory.isReversed(pacManMoveHistory));
+                    break;
+
+                case PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_10:
+                    featureValue = (distanceToNearestGhost < 10 && isNearestGhostEdible) ? distanceToNearestGhost : 0;
+                    break;
+                case PAC_MAN_DISTANCE_TO_NEAREST_GHOST_EDIBLE_IF_UNDER_5:
+                    featureValue = (distanceToNearestGhost < 5 && isNearestGhostEdible) ? distanceToNearestGhost : 0;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown feature " + feature);
+            }
+            value += weights[feature] * featureValue;
         }
+        return value;
+    }
 
-        Set<MOVE> moveHistorySet = new HashSet<>(pacManMoveHistory);
-        int unvariedMoves = 0;
-        if (moveHistorySet.size() == 2) {
-            MOVE move = moveHistorySet.iterator().next();
-            int occurrences = Collections.frequency(pacManMoveHistory, move);
-            double percentage = (double) occurrences / (double) pacManMoveHistory.size();
-            unvariedMoves = (int) (Math.abs(0.5 - percentage) * 100);
+    /**
+     * @return the number of features with a nonzero weight, which are the only features computed
+     */
+    public int getNumActiveFeatures()
+    {
+        return activeFeatures.length;
+    }
+
+    /**
+     * @return a description of the work done by each evaluation with these weights: the number of features computed,
+     * the number of ghost distances computed, and whether the nearest ghost and the nearest pill are determined
+     */
+    public String getCostProfile()
+    {
+        int ghostDistances = 0;
+        for (boolean needed : needsGhostDistance) {
+            if (needed) {
+                ghostDistances++;
+            }
         }
+        return "activeFeatures=" + activeFeatures.length + "/" + NUM_FEATURES +
+                " ghostDistances=" + ghostDistances +
+                " nearestGhost=" + needsNearestGhost +
+                " nearestPill=" + needsNearestPill;
+    }
 
-        boolean reversedMove = false;
-        if (pacManMoveHistory.size() >= 2) {
-            List<MOVE> moveList = new ArrayList<>(pacManMoveHistory);
-            MOVE lastMove = moveList.get(pacManMoveHistory.size() - 1);
-            MOVE secondToLastMove = moveList.get(pacManMoveHistory.size() - 2);
-            if (MOVE_TO_OPPOSITE_MOVE.get(lastMove) == secondToLastMove) {
-                reversedMove = true;
+    /**
+     * @param features ordinals of features
+     * @return does any of the features have a nonzero weight?
+     */
+    private boolean anyActive(int[] features)
+    {
+        for (int feature : features) {
+            if (weights[feature] != 0) {
+                return true;
             }
         }
+        return false;
+    }
 
-        return fieldToWeights.get("pacManEaten") * boolToNum(game.wasPacManEaten()) +
-                fieldToWeights.get("numActivePills") * game.getNumberOfActivePills() +
-                fieldToWeights.get("numActivePowerPills") * game.getNumberOfActivePowerPills() +
-                fieldToWeights.get("score") * game.getScore() +
-                fieldToWeights.get("pacManDistanceToUnedibleBlinky") * (!game.isGhostEdible(BLINKY) ? shortestPathDistanceToGhost(game, BLINKY) : 0) +
-                fieldToWeights.get("pacManDistanceToUnedibleInky") * (!game.isGhostEdible(INKY) ? shortestPathDistanceToGhost(game, INKY) : 0)  +
-                fieldToWeights.get("pacManDistanceToUnediblePinky") * (!game.isGhostEdible(PINKY) ? shortestPathDistanceToGhost(game, PINKY) : 0) +
-                fieldToWeights.get("pacManDistanceToUnedibleSue") * (!game.isGhostEdible(SUE) ? shortestPathDistanceToGhost(game, SUE) : 0) +
-                //fieldToWeights.get("pacManDistanceToNearestGhostIfNotEdible") * distanceToNearestGhostIfNotEdible +
-                fieldToWeights.get("pacManNearestGhostEdible") * boolToNum(game.isGhostEdible(nearestGhost)) +
-                fieldToWeights.get("pacManDistanceToNearestGhostUnder20") * ((distanceToNearestGhost < 20 && !isNearestGhostEdible) ? distanceToNearestGhost : 0) +
-                fieldToWeights.get("pacManNearestGhostEdibleAndUnder40") * boolToNum(game.isGhostEdible(nearestGhost) && distanceToNearestGhost <= 40) +
-                fieldToWeights.get("pacManDistanceToNearestPill") * distanceToNearestPill +
-
-                fieldToWeights.get("numTotalActivePills") * (game.getNumberOfActivePills() + game.getNumberOfActivePowerPills()) +
-                fieldToWeights.get("numLevel") * game.getCurrentLevel() +
-                fieldToWeights.get("levelTime") * game.getCurrentLevelTime() +
-                fieldToWeights.get("totalGameTime") * game.getTotalTime() +
-                fieldToWeights.get("numGhostsEaten") * game.getNumGhostsEaten() +
-                fieldToWeights.get("livesRemaining") * game.getPacmanNumberOfLivesRemaining() +
-                fieldToWeights.get("gameOver") * boolToNum(game.gameOver()) +
-                fieldToWeights.get("wasPillEaten") * boolToNum(game.wasPillEaten()) +
-                fieldToWeights.get("wasPowerPillEaten") * boolToNum(game.wasPowerPillEaten()) +
-
-                fieldToWeights.get("pacManNumPossibleMoves") * game.getPossibleMoves(game.getPacmanCurrentNodeIndex()).length +
-                fieldToWeights.get("blinkyNumPossibleMoves") * possibleBlinkyMoves.size() +
-                fieldToWeights.get("inkyNumPossibleMoves") * possibleInkyMoves.size() +
-                fieldToWeights.get("pinkyNumPossibleMoves") * possiblePinkyMoves.size() +
-                fieldToWeights.get("sueNumPossibleMoves") * possibleSueMoves.size() +
-                fieldToWeights.get("distanceToNextNearestPillMOreThan10IfPillJustEaten") * distanceToNextNearestPillMOreThan10IfPillJustEaten +
-                fieldToWeights.get("distanceToNearestPillAboveFive") * boolToNum(distanceToNearestPill >= 5) +
-
-                fieldToWeights.get("pacManLastMoveLeft") * boolToNum(game.getPacmanLastMoveMade() == LEFT) +
-                fieldToWeights.get("pacManLastMoveDown") * boolToNum(game.getPacmanLastMoveMade() == DOWN) +
-
-                fieldToWeights.get("pacManDistanceToNearestGhostIfUnder10") * ((distanceToNearestGhost < 10 && !isNearestGhostEdible) ? distanceToNearestGhost : 0) +
-                fieldToWeights.get("pacManDistanceToNearestGhostIfUnder5") * ((distanceToNearestGhost < 5 && !isNearestGhostEdible) ? distanceToNearestGhost : 0) +
-
-                fieldToWeights.get("likelyNotStuck") * unvariedMoves +
-                fieldToWeights.get("reversedDirection") * boolToNum(reversedMove) +
-
-                fieldToWeights.get("pacManDistanceToNearestGhostEdibleIfUnder10") * ((distanceToNearestGhost < 10 && isNearestGhostEdible) ? distanceToNearestGhost : 0) +
-                fieldToWeights.get("pacManDistanceToNearestGhostEdibleIfUnder5") * ((distanceToNearestGhost < 5 && isNearestGhostEdible) ? distanceToNearestGhost : 0);
+    /**
+     * @param game state of a game
+     * @return the shortest distance from Pac-Man to a pill or power pill, or 0 if there are no pills left at the end of
+     * the level
+     */
+    private static int distanceToNearestPill(SimulationState game)
+    {
+        return Math.max(game.getDistanceToNearestPill(), 0);
+    }
+
+    /**
+     * @param ghost one of the four ghosts
+     * @param blinky the value for Blinky
+     * @param inky the value for Inky
+     * @param pinky the value for Pinky
+     * @param sue the value for Sue
+     * @return the value for the given ghost
+     */
+    private static int selectByGhost(GHOST ghost, int blinky, int inky, int pinky, int sue)
+    {
+        switch (ghost) {
+            case BLINKY:
+                return blinky;
+            case INKY:
+                return inky;
+            case PINKY:
+                return pinky;
+            default:
+                return sue;
+        }
     }
 
     /**
@@ -190,11 +338,11 @@ public class SettableHeuristic implements Heuristic
     }
 
     /**
-     * @param game copy of a game
+     * @param game state of a game
      * @param ghost one of the four ghosts
      * @return the shortest distance from PacMan to the given ghost
      */
-    private static int shortestPathDistanceToGhost(Game game, GHOST ghost)
+    private static int shortestPathDistanceToGhost(SimulationState game, GHOST ghost)
     {
         return game.getShortestPathDistance(game.getPacmanCurrentNodeIndex(), game.getGhostCurrentNodeIndex(ghost));
     }
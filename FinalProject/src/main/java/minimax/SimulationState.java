@@ -0,0 +1,750 @@
+package minimax;
+
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Arrays;
+
+/**
+ * Compact copy of the parts of a Ms. Pac-Man game which change while Minimax searches, stored in primitive fields
+ * with the pills as a long[] bitboard. It is built from a {@link Game} once at the root of the search. Moves are then
+ * applied to it in place and undone in reverse order, so searching a node does not need a copy of the game.
+ *
+ * Applying moves follows Game.updatePacMan and Game.updateGhosts, and after the ghosts move, the timers of
+ * Game.updateGame: the edible time of each edible ghost counts down, and the lair time of each ghost in the lair
+ * counts down until the ghost leaves the lair at the ghost's initial node. So a state reached after a whole tick is
+ * the same as the game after Game.advanceGame, as long as nobody was eaten. Like Game.feast, a tick after which an
+ * unedible ghost out of the lair is within EAT_DISTANCE of Pac-Man sets wasPacManEaten, which ends the search there.
+ * What follows the eating (lost lives, positions reset, ghosts sent to the lair), extra lives and levels changing
+ * are not simulated, since they are rare within a search and would need much of the game to be copied. Two random
+ * parts of Game.updateGhosts are not simulated either: the rare random global reversal of the ghosts, and the random
+ * direction picked for a ghost whose move and last move are both impossible (the first possible move is used
+ * instead).
+ */
+public class SimulationState
+{
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final int NEUTRAL = MOVE.NEUTRAL.ordinal();
+    private static final int NUM_GHOSTS = GHOST.values().length;
+    /**
+     * The moves of a ghost which cannot move without reversing
+     */
+    private static final MOVE[] NEUTRAL_ONLY = {MOVE.NEUTRAL};
+    /**
+     * Tags on top of the undo stack saying what kind of move is undone next
+     */
+    private static final int PAC_MAN_FRAME = 0;
+    private static final int GHOST_FRAME = 1;
+    /**
+     * Number of ints pushed onto the undo stack by each kind of move
+     */
+    private static final int PAC_MAN_FRAME_SIZE = 9 + NUM_GHOSTS;
+    private static final int GHOST_FRAME_SIZE = 4 + 4 * NUM_GHOSTS;
+    private static final int INITIAL_UNDO_CAPACITY = 64 * PAC_MAN_FRAME_SIZE;
+
+    /**
+     * The game this state was built from, used for maze distances which never change
+     */
+    private final Game game;
+    /**
+     * Lookup tables of the maze being played
+     */
+    private final MazeTables maze;
+
+    private int pacManNode;
+    /**
+     * Ordinal of the last move Pac-Man made
+     */
+    private int pacManLastMove;
+    private final int[] ghostNodes = new int[NUM_GHOSTS];
+    /**
+     * Ordinals of the last moves the ghosts made
+     */
+    private final int[] ghostLastMoves = new int[NUM_GHOSTS];
+    private final int[] ghostEdibleTimes = new int[NUM_GHOSTS];
+    private final int[] ghostLairTimes = new int[NUM_GHOSTS];
+    /**
+     * Bit i is set if the pill with index i has not been eaten
+     */
+    private final long[] pills;
+    /**
+     * Bit i is set if the power pill with index i has not been eaten
+     */
+    private final long[] powerPills;
+    private int numActivePills;
+    private int numActivePowerPills;
+    private int score;
+    private boolean pillWasEaten;
+    private boolean powerPillWasEaten;
+    /**
+     * Was Pac-Man caught by a ghost in the last tick? Set by the ghosts' moves.
+     */
+    private boolean pacManWasEaten;
+    /**
+     * The {@link ZobristHash} of this state, kept up to date as moves are applied and undone
+     */
+    private long hash;
+    /**
+     * The number of times the ghosts have moved since the state was built from a game, which is the number of game
+     * ticks simulated
+     */
+    private int ticksSimulated = 0;
+
+    // Parts of the game which never change during a search
+    private final boolean gameOver;
+    private final int currentLevel;
+    private final int currentLevelTime;
+    private final int totalTime;
+    private final int numGhostsEaten;
+    private final int livesRemaining;
+
+    /**
+     * Values needed to undo the moves applied so far, with each move's frame ending in its tag
+     */
+    private int[] undoStack = new int[INITIAL_UNDO_CAPACITY];
+    private int undoSize = 0;
+
+    /**
+     * @param game the game to copy the state of
+     * @param isPacManToMove is it Pac-Man's turn to move? (Else, the ghosts) This is only used for the hash.
+     */
+    private SimulationState(Game game, boolean isPacManToMove)
+    {
+        this.game = game;
+        this.maze = MazeTables.forGame(game);
+
+        pacManNode = game.getPacmanCurrentNodeIndex();
+        pacManLastMove = game.getPacmanLastMoveMade().ordinal();
+        for (GHOST ghost : GHOST.values()) {
+            int i = ghost.ordinal();
+            ghostNodes[i] = game.getGhostCurrentNodeIndex(ghost);
+            ghostLastMoves[i] = game.getGhostLastMoveMade(ghost).ordinal();
+            ghostEdibleTimes[i] = game.getGhostEdibleTime(ghost);
+            ghostLairTimes[i] = game.getGhostLairTime(ghost);
+        }
+
+        pills = new long[(maze.pillNodes.length + 63) / 64];
+        for (int pillNode : game.getActivePillsIndices()) {
+            setBit(pills, maze.pillIndexOfNode[pillNode]);
+        }
+        powerPills = new long[(maze.powerPillNodes.length + 63) / 64];
+        for (int powerPillNode : game.getActivePowerPillsIndices()) {
+            setBit(powerPills, maze.powerPillIndexOfNode[powerPillNode]);
+        }
+        numActivePills = game.getNumberOfActivePills();
+        numActivePowerPills = game.getNumberOfActivePowerPills();
+        score = game.getScore();
+        pillWasEaten = game.wasPillEaten();
+        powerPillWasEaten = game.wasPowerPillEaten();
+        pacManWasEaten = game.wasPacManEaten();
+
+        gameOver = game.gameOver();
+        currentLevel = game.getCurrentLevel();
+        currentLevelTime = game.getCurrentLevelTime();
+        totalTime = game.getTotalTime();
+        numGhostsEaten = game.getNumGhostsEaten();
+        livesRemaining = game.getPacmanNumberOfLivesRemaining();
+
+        hash = computeHash(isPacManToMove);
+    }
+
+    /**
+     * @param other the state to copy. Its undo history is not copied.
+     */
+    private SimulationState(SimulationState other)
+    {
+        this.game = other.game;
+        this.maze = other.maze;
+        pacManNode = other.pacManNode;
+        pacManLastMove = other.pacManLastMove;
+        System.arraycopy(other.ghostNodes, 0, ghostNodes, 0, NUM_GHOSTS);
+        System.arraycopy(other.ghostLastMoves, 0, ghostLastMoves, 0, NUM_GHOSTS);
+        System.arraycopy(other.ghostEdibleTimes, 0, ghostEdibleTimes, 0, NUM_GHOSTS);
+        System.arraycopy(other.ghostLairTimes, 0, ghostLairTimes, 0, NUM_GHOSTS);
+        pills = Arrays.copyOf(other.pills, other.pills.length);
+        powerPills = Arrays.copyOf(other.powerPills, other.powerPills.length);
+        numActivePills = other.numActivePills;
+        numActivePowerPills = other.numActivePowerPills;
+        score = other.score;
+        pillWasEaten = other.pillWasEaten;
+        powerPillWasEaten = other.powerPillWasEaten;
+        pacManWasEaten = other.pacManWasEaten;
+        hash = other.hash;
+        ticksSimulated = other.ticksSimulated;
+        gameOver = other.gameOver;
+        currentLevel = other.currentLevel;
+        currentLevelTime = other.currentLevelTime;
+        totalTime = other.totalTime;
+        numGhostsEaten = other.numGhostsEaten;
+        livesRemaining = other.livesRemaining;
+    }
+
+    /**
+     * @param game the game to build the state from
+     * @param isPacManToMove is it Pac-Man's turn to move? (Else, the ghosts) This is only used for the hash.
+     * @return a state equal to the given game
+     */
+    public static SimulationState fromGame(Game game, boolean isPacManToMove)
+    {
+        return new SimulationState(game, isPacManToMove);
+    }
+
+    /**
+     * @return a copy of this state which can be changed (for example on another thread) without changing this state.
+     * Moves applied to this state before copying cannot be undone on the copy.
+     */
+    public SimulationState copy()
+    {
+        return new SimulationState(this);
+    }
+
+    /**
+     * Moves Pac-Man like Game.updatePacMan: Pac-Man makes the move (or keeps going in its last direction if the move
+     * is not possible) and eats any pill or power pill at the node it reaches
+     *
+     * @param move the move for Pac-Man to make
+     */
+    public void applyPacManMove(MOVE move)
+    {
+        ensureUndoCapacity(PAC_MAN_FRAME_SIZE);
+        pushLong(hash);
+        push(pacManNode);
+        push(pacManLastMove);
+        push((pillWasEaten ? 1 : 0) | (powerPillWasEaten ? 2 : 0));
+        push(score);
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            push(ghostEdibleTimes[i]);
+        }
+
+        hash ^= ZobristHash.pacManKey(pacManNode, pacManLastMove) ^
+                ZobristHash.eatenFlagsKey(pillWasEaten, powerPillWasEaten) ^
+                ZobristHash.GHOSTS_TO_MOVE;
+
+        pacManLastMove = correctPacManDirection(move.ordinal());
+        if (pacManLastMove != NEUTRAL) {
+            pacManNode = maze.neighbours[pacManNode * MazeTables.NUM_MOVES + pacManLastMove];
+        }
+        hash ^= ZobristHash.pacManKey(pacManNode, pacManLastMove);
+
+        // Eat a pill
+        pillWasEaten = false;
+        int eatenPill = maze.pillIndexOfNode[pacManNode];
+        if (eatenPill >= 0 && isBitSet(pills, eatenPill)) {
+            score += Constants.PILL;
+            clearBit(pills, eatenPill);
+            numActivePills--;
+            pillWasEaten = true;
+            hash ^= ZobristHash.pillKey(pacManNode);
+        } else {
+            eatenPill = -1;
+        }
+
+        // Eat a power pill, which makes the ghosts outside of the lair edible
+        powerPillWasEaten = false;
+        int eatenPowerPill = maze.powerPillIndexOfNode[pacManNode];
+        if (eatenPowerPill >= 0 && isBitSet(powerPills, eatenPowerPill)) {
+            score += Constants.POWER_PILL;
+            clearBit(powerPills, eatenPowerPill);
+            numActivePowerPills--;
+            powerPillWasEaten = true;
+            hash ^= ZobristHash.powerPillKey(pacManNode);
+
+            int newEdibleTime = (int) (Constants.EDIBLE_TIME * (Math.pow(Constants.EDIBLE_TIME_REDUCTION,
+                    currentLevel % Constants.LEVEL_RESET_REDUCTION)));
+            for (int i = 0; i < NUM_GHOSTS; i++) {
+                hash ^= ZobristHash.edibleTimeKey(i, ghostEdibleTimes[i]);
+                ghostEdibleTimes[i] = ghostLairTimes[i] == 0 ? newEdibleTime : 0;
+                hash ^= ZobristHash.edibleTimeKey(i, ghostEdibleTimes[i]);
+            }
+        } else {
+            eatenPowerPill = -1;
+        }
+        hash ^= ZobristHash.eatenFlagsKey(pillWasEaten, powerPillWasEaten);
+
+        push(eatenPill);
+        push(eatenPowerPill);
+        push(PAC_MAN_FRAME);
+    }
+
+    /**
+     * Moves the ghosts like Game.updateGhosts: if a power pill was just eaten, the ghosts outside of the lair reverse.
+     * Otherwise, each ghost which is out of the lair and not slowed down by being edible makes its move (or keeps
+     * going in its last direction if the move is not possible). Then, like Game.updateGame, whether an unedible ghost
+     * caught Pac-Man is checked and the timers count down, which ends the tick.
+     *
+     * @param moves the move for each ghost, indexed by ghost ordinal
+     */
+    public void applyGhostMoves(MOVE[] moves)
+    {
+        ensureUndoCapacity(GHOST_FRAME_SIZE);
+        pushLong(hash);
+        push(pacManWasEaten ? 1 : 0);
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            push(ghostNodes[i]);
+            push(ghostLastMoves[i]);
+            push(ghostEdibleTimes[i]);
+            push(ghostLairTimes[i]);
+            hash ^= ZobristHash.ghostKey(i, ghostNodes[i], ghostLastMoves[i], ghostLairTimes[i]) ^
+                    ZobristHash.edibleTimeKey(i, ghostEdibleTimes[i]);
+        }
+        hash ^= ZobristHash.GHOSTS_TO_MOVE;
+
+        if (!reverseGhosts()) {
+            for (int i = 0; i < NUM_GHOSTS; i++) {
+                if (ghostLairTimes[i] == 0 &&
+                        (ghostEdibleTimes[i] == 0 || ghostEdibleTimes[i] % Constants.GHOST_SPEED_REDUCTION != 0)) {
+                    ghostLastMoves[i] = checkGhostDirection(i, moves[i].ordinal());
+                    ghostNodes[i] = maze.neighbours[ghostNodes[i] * MazeTables.NUM_MOVES + ghostLastMoves[i]];
+                }
+            }
+        }
+        pacManWasEaten = isPacManCaught();
+        updateTimers();
+
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            hash ^= ZobristHash.ghostKey(i, ghostNodes[i], ghostLastMoves[i], ghostLairTimes[i]) ^
+                    ZobristHash.edibleTimeKey(i, ghostEdibleTimes[i]);
+        }
+        ticksSimulated++;
+        push(GHOST_FRAME);
+    }
+
+    /**
+     * Undoes the last move applied to this state which has not been undone yet
+     */
+    public void undo()
+    {
+        int tag = pop();
+        if (tag == PAC_MAN_FRAME) {
+            int eatenPowerPill = pop();
+            int eatenPill = pop();
+            if (eatenPowerPill >= 0) {
+                setBit(powerPills, eatenPowerPill);
+                numActivePowerPills++;
+            }
+            if (eatenPill >= 0) {
+                setBit(pills, eatenPill);
+                numActivePills++;
+            }
+            for (int i = NUM_GHOSTS - 1; i >= 0; i--) {
+                ghostEdibleTimes[i] = pop();
+            }
+            score = pop();
+            int eatenFlags = pop();
+            pillWasEaten = (eatenFlags & 1) != 0;
+            powerPillWasEaten = (eatenFlags & 2) != 0;
+            pacManLastMove = pop();
+            pacManNode = pop();
+        } else {
+            for (int i = NUM_GHOSTS - 1; i >= 0; i--) {
+                ghostLairTimes[i] = pop();
+                ghostEdibleTimes[i] = pop();
+                ghostLastMoves[i] = pop();
+                ghostNodes[i] = pop();
+            }
+            pacManWasEaten = pop() != 0;
+            ticksSimulated--;
+        }
+        hash = popLong();
+    }
+
+    /**
+     * @param direction ordinal of the move Pac-Man wants to make
+     * @return ordinal of the move Pac-Man actually makes, following Game's rules
+     */
+    private int correctPacManDirection(int direction)
+    {
+        if (maze.neighbours[pacManNode * MazeTables.NUM_MOVES + direction] != -1) {
+            return direction;
+        } else if (maze.neighbours[pacManNode * MazeTables.NUM_MOVES + pacManLastMove] != -1) {
+            return pacManLastMove;
+        }
+        return NEUTRAL;
+    }
+
+    /**
+     * @param ghost ordinal of a ghost
+     * @param direction ordinal of the move the ghost wants to make
+     * @return ordinal of the move the ghost actually makes, following Game's rules
+     */
+    private int checkGhostDirection(int ghost, int direction)
+    {
+        int node = ghostNodes[ghost];
+        int lastMove = ghostLastMoves[ghost];
+        if (maze.neighbours[node * MazeTables.NUM_MOVES + direction] != -1 &&
+                direction != MOVES[lastMove].opposite().ordinal()) {
+            return direction;
+        } else if (maze.neighbours[node * MazeTables.NUM_MOVES + lastMove] != -1) {
+            return lastMove;
+        }
+        return maze.getMovesWithoutReversing(node, MOVES[lastMove])[0].ordinal();
+    }
+
+    /**
+     * @return is an unedible ghost out of the lair within EAT_DISTANCE of Pac-Man, which Game.feast checks before the
+     * timers count down?
+     */
+    private boolean isPacManCaught()
+    {
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            if (ghostLairTimes[i] == 0 && ghostEdibleTimes[i] == 0) {
+                int distance = game.getShortestPathDistance(pacManNode, ghostNodes[i]);
+                if (distance != -1 && distance <= Constants.EAT_DISTANCE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the timers of the ghosts down by one tick like Game.updateGame, which does this after checking whether
+     * anyone was eaten: edible ghosts become less edible, and a ghost whose lair time runs out leaves the lair at the
+     * ghost's initial node, keeping its last move
+     */
+    private void updateTimers()
+    {
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            if (ghostEdibleTimes[i] > 0) {
+                ghostEdibleTimes[i]--;
+            }
+            if (ghostLairTimes[i] > 0 && --ghostLairTimes[i] == 0) {
+                ghostNodes[i] = maze.ghostInitialNode;
+            }
+        }
+    }
+
+    /**
+     * @return did the ghosts reverse because a power pill was just eaten? If so, they do not make their own moves.
+     */
+    private boolean reverseGhosts()
+    {
+        if (!powerPillWasEaten) {
+            return false;
+        }
+        boolean reversed = false;
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            if (currentLevelTime + ticksSimulated > 1 && ghostLairTimes[i] == 0 && ghostLastMoves[i] != NEUTRAL) {
+                ghostLastMoves[i] = MOVES[ghostLastMoves[i]].opposite().ordinal();
+                ghostNodes[i] = maze.neighbours[ghostNodes[i] * MazeTables.NUM_MOVES + ghostLastMoves[i]];
+                reversed = true;
+            }
+        }
+        return reversed;
+    }
+
+    /**
+     * @param isPacManToMove is it Pac-Man's turn to move? (Else, the ghosts)
+     * @return the {@link ZobristHash} of this state computed from scratch
+     */
+    private long computeHash(boolean isPacManToMove)
+    {
+        long newHash = ZobristHash.pacManKey(pacManNode, pacManLastMove);
+        for (int i = 0; i < NUM_GHOSTS; i++) {
+            newHash ^= ZobristHash.ghostKey(i, ghostNodes[i], ghostLastMoves[i], ghostLairTimes[i]);
+            newHash ^= ZobristHash.edibleTimeKey(i, ghostEdibleTimes[i]);
+        }
+        for (int i = 0; i < maze.pillNodes.length; i++) {
+            if (isBitSet(pills, i)) {
+                newHash ^= ZobristHash.pillKey(maze.pillNodes[i]);
+            }
+        }
+        for (int i = 0; i < maze.powerPillNodes.length; i++) {
+            if (isBitSet(powerPills, i)) {
+                newHash ^= ZobristHash.powerPillKey(maze.powerPillNodes[i]);
+            }
+        }
+        newHash ^= ZobristHash.eatenFlagsKey(pillWasEaten, powerPillWasEaten);
+        if (!isPacManToMove) {
+            newHash ^= ZobristHash.GHOSTS_TO_MOVE;
+        }
+        return newHash;
+    }
+
+    private void ensureUndoCapacity(int frameSize)
+    {
+        if (undoSize + frameSize > undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+        }
+    }
+
+    private void push(int value)
+    {
+        undoStack[undoSize++] = value;
+    }
+
+    private void pushLong(long value)
+    {
+        push((int) (value >>> 32));
+        push((int) value);
+    }
+
+    private int pop()
+    {
+        return undoStack[--undoSize];
+    }
+
+    private long popLong()
+    {
+        long low = pop() & 0xFFFFFFFFL;
+        long high = pop();
+        return (high << 32) | low;
+    }
+
+    private static boolean isBitSet(long[] bits, int index)
+    {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index)
+    {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clearBit(long[] bits, int index)
+    {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * @return the {@link ZobristHash} of this state
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * @param from a node of the maze
+     * @param to a node of the maze
+     * @return the shortest path distance between the two nodes
+     */
+    public int getShortestPathDistance(int from, int to)
+    {
+        return game.getShortestPathDistance(from, to);
+    }
+
+    /**
+     * @param node a node of the maze
+     * @param move a move
+     * @return the node reached by making the move from the given node, or -1 if the move is not possible
+     */
+    public int getNeighbour(int node, MOVE move)
+    {
+        return maze.getNeighbour(node, move);
+    }
+
+    /**
+     * @return the number of game ticks simulated since this state was built from a game (or copied from a state built
+     * from a game)
+     */
+    public int getTicksSimulated()
+    {
+        return ticksSimulated;
+    }
+
+    /**
+     * @return the number of steps Pac-Man has to take to reach a junction if it keeps following its corridor, or 0 if
+     * it is at a junction and has a choice to make
+     */
+    public int getStepsToJunction()
+    {
+        return maze.stepsToJunction[pacManNode * MazeTables.NUM_MOVES + pacManLastMove];
+    }
+
+    public int getPacmanCurrentNodeIndex()
+    {
+        return pacManNode;
+    }
+
+    public MOVE getPacmanLastMoveMade()
+    {
+        return MOVES[pacManLastMove];
+    }
+
+    /**
+     * @return the moves Pac-Man can make from its node. The array is shared and must not be changed.
+     */
+    public MOVE[] getPossiblePacManMoves()
+    {
+        return maze.pacManMoves[pacManNode];
+    }
+
+    /**
+     * @return the moves Pac-Man can make from its node without reversing, or all of its moves if it can only
+     * reverse. The array is shared and must not be changed.
+     */
+    public MOVE[] getPossiblePacManMovesWithoutReversing()
+    {
+        MOVE[] moves = maze.movesWithoutReversing[pacManNode * MazeTables.NUM_MOVES + pacManLastMove];
+        return moves.length == 0 ? maze.pacManMoves[pacManNode] : moves;
+    }
+
+    public int getGhostCurrentNodeIndex(GHOST ghost)
+    {
+        return ghostNodes[ghost.ordinal()];
+    }
+
+    public MOVE getGhostLastMoveMade(GHOST ghost)
+    {
+        return MOVES[ghostLastMoves[ghost.ordinal()]];
+    }
+
+    /**
+     * @param ghost one of the four ghosts
+     * @return the moves the ghost can make without reversing, or only NEUTRAL if there are none (such as in the
+     * lair). The array is shared and must not be changed.
+     */
+    public MOVE[] getPossibleGhostMoves(GHOST ghost)
+    {
+        int i = ghost.ordinal();
+        MOVE[] moves = maze.movesWithoutReversing[ghostNodes[i] * MazeTables.NUM_MOVES + ghostLastMoves[i]];
+        return moves.length == 0 ? NEUTRAL_ONLY : moves;
+    }
+
+    public int getGhostEdibleTime(GHOST ghost)
+    {
+        return ghostEdibleTimes[ghost.ordinal()];
+    }
+
+    public int getGhostLairTime(GHOST ghost)
+    {
+        return ghostLairTimes[ghost.ordinal()];
+    }
+
+    public boolean isGhostEdible(GHOST ghost)
+    {
+        return ghostEdibleTimes[ghost.ordinal()] > 0;
+    }
+
+    /**
+     * @return the number of pills in the maze, eaten or not
+     */
+    public int getNumberOfPills()
+    {
+        return maze.pillNodes.length;
+    }
+
+    /**
+     * @return the number of power pills in the maze, eaten or not
+     */
+    public int getNumberOfPowerPills()
+    {
+        return maze.powerPillNodes.length;
+    }
+
+    /**
+     * @param pillIndex index of a pill
+     * @return the node the pill is at
+     */
+    public int getPillNode(int pillIndex)
+    {
+        return maze.pillNodes[pillIndex];
+    }
+
+    /**
+     * @param powerPillIndex index of a power pill
+     * @return the node the power pill is at
+     */
+    public int getPowerPillNode(int powerPillIndex)
+    {
+        return maze.powerPillNodes[powerPillIndex];
+    }
+
+    public boolean isPillStillAvailable(int pillIndex)
+    {
+        return isBitSet(pills, pillIndex);
+    }
+
+    public boolean isPowerPillStillAvailable(int powerPillIndex)
+    {
+        return isBitSet(powerPills, powerPillIndex);
+    }
+
+    /**
+     * Walks the pills of the maze from the nearest to Pac-Man outwards and stops at the first which has not been
+     * eaten, so it only looks at a few pills unless most of the pills near Pac-Man have been eaten
+     *
+     * @return the shortest path distance from Pac-Man to a pill or power pill which has not been eaten, or -1 if they
+     * have all been eaten
+     */
+    public int getDistanceToNearestPill()
+    {
+        int numPills = maze.pillNodes.length;
+        int numAllPills = numPills + maze.powerPillNodes.length;
+        int start = pacManNode * numAllPills;
+        for (int rank = 0; rank < numAllPills; rank++) {
+            int pill = maze.pillsByDistance[start + rank];
+            if (pill < numPills) {
+                if (isBitSet(pills, pill)) {
+                    return game.getShortestPathDistance(pacManNode, maze.pillNodes[pill]);
+                }
+            } else if (isBitSet(powerPills, pill - numPills)) {
+                return game.getShortestPathDistance(pacManNode, maze.powerPillNodes[pill - numPills]);
+            }
+        }
+        return -1;
+    }
+
+    public int getNumberOfActivePills()
+    {
+        return numActivePills;
+    }
+
+    public int getNumberOfActivePowerPills()
+    {
+        return numActivePowerPills;
+    }
+
+    public int getScore()
+    {
+        return score;
+    }
+
+    public boolean wasPillEaten()
+    {
+        return pillWasEaten;
+    }
+
+    public boolean wasPowerPillEaten()
+    {
+        return powerPillWasEaten;
+    }
+
+    public boolean wasPacManEaten()
+    {
+        return pacManWasEaten;
+    }
+
+    public boolean gameOver()
+    {
+        return gameOver;
+    }
+
+    public int getCurrentLevel()
+    {
+        return currentLevel;
+    }
+
+    public int getCurrentLevelTime()
+    {
+        return currentLevelTime;
+    }
+
+    public int getTotalTime()
+    {
+        return totalTime;
+    }
+
+    public int getNumGhostsEaten()
+    {
+        return numGhostsEaten;
+    }
+
+    public int getPacmanNumberOfLivesRemaining()
+    {
+        return livesRemaining;
+    }
+}
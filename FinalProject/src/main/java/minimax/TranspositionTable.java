@@ -0,0 +1,236 @@
+package minimax;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed-size table of the results of previously searched game states, keyed by {@link ZobristHash}. It lets Minimax
+ * reuse the value of a state which is reached by more than one sequence of moves instead of creating its subtree
+ * again. All memory is allocated when the table is constructed, either on the Java heap or off-heap in a direct
+ * buffer.
+ *
+ * Each entry is two longs: the key and the packed data. The key is stored XOR-ed with the data so that an entry
+ * which is torn by a concurrent write is detected as a miss rather than returning the wrong data.
+ *
+ * Entries of the searches before the current one are ignored after {@link #newSearch}, but are kept after
+ * {@link #newSearchKeepingEntries} so that the search of the next game tick can reuse them.
+ *
+ * Packed data layout (from the least significant bit): 32 bits value, 8 bits depth, 2 bits bound type, 10 bits best
+ * move and 8 bits search age.
+ */
+public class TranspositionTable
+{
+    /**
+     * The stored value is the exact value of the state
+     */
+    public static final int EXACT = 1;
+    /**
+     * The stored value is a lower bound on the value of the state (the search failed high)
+     */
+    public static final int LOWER_BOUND = 2;
+    /**
+     * The stored value is an upper bound on the value of the state (the search failed low)
+     */
+    public static final int UPPER_BOUND = 3;
+    /**
+     * Best move stored when no move is known
+     */
+    public static final int NO_MOVE = 0x3FF;
+    /**
+     * Returned by probe when the state is not in the table. Real data never equals this since its bound type is
+     * never 0.
+     */
+    public static final long NOT_FOUND = 0;
+
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 52;
+    private static final int MAX_STORED_DEPTH = 0xFF;
+    /**
+     * The most earlier searches whose entries are kept by newSearchKeepingEntries. States from older searches are far
+     * from the current game state, so their entries are unlikely to be reached again.
+     */
+    private static final int MAX_KEPT_SEARCHES = 8;
+
+    /**
+     * Two longs per entry: the key XOR the data, then the data
+     */
+    private final LongBuffer entries;
+    /**
+     * Mask to turn a hash into an entry index
+     */
+    private final int indexMask;
+    /**
+     * Entries stored during an earlier search are ignored. This avoids having to clear the table for every search.
+     */
+    private int age = 0;
+    /**
+     * The age of the oldest search whose entries can still be used
+     */
+    private int oldestUsableAge = 0;
+
+    /**
+     * @param sizeInBits the table holds 2^sizeInBits entries of 16 bytes each
+     * @param offHeap should the table be allocated outside of the Java heap?
+     */
+    public TranspositionTable(int sizeInBits, boolean offHeap)
+    {
+        checkArgument(sizeInBits > 0 && sizeInBits <= 26, "Table size must be between 2^1 and 2^26 entries");
+        int numEntries = 1 << sizeInBits;
+        this.indexMask = numEntries - 1;
+
+        if (offHeap) {
+            this.entries = ByteBuffer.allocateDirect(numEntries * 2 * 8).order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        } else {
+            this.entries = LongBuffer.allocate(numEntries * 2);
+        }
+    }
+
+    /**
+     * Starts a new search so that the entries of all previous searches are ignored
+     */
+    public void newSearch()
+    {
+        nextAge();
+        oldestUsableAge = age;
+    }
+
+    /**
+     * Starts a new search which can still use the entries of the last few searches, for example because its root was
+     * a state in the tree of the previous search
+     */
+    public void newSearchKeepingEntries()
+    {
+        nextAge();
+        if (((age - oldestUsableAge) & 0xFF) > MAX_KEPT_SEARCHES) {
+            oldestUsableAge = (age - MAX_KEPT_SEARCHES) & 0xFF;
+        }
+    }
+
+    /**
+     * Moves on to the age of the next search
+     */
+    private void nextAge()
+    {
+        age = (age + 1) & 0xFF;
+        if (age == 0) {
+            // Ages have wrapped around, so entries from 256 searches ago would look like they are from this search
+            for (int i = 0; i < entries.capacity(); i++) {
+                entries.put(i, 0);
+            }
+            oldestUsableAge = age;
+        }
+    }
+
+    /**
+     * @param entryAge the age of the search which stored an entry
+     * @return can the entry be used by the current search?
+     */
+    private boolean isUsableAge(int entryAge)
+    {
+        return ((age - entryAge) & 0xFF) <= ((age - oldestUsableAge) & 0xFF);
+    }
+
+    /**
+     * @param hash the hash of the game state to look up
+     * @return the packed data stored for the given state by the current search (or by an earlier search whose
+     * entries were kept), or NOT_FOUND
+     */
+    public long probe(long hash)
+    {
+        int index = indexOf(hash);
+        long data = entries.get(index + 1);
+        long storedKey = entries.get(index) ^ data;
+        if (data == NOT_FOUND || storedKey != hash || !isUsableAge(getAge(data))) {
+            return NOT_FOUND;
+        }
+        return data;
+    }
+
+    /**
+     * Stores the result of searching a state. An entry of the current search is only replaced by an entry of at least
+     * the same depth, unless the entry is for a different state.
+     *
+     * @param hash the hash of the game state which was searched
+     * @param depth the depth of the tree created for the state
+     * @param boundType EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param bestMove the encoded best move found, or NO_MOVE
+     * @param value the value found for the state
+     */
+    public void store(long hash, int depth, int boundType, int bestMove, int value)
+    {
+        int index = indexOf(hash);
+        long oldData = entries.get(index + 1);
+        long oldKey = entries.get(index) ^ oldData;
+        if (oldData != NOT_FOUND && oldKey == hash && getAge(oldData) == age && getDepth(oldData) > depth) {
+            return;
+        }
+
+        long data = (value & 0xFFFFFFFFL) |
+                ((long) Math.min(depth, MAX_STORED_DEPTH) << DEPTH_SHIFT) |
+                ((long) boundType << BOUND_SHIFT) |
+                ((long) (bestMove & NO_MOVE) << MOVE_SHIFT) |
+                ((long) age << AGE_SHIFT);
+        entries.put(index, hash ^ data);
+        entries.put(index + 1, data);
+    }
+
+    /**
+     * @param hash hash of a game state
+     * @return index in entries of the key of the entry for the given state
+     */
+    private int indexOf(long hash)
+    {
+        return ((int) (hash ^ (hash >>> 32)) & indexMask) * 2;
+    }
+
+    /**
+     * @param data packed data returned by probe
+     * @return the value stored in the data
+     */
+    public static int getValue(long data)
+    {
+        return (int) data;
+    }
+
+    /**
+     * @param data packed data returned by probe
+     * @return the depth of the tree that the stored value came from
+     */
+    public static int getDepth(long data)
+    {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @param data packed data returned by probe
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int getBoundType(long data)
+    {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * @param data packed data returned by probe
+     * @return the encoded best move stored in the data, or NO_MOVE
+     */
+    public static int getBestMove(long data)
+    {
+        return (int) (data >>> MOVE_SHIFT) & NO_MOVE;
+    }
+
+    /**
+     * @param data packed data
+     * @return the age of the search which stored the data
+     */
+    private static int getAge(long data)
+    {
+        return (int) (data >>> AGE_SHIFT) & 0xFF;
+    }
+}
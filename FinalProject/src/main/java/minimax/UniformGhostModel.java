@@ -0,0 +1,16 @@
+package minimax;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+
+/**
+ * Ghost model in which every possible move of a ghost is equally likely
+ */
+public class UniformGhostModel implements GhostModel
+{
+    @Override
+    public double getMoveWeight(SimulationState state, GHOST ghost, MOVE move)
+    {
+        return 1;
+    }
+}
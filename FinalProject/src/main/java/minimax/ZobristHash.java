@@ -0,0 +1,209 @@
+package minimax;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Random;
+
+/**
+ * Zobrist hashing of Ms. Pac-Man game states. Every part of the game state which can change during a Minimax search
+ * (positions, last moves, edible and lair timers, pills and whose turn it is) is given a random 64-bit key, and the
+ * hash of a state is the XOR of the keys of its parts. Because XOR is its own inverse, the hash of a child state can
+ * be updated incrementally from the hash of its parent by XOR-ing out the parts that changed and XOR-ing in their new
+ * values. {@link SimulationState} does this as it applies moves.
+ *
+ * The heuristics also read Pac-Man's move history, which is not part of the game state. Transposition table entries
+ * are keyed by the hash of the state XOR {@link #historyKey} of the packed history, so two paths to the same state
+ * with different histories do not share an entry.
+ */
+public class ZobristHash
+{
+    /**
+     * More nodes than there are in any of the Ms. Pac-Man mazes
+     */
+    private static final int MAX_NODES = 4096;
+    /**
+     * Timers longer than this share a key, which is fine since such long timers are rare and only cause collisions
+     */
+    private static final int MAX_TIMER = 512;
+    /**
+     * Seed for the random keys so that hashes are the same in every run
+     */
+    private static final long SEED = 5100L;
+
+    private static final long[] PAC_MAN_NODE;
+    private static final long[] PAC_MAN_LAST_MOVE;
+    private static final long[][] GHOST_NODE;
+    private static final long[][] GHOST_LAST_MOVE;
+    private static final long[][] GHOST_EDIBLE_TIME;
+    private static final long[][] GHOST_LAIR_TIME;
+    private static final long[] PILL;
+    private static final long[] POWER_PILL;
+    private static final long PILL_WAS_EATEN;
+    private static final long POWER_PILL_WAS_EATEN;
+    /**
+     * Key which is included in the hash when it is the ghosts' turn to move
+     */
+    static final long GHOSTS_TO_MOVE;
+    /**
+     * Mixed into every packed move history before it is scrambled, so that the empty history does not have key 0
+     */
+    private static final long HISTORY_SALT;
+
+    static {
+        Random random = new Random(SEED);
+        int numGhosts = GHOST.values().length;
+        int numMoves = MOVE.values().length;
+
+        PAC_MAN_NODE = randomKeys(random, MAX_NODES);
+        PAC_MAN_LAST_MOVE = randomKeys(random, numMoves);
+        GHOST_NODE = new long[numGhosts][];
+        GHOST_LAST_MOVE = new long[numGhosts][];
+        GHOST_EDIBLE_TIME = new long[numGhosts][];
+        GHOST_LAIR_TIME = new long[numGhosts][];
+        for (int i = 0; i < numGhosts; i++) {
+            GHOST_NODE[i] = randomKeys(random, MAX_NODES);
+            GHOST_LAST_MOVE[i] = randomKeys(random, numMoves);
+            GHOST_EDIBLE_TIME[i] = randomKeys(random, MAX_TIMER);
+            GHOST_LAIR_TIME[i] = randomKeys(random, MAX_TIMER);
+        }
+        PILL = randomKeys(random, MAX_NODES);
+        POWER_PILL = randomKeys(random, MAX_NODES);
+        PILL_WAS_EATEN = random.nextLong();
+        POWER_PILL_WAS_EATEN = random.nextLong();
+        GHOSTS_TO_MOVE = random.nextLong();
+        HISTORY_SALT = random.nextLong();
+    }
+
+    /**
+     * Static class
+     */
+    private ZobristHash()
+    {
+    }
+
+    /**
+     * @param random source of the keys
+     * @param size number of keys to create
+     * @return array of random keys
+     */
+    private static long[] randomKeys(Random random, int size)
+    {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    /**
+     * @param game the game to hash from scratch
+     * @param isPacManToMove is it Pac-Man's turn to move in the search? (Else, the ghosts)
+     * @return the hash of the given game state
+     */
+    public static long hash(Game game, boolean isPacManToMove)
+    {
+        long hash = pacManKey(game.getPacmanCurrentNodeIndex(), game.getPacmanLastMoveMade().ordinal());
+        for (GHOST ghost : GHOST.values()) {
+            hash ^= ghostKey(ghost.ordinal(), game.getGhostCurrentNodeIndex(ghost),
+                    game.getGhostLastMoveMade(ghost).ordinal(), game.getGhostLairTime(ghost));
+            hash ^= edibleTimeKey(ghost.ordinal(), game.getGhostEdibleTime(ghost));
+        }
+        for (int pillNode : game.getActivePillsIndices()) {
+            hash ^= pillKey(pillNode);
+        }
+        for (int powerPillNode : game.getActivePowerPillsIndices()) {
+            hash ^= powerPillKey(powerPillNode);
+        }
+        hash ^= eatenFlagsKey(game.wasPillEaten(), game.wasPowerPillEaten());
+        if (!isPacManToMove) {
+            hash ^= GHOSTS_TO_MOVE;
+        }
+        return hash;
+    }
+
+    /**
+     * The packed history already identifies the moves in it, so its bits only need to be spread over the whole key
+     * (with the finaliser of MurmurHash3) instead of keeping a random key per move and position.
+     *
+     * @param packedHistory a Pac-Man move history packed by {@link MoveHistory}
+     * @return key for the move history
+     */
+    public static long historyKey(long packedHistory)
+    {
+        long key = packedHistory ^ HISTORY_SALT;
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * @param node the node Pac-Man is at
+     * @param lastMove ordinal of the last move Pac-Man made
+     * @return key for the position and last move of Pac-Man
+     */
+    static long pacManKey(int node, int lastMove)
+    {
+        return PAC_MAN_NODE[node] ^ PAC_MAN_LAST_MOVE[lastMove];
+    }
+
+    /**
+     * @param ghost ordinal of one of the four ghosts
+     * @param node the node the ghost is at
+     * @param lastMove ordinal of the last move the ghost made
+     * @param lairTime how long the ghost has left in the lair
+     * @return key for the position, last move and lair time of the ghost
+     */
+    static long ghostKey(int ghost, int node, int lastMove, int lairTime)
+    {
+        return GHOST_NODE[ghost][node] ^
+                GHOST_LAST_MOVE[ghost][lastMove] ^
+                GHOST_LAIR_TIME[ghost][Math.min(lairTime, MAX_TIMER - 1)];
+    }
+
+    /**
+     * @param ghost ordinal of one of the four ghosts
+     * @param edibleTime how long the ghost is edible for
+     * @return key for how long the ghost is edible for
+     */
+    static long edibleTimeKey(int ghost, int edibleTime)
+    {
+        return GHOST_EDIBLE_TIME[ghost][Math.min(edibleTime, MAX_TIMER - 1)];
+    }
+
+    /**
+     * @param node the node of an active pill
+     * @return key for the pill
+     */
+    static long pillKey(int node)
+    {
+        return PILL[node];
+    }
+
+    /**
+     * @param node the node of an active power pill
+     * @return key for the power pill
+     */
+    static long powerPillKey(int node)
+    {
+        return POWER_PILL[node];
+    }
+
+    /**
+     * @param pillWasEaten was a pill eaten in the last move?
+     * @param powerPillWasEaten was a power pill eaten in the last move?
+     * @return key for whether a pill and a power pill were eaten in the last move
+     */
+    static long eatenFlagsKey(boolean pillWasEaten, boolean powerPillWasEaten)
+    {
+        long key = 0;
+        if (pillWasEaten) {
+            key ^= PILL_WAS_EATEN;
+        }
+        if (powerPillWasEaten) {
+            key ^= POWER_PILL_WAS_EATEN;
+        }
+        return key;
+    }
+}